@@ -0,0 +1,862 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.structures.CPInfo;
+
+import de.tum.in.jmoped.translator.stub.Bypasser;
+import de.tum.in.jmoped.translator.stub.StubManager;
+
+/**
+ * Computes a backward slice of the translated methods from their
+ * assertions.
+ * <p>
+ * The slicing criteria are the <code>new AssertionError</code>
+ * instructions, to which the assertions of the Java compiler jump, and
+ * the calls to <code>org/junit/Assert</code>. An instruction is in the
+ * slice if an instruction in the slice depends on it:
+ * <ul>
+ * <li>on the values it pushes, through the operand stack, the local
+ * variables, the parameters and return values of calls, the static
+ * fields, the instance fields, and the array elements of the same type;</li>
+ * <li>on its control, if it branches or may throw (see {@link ControlFlow}); or</li>
+ * <li>on its call, if it invokes a method with instructions in the slice.</li>
+ * </ul>
+ * Instance fields are told apart by name and array elements by type only,
+ * so the slice over-approximates. A method with subroutines is sliced as a whole.
+ * <p>
+ * {@link MethodTranslator} translates the instructions outside the slice
+ * into rules that pop their operands and push arbitrary values, and that
+ * branch either way. Jumps, returns, and throws are always translated.
+ * Only the modules of the methods invoked by the slice are made.
+ *
+ * @author suwimont
+ *
+ */
+class AssertionSlice {
+
+	/**
+	 * The translator.
+	 */
+	private Translator translator;
+	
+	/**
+	 * The call graph.
+	 */
+	private MethodReachability calls;
+	
+	/**
+	 * Maps the methods to their slices.
+	 */
+	private HashMap<ModuleMaker, MethodSlice> slices
+			= new HashMap<ModuleMaker, MethodSlice>();
+	
+	/**
+	 * Maps the static fields, the instance fields, and the array types
+	 * to the instructions that store into them.
+	 */
+	private HashMap<String, List<Site>> stores = new HashMap<String, List<Site>>();
+	
+	/**
+	 * The module makers invoked by the slice, the method wrapper,
+	 * or the class initialization guards.
+	 */
+	private HashSet<ModuleMaker> entered = new HashSet<ModuleMaker>();
+	
+	/**
+	 * The instructions in the slice whose dependencies are not yet followed.
+	 */
+	private ArrayList<Site> worklist = new ArrayList<Site>();
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param translator the translator.
+	 */
+	AssertionSlice(Translator translator) {
+		this.translator = translator;
+		this.calls = new MethodReachability(translator);
+	}
+	
+	/**
+	 * Computes the slice of the methods whose modules are made.
+	 * 
+	 * @return this slice.
+	 */
+	AssertionSlice compute() {
+		
+		// Analyzes the methods, and collects the stores
+		for (ClassTranslator coll : translator.getClassTranslators()) {
+			for (ModuleMaker maker : coll.getModuleMakers()) {
+				if (maker instanceof MethodTranslator && translator.isReachable(maker))
+					slices.put(maker, new MethodSlice((MethodTranslator) maker));
+			}
+		}
+		
+		// Links the call sites to the callees
+		for (MethodSlice ms : slices.values()) {
+			for (int i : ms.targets.keySet()) {
+				for (ModuleMaker target : ms.targets.get(i)) {
+					MethodSlice callee = slices.get(target);
+					if (callee != null) callee.callers.add(new Site(ms, i));
+				}
+			}
+		}
+		
+		// The method wrapper and the class initialization guards
+		for (ModuleMaker root : calls.getRoots())
+			enter(root);
+		
+		// The assertions
+		for (MethodSlice ms : slices.values()) {
+			if (ms.full) {
+				for (int i = 0; i < ms.cfg.size(); i++)
+					mark(ms, i);
+				continue;
+			}
+			
+			CPInfo[] cp = ms.cfg.getConstantPool();
+			for (int i = 0; i < ms.cfg.size(); i++) {
+				AbstractInstruction ainst = ms.cfg.get(i);
+				if (ainst.getOpcode() == Opcodes.OPCODE_NEW) {
+					if (TranslatorUtils.resolveClassName(cp, ainst)
+							.equals("java/lang/AssertionError"))
+						mark(ms, i);
+				} else if (ms.targets.containsKey(i)) {
+					if (ms.getCalled(i)[0].equals("org/junit/Assert"))
+						mark(ms, i);
+				}
+			}
+		}
+		
+		// Follows the dependencies
+		while (!worklist.isEmpty()) {
+			Site site = worklist.remove(worklist.size() - 1);
+			follow(site.method, site.index);
+		}
+		return this;
+	}
+	
+	private void enter(ModuleMaker maker) {
+		if (maker != null) entered.add(maker);
+	}
+	
+	/**
+	 * Adds the instruction at index <code>i</code> of <code>ms</code>
+	 * to the slice.
+	 */
+	private void mark(MethodSlice ms, int i) {
+		
+		if (ms.slice.get(i)) return;
+		ms.slice.set(i);
+		worklist.add(new Site(ms, i));
+	}
+	
+	/**
+	 * Adds the instruction at index <code>i</code> of <code>ms</code>,
+	 * whose pushed value is used by the slice, to the slice.
+	 * If the instruction is a call, the return values of the callees
+	 * are used.
+	 */
+	private void markValue(MethodSlice ms, int i) {
+		
+		mark(ms, i);
+		Set<ModuleMaker> targets = ms.targets.get(i);
+		if (targets == null) return;
+		for (ModuleMaker target : targets) {
+			MethodSlice callee = slices.get(target);
+			if (callee != null) returns(callee);
+		}
+	}
+	
+	/**
+	 * Adds the instruction at index <code>i</code> of <code>ms</code>,
+	 * on whose control the slice depends, to the slice. If the instruction
+	 * is a call that may throw, the throws of the callees are in the slice.
+	 */
+	private void markBranch(MethodSlice ms, int i) {
+		
+		mark(ms, i);
+		if (!ms.mayThrow(i)) return;
+		Set<ModuleMaker> targets = ms.targets.get(i);
+		if (targets == null) return;
+		for (ModuleMaker target : targets) {
+			MethodSlice callee = slices.get(target);
+			if (callee != null) throwing(callee);
+		}
+	}
+	
+	/**
+	 * Follows the dependencies of the instruction at index <code>i</code>
+	 * of <code>ms</code>.
+	 */
+	private void follow(MethodSlice ms, int i) {
+		
+		// The calls of the method
+		if (!ms.live) {
+			ms.live = true;
+			for (Site site : ms.callers)
+				mark(site.method, site.index);
+		}
+		
+		// The control
+		if (!ms.full) {
+			BitSet cdeps = ms.cdeps[i];
+			if (cdeps != null) {
+				for (int b = cdeps.nextSetBit(0); b >= 0; b = cdeps.nextSetBit(b + 1))
+					markBranch(ms, b);
+			}
+		}
+		
+		// The values
+		AbstractInstruction ainst = ms.cfg.get(i);
+		int op = ainst.getOpcode();
+		if (ms.targets.containsKey(i)) {
+			invoke(ms, i);
+			return;
+		}
+		operands(ms, i, 0, ms.cfg.pops(i));
+		
+		// The local variables
+		int local = LivenessAnalysis.getLocal(ainst);
+		if (local >= 0 && !isStore(op)) {
+			for (int k = local; k < local + LivenessAnalysis.getSlots(ainst); k++) {
+				if (ms.full) {
+					if (k < ms.nparams) param(ms, k);
+					continue;
+				}
+				if (ms.frames[i] == null) continue;
+				BitSet defs = ms.frames[i][k];
+				for (int d = defs.nextSetBit(0); d >= 0; d = defs.nextSetBit(d + 1)) {
+					if (d < ms.cfg.size())
+						mark(ms, d);
+					else
+						param(ms, k);
+				}
+			}
+			return;
+		}
+		
+		// The fields and array elements
+		String key = getKey(ms.cfg.getConstantPool(), ainst);
+		if (key == null || isStore(op)) return;
+		List<Site> sites = stores.get(key);
+		if (sites == null) return;
+		for (Site site : sites)
+			mark(site.method, site.index);
+	}
+	
+	/**
+	 * Follows the dependencies of the call at index <code>i</code>
+	 * of <code>ms</code>.
+	 */
+	private void invoke(MethodSlice ms, int i) {
+		
+		String[] called = ms.getCalled(i);
+		Set<ModuleMaker> targets = ms.targets.get(i);
+		entered.addAll(targets);
+		
+		// All operands of bypasses, assertions, and calls to no method
+		boolean opaque = called[0].equals("org/junit/Assert")
+				|| Bypasser.isBypassed(called);
+		for (ModuleMaker target : targets) {
+			if (!slices.containsKey(target)) opaque = true;
+		}
+		if (opaque || targets.isEmpty()) {
+			operands(ms, i, 0, ms.cfg.pops(i));
+			for (ModuleMaker target : targets) {
+				MethodSlice callee = slices.get(target);
+				if (callee != null) returns(callee);
+			}
+			return;
+		}
+		
+		// The receiver for dispatching
+		int op = ms.cfg.get(i).getOpcode();
+		if (op == Opcodes.OPCODE_INVOKEVIRTUAL || op == Opcodes.OPCODE_INVOKEINTERFACE)
+			operands(ms, i, 0, 1);
+		
+		// The arguments of the parameters used
+		for (ModuleMaker target : targets) {
+			BitSet params = slices.get(target).params;
+			for (int k = params.nextSetBit(0); k >= 0; k = params.nextSetBit(k + 1))
+				operands(ms, i, k, k + 1);
+		}
+	}
+	
+	/**
+	 * Adds the producers of the operands <code>from</code> (inclusive)
+	 * to <code>to</code> (exclusive), counted from the deepest operand,
+	 * of the instruction at index <code>i</code> of <code>ms</code>.
+	 */
+	private void operands(MethodSlice ms, int i, int from, int to) {
+		
+		if (ms.full || ms.frames[i] == null) return;
+		BitSet[] stack = ms.frames[i];
+		int base = stack.length - ms.cfg.pops(i);
+		for (int k = base + from; k < base + to && k < stack.length; k++) {
+			BitSet producers = stack[k];
+			for (int p = producers.nextSetBit(0); p >= 0; p = producers.nextSetBit(p + 1))
+				markValue(ms, p);
+		}
+	}
+	
+	/**
+	 * Records that the slice uses the parameter in slot <code>k</code>
+	 * of <code>ms</code>, whose arguments are then used at the call sites.
+	 */
+	private void param(MethodSlice ms, int k) {
+		
+		if (ms.params.get(k)) return;
+		ms.params.set(k);
+		for (Site site : ms.callers) {
+			mark(site.method, site.index);
+			if (k < site.method.cfg.pops(site.index))
+				operands(site.method, site.index, k, k + 1);
+		}
+	}
+	
+	/**
+	 * Records that the slice uses the return values of <code>ms</code>.
+	 */
+	private void returns(MethodSlice ms) {
+		
+		if (ms.returns) return;
+		ms.returns = true;
+		for (int i = 0; i < ms.cfg.size(); i++) {
+			if (isReturn(ms.cfg.get(i).getOpcode()))
+				operands(ms, i, 0, ms.cfg.pops(i));
+		}
+	}
+	
+	/**
+	 * Records that the slice depends on the exceptions thrown by
+	 * <code>ms</code>: its throws and its calls that may throw.
+	 */
+	private void throwing(MethodSlice ms) {
+		
+		if (ms.throwing) return;
+		ms.throwing = true;
+		for (int i = 0; i < ms.cfg.size(); i++) {
+			if (ms.mayThrow(i)) markBranch(ms, i);
+		}
+	}
+	
+	/**
+	 * Returns the static field, the instance field, or the array type
+	 * accessed by <code>ainst</code>; or <code>null</code> if none.
+	 */
+	private String getKey(CPInfo[] cp, AbstractInstruction ainst) {
+		
+		switch (ainst.getOpcode()) {
+		case Opcodes.OPCODE_IALOAD:
+		case Opcodes.OPCODE_IASTORE:
+			return "[I";
+		case Opcodes.OPCODE_LALOAD:
+		case Opcodes.OPCODE_LASTORE:
+			return "[J";
+		case Opcodes.OPCODE_FALOAD:
+		case Opcodes.OPCODE_FASTORE:
+			return "[F";
+		case Opcodes.OPCODE_DALOAD:
+		case Opcodes.OPCODE_DASTORE:
+			return "[D";
+		case Opcodes.OPCODE_AALOAD:
+		case Opcodes.OPCODE_AASTORE:
+			return "[L";
+		case Opcodes.OPCODE_BALOAD:
+		case Opcodes.OPCODE_BASTORE:
+			return "[B";
+		case Opcodes.OPCODE_CALOAD:
+		case Opcodes.OPCODE_CASTORE:
+			return "[C";
+		case Opcodes.OPCODE_SALOAD:
+		case Opcodes.OPCODE_SASTORE:
+			return "[S";
+		
+		case Opcodes.OPCODE_GETSTATIC:
+		case Opcodes.OPCODE_PUTSTATIC: {
+			String[] ref = TranslatorUtils.getReferencedName(cp, ainst);
+			if (ref == null) return null;
+			ClassTranslator coll = translator.getClassTranslator(ref[0]);
+			if (coll == null) return null;
+			FieldTranslator field = MethodTranslator.findSuperClassHavingField(
+					coll, ref[1], translator);
+			if (field == null || field.isFinal() && !field.isAssertionsDisabledField())
+				return null;
+			return field.getName();
+		}
+		
+		case Opcodes.OPCODE_GETFIELD:
+		case Opcodes.OPCODE_PUTFIELD: {
+			String[] ref = TranslatorUtils.getReferencedName(cp, ainst);
+			if (ref == null) return null;
+			ClassTranslator coll = translator.getClassTranslator(
+					StubManager.removeStub(ref[0]));
+			if (coll == null) return null;
+			return MethodTranslator.resolveFieldName(coll, ref[1], translator);
+		}
+		
+		default:
+			return null;
+		}
+	}
+	
+	private static boolean isStore(int op) {
+		
+		switch (op) {
+		case Opcodes.OPCODE_ISTORE:
+		case Opcodes.OPCODE_LSTORE:
+		case Opcodes.OPCODE_FSTORE:
+		case Opcodes.OPCODE_DSTORE:
+		case Opcodes.OPCODE_ASTORE:
+		case Opcodes.OPCODE_IASTORE:
+		case Opcodes.OPCODE_LASTORE:
+		case Opcodes.OPCODE_FASTORE:
+		case Opcodes.OPCODE_DASTORE:
+		case Opcodes.OPCODE_AASTORE:
+		case Opcodes.OPCODE_BASTORE:
+		case Opcodes.OPCODE_CASTORE:
+		case Opcodes.OPCODE_SASTORE:
+		case Opcodes.OPCODE_PUTSTATIC:
+		case Opcodes.OPCODE_PUTFIELD:
+			return true;
+		default:
+			return op >= Opcodes.OPCODE_ISTORE_0 && op <= Opcodes.OPCODE_ASTORE_3;
+		}
+	}
+	
+	private static boolean isReturn(int op) {
+		return op >= Opcodes.OPCODE_IRETURN && op <= Opcodes.OPCODE_RETURN;
+	}
+	
+	/**
+	 * Returns <code>true</code> if <code>maker</code> may be invoked
+	 * by the slice.
+	 * 
+	 * @param maker the module maker.
+	 * @return <code>true</code> iff the module is to be made.
+	 */
+	boolean isEntered(ModuleMaker maker) {
+		return entered.contains(maker);
+	}
+	
+	/**
+	 * Returns the instructions of <code>method</code> to be translated:
+	 * the instructions in the slice, and the jumps, returns, and throws.
+	 * 
+	 * @param method the method translator.
+	 * @return the instruction indices; or <code>null</code> if the method
+	 * 		is not sliced.
+	 */
+	BitSet getInstructions(MethodTranslator method) {
+		
+		MethodSlice ms = slices.get(method);
+		if (ms == null) return null;
+		BitSet result = (BitSet) ms.slice.clone();
+		for (int i = 0; i < ms.cfg.size(); i++) {
+			switch (ms.cfg.get(i).getOpcode()) {
+			case Opcodes.OPCODE_GOTO:
+			case Opcodes.OPCODE_GOTO_W:
+			case Opcodes.OPCODE_JSR:
+			case Opcodes.OPCODE_JSR_W:
+			case Opcodes.OPCODE_RET:
+			case Opcodes.OPCODE_ATHROW:
+				result.set(i);
+				break;
+			default:
+				if (isReturn(ms.cfg.get(i).getOpcode())) result.set(i);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the number of instructions in the slice.
+	 * 
+	 * @return the number of instructions.
+	 */
+	int size() {
+		
+		int size = 0;
+		for (MethodSlice ms : slices.values())
+			size += ms.slice.cardinality();
+		return size;
+	}
+	
+	/**
+	 * Returns the number of instructions sliced.
+	 * 
+	 * @return the number of instructions.
+	 */
+	int getTotal() {
+		
+		int total = 0;
+		for (MethodSlice ms : slices.values())
+			total += ms.cfg.size();
+		return total;
+	}
+	
+	/**
+	 * Returns the number of methods invoked by the slice.
+	 * 
+	 * @return the number of methods.
+	 */
+	int countEntered() {
+		return entered.size();
+	}
+	
+	/**
+	 * Returns a digest of the slice, which determines the translation
+	 * of all sliced methods.
+	 * 
+	 * @return the digest.
+	 */
+	String getKey() {
+		
+		ArrayList<String> strings = new ArrayList<String>();
+		for (MethodSlice ms : slices.values()) {
+			if (entered.contains(ms.method))
+				strings.add(ms.method.getName() + ms.slice);
+		}
+		return TranslationCache.digest(strings);
+	}
+	
+	/**
+	 * An instruction of a method.
+	 */
+	private static class Site {
+		
+		MethodSlice method;
+		
+		int index;
+		
+		Site(MethodSlice method, int index) {
+			this.method = method;
+			this.index = index;
+		}
+	}
+	
+	/**
+	 * The dependencies and the slice of a method.
+	 */
+	private class MethodSlice {
+		
+		/**
+		 * The method translator.
+		 */
+		MethodTranslator method;
+		
+		/**
+		 * The control flow graph.
+		 */
+		ControlFlow cfg;
+		
+		/**
+		 * <code>true</code> if the whole method is in the slice.
+		 */
+		boolean full;
+		
+		/**
+		 * The producers of each local variable and stack slot before each
+		 * instruction; <code>null</code> if the instruction is not reached.
+		 * The parameters are produced by the index after the last instruction.
+		 */
+		BitSet[][] frames;
+		
+		/**
+		 * The branches on which each instruction is control dependent.
+		 */
+		BitSet[] cdeps;
+		
+		/**
+		 * Maps the calls to the methods they may reach.
+		 */
+		HashMap<Integer, Set<ModuleMaker>> targets = new HashMap<Integer, Set<ModuleMaker>>();
+		
+		/**
+		 * The call sites of the method.
+		 */
+		ArrayList<Site> callers = new ArrayList<Site>();
+		
+		/**
+		 * The number of slots of the parameters, including the receiver.
+		 */
+		int nparams;
+		
+		/**
+		 * The instructions in the slice.
+		 */
+		BitSet slice = new BitSet();
+		
+		/**
+		 * The slots of the parameters used by the slice.
+		 */
+		BitSet params = new BitSet();
+		
+		/**
+		 * <code>true</code> if the method has instructions in the slice.
+		 */
+		boolean live;
+		
+		/**
+		 * <code>true</code> if the return values are used by the slice.
+		 */
+		boolean returns;
+		
+		/**
+		 * <code>true</code> if the exceptions thrown are used by the slice.
+		 */
+		boolean throwing;
+		
+		/**
+		 * Analyzes <code>method</code>.
+		 * 
+		 * @param method the method translator.
+		 */
+		MethodSlice(MethodTranslator method) {
+			
+			this.method = method;
+			cfg = new ControlFlow(method);
+			nparams = TranslatorUtils.countParams(method.isStatic(), method.method);
+			
+			// Collects the calls and the stores
+			CPInfo[] cp = cfg.getConstantPool();
+			for (int i = 0; i < cfg.size(); i++) {
+				AbstractInstruction ainst = cfg.get(i);
+				int op = ainst.getOpcode();
+				switch (op) {
+				case Opcodes.OPCODE_INVOKEINTERFACE:
+				case Opcodes.OPCODE_INVOKESPECIAL:
+				case Opcodes.OPCODE_INVOKESTATIC:
+				case Opcodes.OPCODE_INVOKEVIRTUAL:
+					String[] called = TranslatorUtils.getReferencedName(cp, ainst);
+					targets.put(i, (called == null)
+							? new HashSet<ModuleMaker>() : calls.getTargets(called));
+					continue;
+				}
+				
+				if (!isStore(op) || LivenessAnalysis.getLocal(ainst) >= 0) continue;
+				String key = getKey(cp, ainst);
+				if (key == null) continue;
+				List<Site> sites = stores.get(key);
+				if (sites == null) {
+					sites = new ArrayList<Site>();
+					stores.put(key, sites);
+				}
+				sites.add(new Site(this, i));
+			}
+			
+			full = cfg.size() == 0 || cfg.hasSubroutines() || !computeFrames();
+			if (!full) computeControlDependences();
+		}
+		
+		/**
+		 * Returns the method called by the instruction at index <code>i</code>.
+		 */
+		String[] getCalled(int i) {
+			return TranslatorUtils.getReferencedName(cfg.getConstantPool(), cfg.get(i));
+		}
+		
+		/**
+		 * Returns <code>true</code> if the instruction at index <code>i</code>
+		 * may throw: a throw, or a call whose exception status is tested.
+		 */
+		boolean mayThrow(int i) {
+			
+			int op = cfg.get(i).getOpcode();
+			if (op == Opcodes.OPCODE_ATHROW) return true;
+			if (!targets.containsKey(i)) return false;
+			return translator.needsExceptionCheck(method, getCalled(i),
+					op == Opcodes.OPCODE_INVOKESTATIC);
+		}
+		
+		/**
+		 * Computes the producers of the local variables and the stack slots
+		 * before each instruction.
+		 * 
+		 * @return <code>false</code> if the stack heights do not match.
+		 */
+		private boolean computeFrames() {
+			
+			int size = cfg.size();
+			int maxLocals = method.codeAttr.getMaxLocals();
+			frames = new BitSet[size][];
+			frames[0] = new BitSet[maxLocals];
+			BitSet param = new BitSet();
+			param.set(size);
+			for (int k = 0; k < maxLocals; k++)
+				frames[0][k] = (k < nparams) ? param : new BitSet();
+			
+			BitSet pending = new BitSet(size);
+			pending.set(0);
+			for (int i = 0; i >= 0; i = pending.nextSetBit(0)) {
+				pending.clear(i);
+				BitSet[] in = frames[i];
+				
+				// Exception handlers start with the thrown object on the stack
+				for (int h : cfg.getHandlers(i)) {
+					BitSet[] handler = new BitSet[maxLocals + 1];
+					System.arraycopy(in, 0, handler, 0, maxLocals);
+					handler[maxLocals] = new BitSet();
+					switch (merge(h, handler)) {
+					case -1: return false;
+					case 1: pending.set(h);
+					}
+				}
+				
+				int pops = cfg.pops(i);
+				if (in.length - maxLocals < pops) return false;
+				BitSet[] out = new BitSet[in.length - pops + cfg.pushes(i)];
+				System.arraycopy(in, 0, out, 0, in.length - pops);
+				BitSet producer = new BitSet();
+				producer.set(i);
+				for (int k = in.length - pops; k < out.length; k++)
+					out[k] = producer;
+				
+				// Stores and increments produce their local variables
+				AbstractInstruction ainst = cfg.get(i);
+				int local = LivenessAnalysis.getLocal(ainst);
+				if (local >= 0 && (isStore(ainst.getOpcode()) 
+						|| ainst.getOpcode() == Opcodes.OPCODE_IINC)) {
+					int slots = LivenessAnalysis.getSlots(ainst);
+					if (local + slots > maxLocals) return false;
+					for (int k = local; k < local + slots; k++)
+						out[k] = producer;
+				}
+				
+				for (int s : cfg.getSuccessors(i)) {
+					switch (merge(s, out)) {
+					case -1: return false;
+					case 1: pending.set(s);
+					}
+				}
+			}
+			return true;
+		}
+		
+		/**
+		 * Joins <code>stack</code>, the local variables followed by the
+		 * operand stack, into the frame before the instruction at index
+		 * <code>i</code>. The frames are never modified in place.
+		 * 
+		 * @return 1 if the frame changed; 0 if not; or -1 if the heights
+		 * 		do not match.
+		 */
+		private int merge(int i, BitSet[] stack) {
+			
+			BitSet[] frame = frames[i];
+			if (frame == null) {
+				frames[i] = stack;
+				return 1;
+			}
+			if (frame.length != stack.length) return -1;
+			
+			BitSet[] joined = null;
+			for (int k = 0; k < frame.length; k++) {
+				BitSet added = (BitSet) stack[k].clone();
+				added.andNot(frame[k]);
+				if (added.isEmpty()) continue;
+				
+				if (joined == null) joined = frame.clone();
+				joined[k] = (BitSet) frame[k].clone();
+				joined[k].or(added);
+			}
+			if (joined == null) return 0;
+			frames[i] = joined;
+			return 1;
+		}
+		
+		/**
+		 * Computes the control dependences from the post-dominators.
+		 * The graph has an exit node after the returns, the throws, and
+		 * the calls that may throw, which also go to their handlers. The
+		 * instructions that never reach the exit go there, too.
+		 */
+		private void computeControlDependences() {
+			
+			int size = cfg.size();
+			int exit = size;
+			int[][] edges = new int[size][];
+			for (int i = 0; i < size; i++) {
+				int[] succ = cfg.getSuccessors(i);
+				int[] handlers = mayThrow(i) ? cfg.getHandlers(i) : new int[0];
+				boolean exits = mayThrow(i) || isReturn(cfg.get(i).getOpcode());
+				edges[i] = new int[succ.length + handlers.length + (exits ? 1 : 0)];
+				System.arraycopy(succ, 0, edges[i], 0, succ.length);
+				System.arraycopy(handlers, 0, edges[i], succ.length, handlers.length);
+				if (exits) edges[i][edges[i].length - 1] = exit;
+			}
+			
+			// Finds the instructions that reach the exit
+			BitSet reaching = new BitSet(size);
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				for (int i = size - 1; i >= 0; i--) {
+					if (reaching.get(i)) continue;
+					for (int e : edges[i]) {
+						if (e == exit || reaching.get(e)) {
+							reaching.set(i);
+							changed = true;
+							break;
+						}
+					}
+				}
+			}
+			for (int i = reaching.nextClearBit(0); i < size; i = reaching.nextClearBit(i + 1)) {
+				int[] e = new int[edges[i].length + 1];
+				System.arraycopy(edges[i], 0, e, 0, edges[i].length);
+				e[edges[i].length] = exit;
+				edges[i] = e;
+			}
+			
+			// Computes the post-dominators
+			BitSet[] pdom = new BitSet[size + 1];
+			pdom[exit] = new BitSet(size + 1);
+			pdom[exit].set(exit);
+			for (int i = 0; i < size; i++) {
+				pdom[i] = new BitSet(size + 1);
+				pdom[i].set(0, size + 1);
+			}
+			changed = true;
+			while (changed) {
+				changed = false;
+				for (int i = size - 1; i >= 0; i--) {
+					BitSet p = (BitSet) pdom[edges[i][0]].clone();
+					for (int k = 1; k < edges[i].length; k++)
+						p.and(pdom[edges[i][k]]);
+					p.set(i);
+					if (!p.equals(pdom[i])) {
+						pdom[i] = p;
+						changed = true;
+					}
+				}
+			}
+			
+			// An instruction depends on a branch if it post-dominates
+			// a successor but not the branch
+			cdeps = new BitSet[size];
+			for (int b = 0; b < size; b++) {
+				if (edges[b].length < 2) continue;
+				BitSet strict = (BitSet) pdom[b].clone();
+				strict.clear(b);
+				for (int e : edges[b]) {
+					BitSet dep = (BitSet) pdom[e].clone();
+					dep.andNot(strict);
+					for (int j = dep.nextSetBit(0); j >= 0 && j < size; j = dep.nextSetBit(j + 1)) {
+						if (cdeps[j] == null) cdeps[j] = new BitSet();
+						cdeps[j].set(b);
+					}
+				}
+			}
+		}
+	}
+}
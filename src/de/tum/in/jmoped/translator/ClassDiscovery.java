@@ -0,0 +1,319 @@
+package de.tum.in.jmoped.translator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.structures.CPInfo;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+import org.gjt.jclasslib.structures.MethodInfo;
+import org.gjt.jclasslib.structures.attributes.CodeAttribute;
+import org.gjt.jclasslib.structures.attributes.ExceptionTableEntry;
+import org.gjt.jclasslib.structures.constants.ConstantClassInfo;
+
+import de.tum.in.jmoped.translator.stub.StubManager;
+import de.tum.in.jmoped.underbone.LabelUtils;
+
+/**
+ * Discovers the classes that are statically reachable from a class.
+ * <p>
+ * Each class is read, parsed, and scanned for references by a task
+ * on a pool of worker threads. A task submits a new task for every
+ * referenced class that has not been scanned yet. The result is a map
+ * from class names to {@link ClassScan}s that lists the references of
+ * each class in the order they appear in the class file.
+ * <p>
+ * The discovery does not assign class ids. Ids are assigned afterwards
+ * by {@link Translator} by replaying the references depth-first,
+ * so that they do not depend on the scheduling of the tasks.
+ *
+ * @author suwimont
+ *
+ */
+class ClassDiscovery {
+
+	/**
+	 * The translator that requests the discovery.
+	 */
+	private Translator translator;
+	
+	/**
+	 * The number of worker threads.
+	 */
+	private int threads;
+	
+	/**
+	 * Maps class names, without the stub prefix, to their scans.
+	 */
+	private ConcurrentHashMap<String, ClassScan> scans
+			= new ConcurrentHashMap<String, ClassScan>();
+	
+	/**
+	 * The number of submitted tasks that have not finished.
+	 */
+	private AtomicInteger pending = new AtomicInteger();
+	
+	/**
+	 * Released when all tasks have finished.
+	 */
+	private CountDownLatch done = new CountDownLatch(1);
+	
+	/**
+	 * The worker threads.
+	 */
+	private ExecutorService executor;
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param translator the translator.
+	 * @param threads the number of worker threads.
+	 */
+	ClassDiscovery(Translator translator, int threads) {
+		this.translator = translator;
+		this.threads = Math.max(1, threads);
+	}
+	
+	/**
+	 * Scans all classes reachable from the class specified by
+	 * <code>className</code>.
+	 * 
+	 * @param className the class name.
+	 * @return the map from class names, without the stub prefix,
+	 * 		to their scans.
+	 */
+	ConcurrentHashMap<String, ClassScan> discover(String className) {
+		
+		executor = Executors.newFixedThreadPool(threads);
+		try {
+			submit(className);
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TranslatorError("Class discovery interrupted.");
+		} finally {
+			executor.shutdownNow();
+		}
+		return scans;
+	}
+	
+	/**
+	 * Submits a task that scans the class specified by <code>className</code>,
+	 * unless the class has been submitted before. A class referenced with
+	 * and without the stub prefix is scanned once.
+	 * 
+	 * @param ref the class name, possibly with the stub prefix.
+	 */
+	private void submit(String ref) {
+		
+		if (ref == null) return;
+		final String className = StubManager.removeStub(ref);
+		final ClassScan scan = new ClassScan();
+		if (scans.putIfAbsent(className, scan) != null) return;
+		
+		pending.incrementAndGet();
+		executor.execute(new Runnable() {
+			public void run() {
+				try {
+					scan(className, scan);
+				} catch (Throwable t) {
+					scan.error = t;
+				} finally {
+					if (pending.decrementAndGet() == 0)
+						done.countDown();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Reads, parses and scans the class specified by <code>className</code>.
+	 * The references are recorded in <code>scan</code> and submitted.
+	 * 
+	 * @param className the class name without the stub prefix.
+	 * @param scan the scan.
+	 * @throws IOException
+	 * @throws InvalidByteCodeException
+	 */
+	private void scan(String className, ClassScan scan)
+			throws IOException, InvalidByteCodeException {
+		
+		// Array types refer to their component arrays
+		if (className.startsWith("[")) {
+			if (className.charAt(1) == '[')
+				reference(scan, className.substring(1));
+			return;
+		}
+		
+		// Reads the stub, if any, or the class
+		ClassTranslator collection;
+		if (StubManager.hasStub(className)) {
+			collection = StubManager.createClassStub(0, className,
+					translator.getClassPathIndex());
+			scan.stub = true;
+		} else if (translator.isIgnored(className)) {
+			return;
+		} else {
+			collection = new ClassTranslator(0, TranslatorUtils.findClassFile(
+					translator.getClassPathIndex(), className));
+		}
+		scan.collection = collection;
+		
+		// Interfaces
+		String[] interfaces = collection.getInterfaces();
+		if (interfaces != null) {
+			for (int i = 0; i < interfaces.length; i++)
+				reference(scan, interfaces[i]);
+		}
+		
+		// Super class
+		reference(scan, collection.getSuperClassName());
+		
+		// Goes through all methods
+		ClassFile cf = collection.getClassFile();
+		MethodInfo[] methods = cf.getMethods();
+		if (methods == null) return;
+		CPInfo[] cp = cf.getConstantPool();
+		for (int i = 0; i < methods.length; i++) {
+			
+			// Includes all classes in parameters
+			List<String> params = LabelUtils.getParamTypes(methods[i].getDescriptor());
+			for (String param : params) {
+				if (param.startsWith("[")) {
+					reference(scan, param);
+					continue;
+				}
+				if (param.startsWith("L")) {
+					reference(scan, param.substring(1, param.length() - 1));
+					continue;
+				}
+			}
+			
+			// Finds code attribute
+			CodeAttribute code = (CodeAttribute) methods[i].findAttribute(CodeAttribute.class);
+			if (code == null) continue;
+			
+			// Creates new module maker
+			MethodTranslator module = new MethodTranslator(methods[i]);
+			collection.add(module);
+			
+			// Goes through exception table
+			ExceptionTableEntry[] etable = code.getExceptionTable();
+			if (etable != null) {
+				for (ExceptionTableEntry e : etable) {
+					ConstantClassInfo cci = (ConstantClassInfo) cp[e.getCatchType()];
+					if (cci == null) {
+						Translator.log("ConstantClassInfo at entry %d not found.%n",
+								e.getCatchType());
+						continue;
+					}
+					reference(scan, StubManager.removeStub(cci.getName()));
+				}
+			}
+			
+			// Goes through each instruction
+			for (AbstractInstruction ainst : module.ainstList) {
+				
+				String ref = null;
+				switch (ainst.getOpcode()) {
+				
+				case Opcodes.OPCODE_GETSTATIC:
+				case Opcodes.OPCODE_PUTSTATIC:
+				case Opcodes.OPCODE_INVOKEINTERFACE:
+				case Opcodes.OPCODE_INVOKESPECIAL:
+				case Opcodes.OPCODE_INVOKESTATIC:
+				case Opcodes.OPCODE_INVOKEVIRTUAL:
+					String[] refs = TranslatorUtils.getReferencedName(cp, ainst);
+					ref = refs[0];
+				
+				case Opcodes.OPCODE_ANEWARRAY:
+					if (ref == null)
+						ref = "[L" + TranslatorUtils.resolveClassName(cp, ainst) + ";";
+				
+				case Opcodes.OPCODE_CHECKCAST:
+				case Opcodes.OPCODE_INSTANCEOF:
+				case Opcodes.OPCODE_MULTIANEWARRAY:
+				case Opcodes.OPCODE_NEW:
+					if (ref == null) {
+						ref = TranslatorUtils.resolveClassName(cp, ainst);
+					}
+				
+				case Opcodes.OPCODE_NEWARRAY:
+					if (ref == null) {
+						ref = TranslatorUtils.getNewarrayType(ainst);
+					}
+					reference(scan, ref);
+					break;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Records the reference to <code>ref</code> and submits it.
+	 * 
+	 * @param scan the scan.
+	 * @param ref the referenced class name.
+	 */
+	private void reference(ClassScan scan, String ref) {
+		
+		if (ref == null) return;
+		scan.refs.add(ref);
+		submit(ref);
+	}
+	
+	/**
+	 * The result of scanning a class.
+	 */
+	static class ClassScan {
+		
+		/**
+		 * The class translator with a provisional id; or <code>null</code>
+		 * if the class is an array type or ignored.
+		 */
+		ClassTranslator collection;
+		
+		/**
+		 * <code>true</code> if the class translator is a stub.
+		 */
+		boolean stub;
+		
+		/**
+		 * The referenced class names, in the order of their occurrences.
+		 */
+		List<String> refs = new ArrayList<String>();
+		
+		/**
+		 * The error that occurred while scanning; or <code>null</code>.
+		 */
+		Throwable error;
+		
+		/**
+		 * Rethrows the error that occurred while scanning, if any.
+		 * 
+		 * @throws IOException
+		 * @throws InvalidByteCodeException
+		 */
+		void rethrow() throws IOException, InvalidByteCodeException {
+			
+			if (error == null) return;
+			if (error instanceof IOException)
+				throw (IOException) error;
+			if (error instanceof InvalidByteCodeException)
+				throw (InvalidByteCodeException) error;
+			if (error instanceof RuntimeException)
+				throw (RuntimeException) error;
+			if (error instanceof Error)
+				throw (Error) error;
+			throw new TranslatorError("%s", error);
+		}
+	}
+}
@@ -0,0 +1,417 @@
+package de.tum.in.jmoped.translator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.gjt.jclasslib.io.ClassFileReader;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+
+/**
+ * An index that maps internal class names to the directories or jar entries
+ * where their class files are found.
+ * <p>
+ * The index is built once by scanning the search paths, the class path,
+ * and the runtime jars, in this order. The first location of a class
+ * wins. Afterwards, each lookup is a single hash probe.
+ * <p>
+ * The entry lists of jar files can optionally be persisted to disk,
+ * keyed by the modification time and the size of each jar.
+ * <p>
+ * Class files in jar files are read through a {@link JarPool}, so that
+ * each jar is opened at most once until {@link #close()} is called.
+ *
+ * @author suwimont
+ *
+ */
+public class ClassPathIndex {
+
+	/**
+	 * Version of the cache file format.
+	 */
+	private static final int CACHE_VERSION = 1;
+	
+	/**
+	 * The paths that were indexed, in search order.
+	 */
+	private List<String> paths = new ArrayList<String>();
+	
+	/**
+	 * Maps internal class names to their locations.
+	 */
+	private HashMap<String, Location> index = new HashMap<String, Location>();
+	
+	/**
+	 * Jar entry lists loaded from the cache file: maps jar paths to entries.
+	 */
+	private HashMap<String, JarListing> cached = new HashMap<String, JarListing>();
+	
+	/**
+	 * Jar entry lists of this index: maps jar paths to entries.
+	 */
+	private HashMap<String, JarListing> listings = new HashMap<String, JarListing>();
+	
+	/**
+	 * The open jar files from which class files are read.
+	 */
+	private JarPool jars = new JarPool();
+	
+	/**
+	 * The translation cache through which class files are read;
+	 * or <code>null</code> if none.
+	 */
+	private TranslationCache cache;
+	
+	/**
+	 * Constructs the index of the given search paths, the class path,
+	 * and the runtime jars.
+	 * 
+	 * @param searchPaths the paths where class files are searched for.
+	 * @param cacheFile the file where jar listings are persisted;
+	 * 		or <code>null</code> if none.
+	 */
+	public ClassPathIndex(String[] searchPaths, File cacheFile) {
+		
+		// Joins the given search paths and the classpaths
+		if (searchPaths != null)
+			paths.addAll(Arrays.asList(searchPaths));
+		String[] classpaths = System.getProperty("java.class.path",".")
+				.split(System.getProperty("path.separator"));
+		if (classpaths != null)
+			paths.addAll(Arrays.asList(classpaths));
+		
+		if (cacheFile != null)
+			load(cacheFile);
+		
+		for (String path : paths) {
+			File f = new File(path);
+			// if path is a file, it must be a jar file
+			if (f.isFile())
+				addJar(f);
+			// if path is a folder
+			else if (f.isDirectory())
+				addDirectory(f, f, "");
+		}
+		
+		// Falls back to the runtime jars
+		for (File rtFile : getRuntimeJars()) {
+			if (rtFile.isFile()) {
+				Translator.log("\trt.jar: %s%n", rtFile.getAbsolutePath());
+				addJar(rtFile);
+			}
+		}
+		
+		if (cacheFile != null)
+			store(cacheFile);
+		Translator.info("Indexed %d classes%n", index.size());
+	}
+	
+	/**
+	 * Returns the runtime jars in the order they are searched.
+	 * 
+	 * @return the runtime jars.
+	 */
+	static File[] getRuntimeJars() {
+		String home = TranslatorUtils.JAVA_HOME;
+		return new File[] {
+				new File(home, File.separator + "jre"
+						+ File.separator + "lib" + File.separator + "rt.jar"),
+				new File(home, File.separator + "lib" + File.separator + "rt.jar"),
+				new File(home, File.separator + "Classes" + File.separator + "classes.jar")
+		};
+	}
+	
+	/**
+	 * Returns <code>true</code> if the class specified by <code>className</code>
+	 * is in this index.
+	 * 
+	 * @param className the internal class name, e.g. "java/util/List".
+	 * @return <code>true</code> iff the class is in this index.
+	 */
+	public boolean contains(String className) {
+		return index.containsKey(toInternalName(className));
+	}
+	
+	/**
+	 * Reads the class file of the class specified by <code>className</code>.
+	 * The method returns <code>null</code> if the class is not in this index.
+	 * 
+	 * @param className packages are expected to be separated by a '/'
+	 * or '.' , e.g. "java/util/StringTokenizer" or "java.util.StringTokenizer"
+	 * @return the class file; or <code>null</code> if not found.
+	 * @throws InvalidByteCodeException
+	 * @throws IOException
+	 */
+	public ClassFile findClassFile(String className)
+			throws InvalidByteCodeException, IOException {
+		
+		Location location = index.get(toInternalName(className));
+		if (location == null) return null;
+		
+		// Reads through the translation cache, if any
+		if (cache != null)
+			return cache.readClassFile(readBytes(location));
+		
+		if (location.entry == null)
+			return ClassFileReader.readFromFile(location.file);
+		return TranslatorUtils.readClassFile(jars.get(location.file), location.entry);
+	}
+	
+	/**
+	 * Sets the translation cache through which class files are read.
+	 * 
+	 * @param cache the translation cache; or <code>null</code> if none.
+	 */
+	public void setTranslationCache(TranslationCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Reads the bytes of the class file at <code>location</code>.
+	 * 
+	 * @param location the location.
+	 * @return the bytes.
+	 * @throws IOException
+	 */
+	private byte[] readBytes(Location location) throws IOException {
+		
+		InputStream in;
+		if (location.entry == null) {
+			in = new FileInputStream(location.file);
+		} else {
+			JarFile jar = jars.get(location.file);
+			in = jar.getInputStream(jar.getJarEntry(location.entry));
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			for (int n; (n = in.read(buf)) > 0; )
+				out.write(buf, 0, n);
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Closes all jar files opened by this index. Class files can still be
+	 * read afterwards; the jar files are then reopened on demand.
+	 */
+	public void close() {
+		jars.close();
+	}
+	
+	/**
+	 * Returns the indexed paths.
+	 * 
+	 * @return the indexed paths.
+	 */
+	public List<String> getPaths() {
+		return paths;
+	}
+	
+	/**
+	 * Returns the number of indexed classes.
+	 * 
+	 * @return the number of indexed classes.
+	 */
+	public int size() {
+		return index.size();
+	}
+	
+	/**
+	 * Returns the internal names of the indexed classes.
+	 * 
+	 * @return the class names.
+	 */
+	Set<String> getClassNames() {
+		return index.keySet();
+	}
+	
+	private static String toInternalName(String className) {
+		return className.replace('.', '/');
+	}
+	
+	/**
+	 * Recursively adds all class files under <code>dir</code>.
+	 * 
+	 * @param root the class path directory.
+	 * @param dir the current directory.
+	 * @param prefix the package prefix of <code>dir</code>.
+	 */
+	private void addDirectory(File root, File dir, String prefix) {
+		
+		File[] files = dir.listFiles();
+		if (files == null) return;
+		for (File f : files) {
+			String name = f.getName();
+			if (f.isDirectory()) {
+				addDirectory(root, f, prefix + name + "/");
+			} else if (name.endsWith(".class")) {
+				String className = prefix + name.substring(0, name.length() - 6);
+				if (!index.containsKey(className))
+					index.put(className, new Location(f, null));
+			}
+		}
+	}
+	
+	/**
+	 * Adds all class files in the jar file <code>f</code>.
+	 * The listing is taken from the cache if the jar has not changed.
+	 * 
+	 * @param f the jar file.
+	 */
+	private void addJar(File f) {
+		
+		String path = f.getAbsolutePath();
+		if (listings.containsKey(path)) return;
+		
+		JarListing listing = cached.get(path);
+		if (listing == null || listing.modified != f.lastModified()
+				|| listing.length != f.length()) {
+			try {
+				listing = new JarListing(f);
+			} catch (IOException e) {
+				Translator.log("\tCannot read jar %s: %s%n", path, e);
+				return;
+			}
+		}
+		listings.put(path, listing);
+		
+		for (String entry : listing.entries) {
+			String className = entry.substring(0, entry.length() - 6);
+			if (!index.containsKey(className))
+				index.put(className, new Location(f, entry));
+		}
+	}
+	
+	/**
+	 * Loads jar listings from the cache file.
+	 * A missing or corrupted cache is ignored.
+	 * 
+	 * @param cacheFile the cache file.
+	 */
+	private void load(File cacheFile) {
+		
+		if (!cacheFile.isFile()) return;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(cacheFile)));
+			if (in.readInt() != CACHE_VERSION) return;
+			int jars = in.readInt();
+			for (int i = 0; i < jars; i++) {
+				String path = in.readUTF();
+				JarListing listing = new JarListing(in.readLong(), in.readLong());
+				int n = in.readInt();
+				for (int j = 0; j < n; j++)
+					listing.entries.add(in.readUTF());
+				cached.put(path, listing);
+			}
+		} catch (IOException e) {
+			Translator.log("\tIgnoring class index cache %s: %s%n", cacheFile, e);
+			cached.clear();
+		} finally {
+			close(in);
+		}
+	}
+	
+	/**
+	 * Stores the jar listings of this index to the cache file.
+	 * 
+	 * @param cacheFile the cache file.
+	 */
+	private void store(File cacheFile) {
+		
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(cacheFile)));
+			out.writeInt(CACHE_VERSION);
+			out.writeInt(listings.size());
+			for (String path : listings.keySet()) {
+				JarListing listing = listings.get(path);
+				out.writeUTF(path);
+				out.writeLong(listing.modified);
+				out.writeLong(listing.length);
+				out.writeInt(listing.entries.size());
+				for (String entry : listing.entries)
+					out.writeUTF(entry);
+			}
+		} catch (IOException e) {
+			Translator.log("\tCannot write class index cache %s: %s%n", cacheFile, e);
+		} finally {
+			close(out);
+		}
+	}
+	
+	private static void close(java.io.Closeable c) {
+		if (c == null) return;
+		try {
+			c.close();
+		} catch (IOException e) {
+			// Falls through
+		}
+	}
+	
+	/**
+	 * The location of a class file: either a file in a directory
+	 * (<code>entry</code> is <code>null</code>) or an entry in a jar file.
+	 */
+	private static class Location {
+		
+		File file;
+		String entry;
+		
+		Location(File file, String entry) {
+			this.file = file;
+			this.entry = entry;
+		}
+	}
+	
+	/**
+	 * The class file entries of a jar file.
+	 */
+	private static class JarListing {
+		
+		long modified;
+		long length;
+		List<String> entries = new ArrayList<String>();
+		
+		JarListing(long modified, long length) {
+			this.modified = modified;
+			this.length = length;
+		}
+		
+		JarListing(File f) throws IOException {
+			this(f.lastModified(), f.length());
+			JarFile jar = new JarFile(f);
+			try {
+				Enumeration<JarEntry> e = jar.entries();
+				while (e.hasMoreElements()) {
+					String name = e.nextElement().getName();
+					if (name.endsWith(".class"))
+						entries.add(name);
+				}
+			} finally {
+				jar.close();
+			}
+		}
+	}
+}
@@ -3,6 +3,7 @@ package de.tum.in.jmoped.translator;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.gjt.jclasslib.structures.AccessFlags;
@@ -26,6 +27,11 @@ public class ClassTranslator {
 	 */
 	private int id;
 	
+	/**
+	 * The maximum id of the descendants of this class.
+	 */
+	private int maxDescendantId;
+	
 	/**
 	 * The class name.
 	 */
@@ -70,6 +76,12 @@ public class ClassTranslator {
 	 */
 	protected String[] interfaces;
 	
+	/**
+	 * The names of the classes this class refers to, in the order of their 
+	 * occurrences; or <code>null</code> if unknown.
+	 */
+	List<String> references;
+	
 	public ClassTranslator(int id, String name) {
 		this.id = id;
 		this.name = name;
@@ -133,7 +145,9 @@ public class ClassTranslator {
 	
 	/**
 	 * Returns the id of this collection. Each method collection has a unique
-	 * id. The starting class must have id one.
+	 * id. The ids are numbered by a preorder walk of the class hierarchy,
+	 * so the ids of this class and its descendants form the range
+	 * from {@link #getId()} to {@link #getMaxDescendantId()}.
 	 * 
 	 * @return the id of this collection.
 	 */
@@ -141,6 +155,28 @@ public class ClassTranslator {
 		return id;
 	}
 	
+	/**
+	 * Sets the id of this collection.
+	 * 
+	 * @param id the id.
+	 */
+	void setId(int id) {
+		this.id = id;
+	}
+	
+	/**
+	 * Returns the maximum id of this class and its descendants.
+	 * 
+	 * @return the maximum descendant id.
+	 */
+	public int getMaxDescendantId() {
+		return maxDescendantId;
+	}
+	
+	void setMaxDescendantId(int maxDescendantId) {
+		this.maxDescendantId = maxDescendantId;
+	}
+	
 	/**
 	 * Returns the underlying class file of this class translator. 
 	 * 
@@ -229,6 +265,15 @@ public class ClassTranslator {
 		return staticFields.values();
 	}
 	
+	/**
+	 * Returns the set of instance fields of this collection.
+	 * 
+	 * @return the set of instance field translators.
+	 */
+	public Collection<FieldTranslator> getInstanceFields() {
+		return instanceFields.values();
+	}
+	
 	/**
 	 * Returns the module makers of this collection.
 	 * 
@@ -291,7 +336,13 @@ public class ClassTranslator {
 		}
 	}
 	
-	public HashSet<ClassTranslator> getDescendantClasses() {
+	/**
+	 * Returns this class and all its subclasses.
+	 * The set is computed once and cached; the method is thread-safe.
+	 * 
+	 * @return the set of descendant classes.
+	 */
+	public synchronized HashSet<ClassTranslator> getDescendantClasses() {
 		if (allSubClasses != null)
 			return allSubClasses;
 		
@@ -311,12 +362,17 @@ public class ClassTranslator {
 	
 	/**
 	 * Returns the size of this collection.
-	 * Size is defined as the number of non-static fields in the collection.
+	 * Size is defined as the number of heap cells of the non-static fields
+	 * in the collection, i.e. their largest id. Fields without cells have
+	 * id zero.
 	 * 
 	 * @return the size of this collection.
 	 */
 	public int size() {
-		return instanceFields.size();
+		int size = 0;
+		for (FieldTranslator field : instanceFields.values())
+			size = Math.max(size, field.getId());
+		return size;
 	}
 	
 	/**
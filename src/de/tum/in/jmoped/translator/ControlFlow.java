@@ -0,0 +1,594 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.BranchInstruction;
+import org.gjt.jclasslib.bytecode.LookupSwitchInstruction;
+import org.gjt.jclasslib.bytecode.MatchOffsetPair;
+import org.gjt.jclasslib.bytecode.MultianewarrayInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.bytecode.TableSwitchInstruction;
+import org.gjt.jclasslib.structures.CPInfo;
+import org.gjt.jclasslib.structures.attributes.ExceptionTableEntry;
+
+/**
+ * The control flow graph of the bytecode instructions of a method,
+ * for the dataflow analyses that feed {@link MethodTranslator}.
+ * <p>
+ * Instructions are identified by their indices in the instruction list.
+ * The graph has an edge from each instruction to its normal successors,
+ * and from each instruction in the range of an exception handler to
+ * the handler. It also knows the number of stack slots each instruction
+ * pops and pushes, where values of category two take two slots.
+ *
+ * @author suwimont
+ *
+ */
+class ControlFlow {
+
+	/**
+	 * The instructions.
+	 */
+	private List<AbstractInstruction> ainstList;
+	
+	/**
+	 * The constant pool.
+	 */
+	private CPInfo[] cp;
+	
+	/**
+	 * The bytecode offsets of the instructions.
+	 */
+	private int[] offsets;
+	
+	/**
+	 * The normal successors of the instructions.
+	 */
+	private int[][] successors;
+	
+	/**
+	 * The exception handlers of the instructions.
+	 */
+	private int[][] handlers;
+	
+	/**
+	 * <code>true</code> if the method has subroutines.
+	 */
+	private boolean subroutines = false;
+	
+	/**
+	 * The empty array.
+	 */
+	private static final int[] NONE = new int[0];
+	
+	/**
+	 * Builds the control flow graph of <code>method</code>.
+	 * 
+	 * @param method the method translator.
+	 */
+	ControlFlow(MethodTranslator method) {
+		
+		ainstList = method.ainstList;
+		cp = method.method.getClassFile().getConstantPool();
+		int size = ainstList.size();
+		offsets = new int[size];
+		for (int i = 0; i < size; i++)
+			offsets[i] = ainstList.get(i).getOffset();
+		
+		successors = new int[size][];
+		for (int i = 0; i < size; i++)
+			successors[i] = computeSuccessors(i);
+		
+		handlers = new int[size][];
+		ExceptionTableEntry[] etable = method.codeAttr.getExceptionTable();
+		for (int i = 0; i < size; i++) {
+			handlers[i] = NONE;
+			if (etable == null) continue;
+			for (ExceptionTableEntry e : etable) {
+				if (offsets[i] < e.getStartPc() || offsets[i] >= e.getEndPc())
+					continue;
+				int[] h = Arrays.copyOf(handlers[i], handlers[i].length + 1);
+				h[h.length - 1] = indexOf(e.getHandlerPc());
+				handlers[i] = h;
+			}
+		}
+	}
+	
+	private int[] computeSuccessors(int i) {
+		
+		AbstractInstruction ainst = ainstList.get(i);
+		int offset = ainst.getOffset();
+		switch (ainst.getOpcode()) {
+		
+		case Opcodes.OPCODE_GOTO:
+		case Opcodes.OPCODE_GOTO_W:
+			return new int[] { indexOf(offset + ((BranchInstruction) ainst).getBranchOffset()) };
+		
+		case Opcodes.OPCODE_IF_ACMPEQ:
+		case Opcodes.OPCODE_IF_ACMPNE:
+		case Opcodes.OPCODE_IF_ICMPEQ:
+		case Opcodes.OPCODE_IF_ICMPNE:
+		case Opcodes.OPCODE_IF_ICMPLT:
+		case Opcodes.OPCODE_IF_ICMPGE:
+		case Opcodes.OPCODE_IF_ICMPGT:
+		case Opcodes.OPCODE_IF_ICMPLE:
+		case Opcodes.OPCODE_IFEQ:
+		case Opcodes.OPCODE_IFNE:
+		case Opcodes.OPCODE_IFLT:
+		case Opcodes.OPCODE_IFGE:
+		case Opcodes.OPCODE_IFGT:
+		case Opcodes.OPCODE_IFLE:
+		case Opcodes.OPCODE_IFNONNULL:
+		case Opcodes.OPCODE_IFNULL:
+			return new int[] { i + 1,
+					indexOf(offset + ((BranchInstruction) ainst).getBranchOffset()) };
+		
+		case Opcodes.OPCODE_LOOKUPSWITCH: {
+			LookupSwitchInstruction inst = (LookupSwitchInstruction) ainst;
+			@SuppressWarnings("unchecked")
+			List<MatchOffsetPair> pairs = inst.getMatchOffsetPairs();
+			int[] succ = new int[pairs.size() + 1];
+			succ[0] = indexOf(offset + inst.getDefaultOffset());
+			for (int j = 0; j < pairs.size(); j++)
+				succ[j + 1] = indexOf(offset + pairs.get(j).getOffset());
+			return succ;
+		}
+		
+		case Opcodes.OPCODE_TABLESWITCH: {
+			TableSwitchInstruction inst = (TableSwitchInstruction) ainst;
+			int[] jumpOffsets = inst.getJumpOffsets();
+			int[] succ = new int[jumpOffsets.length + 1];
+			succ[0] = indexOf(offset + inst.getDefaultOffset());
+			for (int j = 0; j < jumpOffsets.length; j++)
+				succ[j + 1] = indexOf(offset + jumpOffsets[j]);
+			return succ;
+		}
+		
+		case Opcodes.OPCODE_JSR:
+		case Opcodes.OPCODE_JSR_W:
+		case Opcodes.OPCODE_RET:
+			subroutines = true;
+			return NONE;
+		
+		case Opcodes.OPCODE_ATHROW:
+		case Opcodes.OPCODE_RETURN:
+		case Opcodes.OPCODE_ARETURN:
+		case Opcodes.OPCODE_DRETURN:
+		case Opcodes.OPCODE_FRETURN:
+		case Opcodes.OPCODE_IRETURN:
+		case Opcodes.OPCODE_LRETURN:
+			return NONE;
+		
+		default:
+			return (i + 1 < ainstList.size()) ? new int[] { i + 1 } : NONE;
+		}
+	}
+	
+	/**
+	 * Returns the number of instructions.
+	 * 
+	 * @return the number of instructions.
+	 */
+	int size() {
+		return ainstList.size();
+	}
+	
+	/**
+	 * Returns the instruction at index <code>i</code>.
+	 * 
+	 * @param i the instruction index.
+	 * @return the instruction.
+	 */
+	AbstractInstruction get(int i) {
+		return ainstList.get(i);
+	}
+	
+	/**
+	 * Returns the constant pool of the method.
+	 * 
+	 * @return the constant pool.
+	 */
+	CPInfo[] getConstantPool() {
+		return cp;
+	}
+	
+	/**
+	 * Returns the index of the instruction at <code>offset</code>.
+	 * 
+	 * @param offset the bytecode offset.
+	 * @return the instruction index.
+	 */
+	int indexOf(int offset) {
+		
+		int i = Arrays.binarySearch(offsets, offset);
+		if (i < 0)
+			throw new TranslatorError("No instruction at offset %d", offset);
+		return i;
+	}
+	
+	/**
+	 * Returns the indices of the normal successors of the instruction
+	 * at index <code>i</code>. For a conditional branch, the first
+	 * successor is the next instruction.
+	 * 
+	 * @param i the instruction index.
+	 * @return the successor indices.
+	 */
+	int[] getSuccessors(int i) {
+		return successors[i];
+	}
+	
+	/**
+	 * Returns the indices of the exception handlers whose ranges cover
+	 * the instruction at index <code>i</code>.
+	 * 
+	 * @param i the instruction index.
+	 * @return the handler indices.
+	 */
+	int[] getHandlers(int i) {
+		return handlers[i];
+	}
+	
+	/**
+	 * Returns <code>true</code> if the method contains <code>jsr</code> or
+	 * <code>ret</code>. The graph has no edges for subroutines, so analyses
+	 * must not rely on it in that case.
+	 * 
+	 * @return <code>true</code> if the method has subroutines.
+	 */
+	boolean hasSubroutines() {
+		return subroutines;
+	}
+	
+	/**
+	 * Returns the number of stack slots popped by the instruction
+	 * at index <code>i</code>.
+	 * 
+	 * @param i the instruction index.
+	 * @return the number of popped slots.
+	 */
+	int pops(int i) {
+		
+		AbstractInstruction ainst = ainstList.get(i);
+		switch (ainst.getOpcode()) {
+		
+		case Opcodes.OPCODE_POP:
+		case Opcodes.OPCODE_DUP:
+		case Opcodes.OPCODE_INEG:
+		case Opcodes.OPCODE_FNEG:
+		case Opcodes.OPCODE_I2L:
+		case Opcodes.OPCODE_I2F:
+		case Opcodes.OPCODE_I2D:
+		case Opcodes.OPCODE_I2B:
+		case Opcodes.OPCODE_I2C:
+		case Opcodes.OPCODE_I2S:
+		case Opcodes.OPCODE_F2I:
+		case Opcodes.OPCODE_F2L:
+		case Opcodes.OPCODE_F2D:
+		case Opcodes.OPCODE_IFEQ:
+		case Opcodes.OPCODE_IFNE:
+		case Opcodes.OPCODE_IFLT:
+		case Opcodes.OPCODE_IFGE:
+		case Opcodes.OPCODE_IFGT:
+		case Opcodes.OPCODE_IFLE:
+		case Opcodes.OPCODE_IFNONNULL:
+		case Opcodes.OPCODE_IFNULL:
+		case Opcodes.OPCODE_TABLESWITCH:
+		case Opcodes.OPCODE_LOOKUPSWITCH:
+		case Opcodes.OPCODE_IRETURN:
+		case Opcodes.OPCODE_FRETURN:
+		case Opcodes.OPCODE_ARETURN:
+		case Opcodes.OPCODE_ISTORE:
+		case Opcodes.OPCODE_ISTORE_0:
+		case Opcodes.OPCODE_ISTORE_1:
+		case Opcodes.OPCODE_ISTORE_2:
+		case Opcodes.OPCODE_ISTORE_3:
+		case Opcodes.OPCODE_FSTORE:
+		case Opcodes.OPCODE_FSTORE_0:
+		case Opcodes.OPCODE_FSTORE_1:
+		case Opcodes.OPCODE_FSTORE_2:
+		case Opcodes.OPCODE_FSTORE_3:
+		case Opcodes.OPCODE_ASTORE:
+		case Opcodes.OPCODE_ASTORE_0:
+		case Opcodes.OPCODE_ASTORE_1:
+		case Opcodes.OPCODE_ASTORE_2:
+		case Opcodes.OPCODE_ASTORE_3:
+		case Opcodes.OPCODE_GETFIELD:
+		case Opcodes.OPCODE_NEWARRAY:
+		case Opcodes.OPCODE_ANEWARRAY:
+		case Opcodes.OPCODE_ARRAYLENGTH:
+		case Opcodes.OPCODE_ATHROW:
+		case Opcodes.OPCODE_CHECKCAST:
+		case Opcodes.OPCODE_INSTANCEOF:
+		case Opcodes.OPCODE_MONITORENTER:
+		case Opcodes.OPCODE_MONITOREXIT:
+			return 1;
+		
+		case Opcodes.OPCODE_POP2:
+		case Opcodes.OPCODE_DUP_X1:
+		case Opcodes.OPCODE_DUP2:
+		case Opcodes.OPCODE_SWAP:
+		case Opcodes.OPCODE_IADD:
+		case Opcodes.OPCODE_ISUB:
+		case Opcodes.OPCODE_IMUL:
+		case Opcodes.OPCODE_IDIV:
+		case Opcodes.OPCODE_IREM:
+		case Opcodes.OPCODE_ISHL:
+		case Opcodes.OPCODE_ISHR:
+		case Opcodes.OPCODE_IUSHR:
+		case Opcodes.OPCODE_IAND:
+		case Opcodes.OPCODE_IOR:
+		case Opcodes.OPCODE_IXOR:
+		case Opcodes.OPCODE_FADD:
+		case Opcodes.OPCODE_FSUB:
+		case Opcodes.OPCODE_FMUL:
+		case Opcodes.OPCODE_FDIV:
+		case Opcodes.OPCODE_FREM:
+		case Opcodes.OPCODE_FCMPL:
+		case Opcodes.OPCODE_FCMPG:
+		case Opcodes.OPCODE_LNEG:
+		case Opcodes.OPCODE_DNEG:
+		case Opcodes.OPCODE_L2I:
+		case Opcodes.OPCODE_L2F:
+		case Opcodes.OPCODE_L2D:
+		case Opcodes.OPCODE_D2I:
+		case Opcodes.OPCODE_D2L:
+		case Opcodes.OPCODE_D2F:
+		case Opcodes.OPCODE_IF_ACMPEQ:
+		case Opcodes.OPCODE_IF_ACMPNE:
+		case Opcodes.OPCODE_IF_ICMPEQ:
+		case Opcodes.OPCODE_IF_ICMPNE:
+		case Opcodes.OPCODE_IF_ICMPLT:
+		case Opcodes.OPCODE_IF_ICMPGE:
+		case Opcodes.OPCODE_IF_ICMPGT:
+		case Opcodes.OPCODE_IF_ICMPLE:
+		case Opcodes.OPCODE_LRETURN:
+		case Opcodes.OPCODE_DRETURN:
+		case Opcodes.OPCODE_LSTORE:
+		case Opcodes.OPCODE_LSTORE_0:
+		case Opcodes.OPCODE_LSTORE_1:
+		case Opcodes.OPCODE_LSTORE_2:
+		case Opcodes.OPCODE_LSTORE_3:
+		case Opcodes.OPCODE_DSTORE:
+		case Opcodes.OPCODE_DSTORE_0:
+		case Opcodes.OPCODE_DSTORE_1:
+		case Opcodes.OPCODE_DSTORE_2:
+		case Opcodes.OPCODE_DSTORE_3:
+		case Opcodes.OPCODE_IALOAD:
+		case Opcodes.OPCODE_LALOAD:
+		case Opcodes.OPCODE_FALOAD:
+		case Opcodes.OPCODE_DALOAD:
+		case Opcodes.OPCODE_AALOAD:
+		case Opcodes.OPCODE_BALOAD:
+		case Opcodes.OPCODE_CALOAD:
+		case Opcodes.OPCODE_SALOAD:
+			return 2;
+		
+		case Opcodes.OPCODE_DUP_X2:
+		case Opcodes.OPCODE_DUP2_X1:
+		case Opcodes.OPCODE_LSHL:
+		case Opcodes.OPCODE_LSHR:
+		case Opcodes.OPCODE_LUSHR:
+		case Opcodes.OPCODE_IASTORE:
+		case Opcodes.OPCODE_FASTORE:
+		case Opcodes.OPCODE_AASTORE:
+		case Opcodes.OPCODE_BASTORE:
+		case Opcodes.OPCODE_CASTORE:
+		case Opcodes.OPCODE_SASTORE:
+			return 3;
+		
+		case Opcodes.OPCODE_DUP2_X2:
+		case Opcodes.OPCODE_LADD:
+		case Opcodes.OPCODE_LSUB:
+		case Opcodes.OPCODE_LMUL:
+		case Opcodes.OPCODE_LDIV:
+		case Opcodes.OPCODE_LREM:
+		case Opcodes.OPCODE_LAND:
+		case Opcodes.OPCODE_LOR:
+		case Opcodes.OPCODE_LXOR:
+		case Opcodes.OPCODE_DADD:
+		case Opcodes.OPCODE_DSUB:
+		case Opcodes.OPCODE_DMUL:
+		case Opcodes.OPCODE_DDIV:
+		case Opcodes.OPCODE_DREM:
+		case Opcodes.OPCODE_LCMP:
+		case Opcodes.OPCODE_DCMPL:
+		case Opcodes.OPCODE_DCMPG:
+		case Opcodes.OPCODE_LASTORE:
+		case Opcodes.OPCODE_DASTORE:
+			return 4;
+		
+		case Opcodes.OPCODE_PUTSTATIC:
+			return fieldCategory(ainst);
+		
+		case Opcodes.OPCODE_PUTFIELD:
+			return fieldCategory(ainst) + 1;
+		
+		case Opcodes.OPCODE_INVOKESTATIC:
+			return TranslatorUtils.countParams(TranslatorUtils.getReferencedName(cp, ainst)[2]);
+		
+		case Opcodes.OPCODE_INVOKEVIRTUAL:
+		case Opcodes.OPCODE_INVOKESPECIAL:
+		case Opcodes.OPCODE_INVOKEINTERFACE:
+			return TranslatorUtils.countParams(TranslatorUtils.getReferencedName(cp, ainst)[2]) + 1;
+		
+		case Opcodes.OPCODE_MULTIANEWARRAY:
+			return ((MultianewarrayInstruction) ainst).getDimensions();
+		
+		default:
+			return 0;
+		}
+	}
+	
+	/**
+	 * Returns the number of stack slots pushed by the instruction
+	 * at index <code>i</code>.
+	 * 
+	 * @param i the instruction index.
+	 * @return the number of pushed slots.
+	 */
+	int pushes(int i) {
+		
+		AbstractInstruction ainst = ainstList.get(i);
+		switch (ainst.getOpcode()) {
+		
+		case Opcodes.OPCODE_ACONST_NULL:
+		case Opcodes.OPCODE_ICONST_M1:
+		case Opcodes.OPCODE_ICONST_0:
+		case Opcodes.OPCODE_ICONST_1:
+		case Opcodes.OPCODE_ICONST_2:
+		case Opcodes.OPCODE_ICONST_3:
+		case Opcodes.OPCODE_ICONST_4:
+		case Opcodes.OPCODE_ICONST_5:
+		case Opcodes.OPCODE_FCONST_0:
+		case Opcodes.OPCODE_FCONST_1:
+		case Opcodes.OPCODE_FCONST_2:
+		case Opcodes.OPCODE_BIPUSH:
+		case Opcodes.OPCODE_SIPUSH:
+		case Opcodes.OPCODE_LDC:
+		case Opcodes.OPCODE_LDC_W:
+		case Opcodes.OPCODE_ILOAD:
+		case Opcodes.OPCODE_ILOAD_0:
+		case Opcodes.OPCODE_ILOAD_1:
+		case Opcodes.OPCODE_ILOAD_2:
+		case Opcodes.OPCODE_ILOAD_3:
+		case Opcodes.OPCODE_FLOAD:
+		case Opcodes.OPCODE_FLOAD_0:
+		case Opcodes.OPCODE_FLOAD_1:
+		case Opcodes.OPCODE_FLOAD_2:
+		case Opcodes.OPCODE_FLOAD_3:
+		case Opcodes.OPCODE_ALOAD:
+		case Opcodes.OPCODE_ALOAD_0:
+		case Opcodes.OPCODE_ALOAD_1:
+		case Opcodes.OPCODE_ALOAD_2:
+		case Opcodes.OPCODE_ALOAD_3:
+		case Opcodes.OPCODE_IALOAD:
+		case Opcodes.OPCODE_FALOAD:
+		case Opcodes.OPCODE_AALOAD:
+		case Opcodes.OPCODE_BALOAD:
+		case Opcodes.OPCODE_CALOAD:
+		case Opcodes.OPCODE_SALOAD:
+		case Opcodes.OPCODE_IADD:
+		case Opcodes.OPCODE_ISUB:
+		case Opcodes.OPCODE_IMUL:
+		case Opcodes.OPCODE_IDIV:
+		case Opcodes.OPCODE_IREM:
+		case Opcodes.OPCODE_ISHL:
+		case Opcodes.OPCODE_ISHR:
+		case Opcodes.OPCODE_IUSHR:
+		case Opcodes.OPCODE_IAND:
+		case Opcodes.OPCODE_IOR:
+		case Opcodes.OPCODE_IXOR:
+		case Opcodes.OPCODE_FADD:
+		case Opcodes.OPCODE_FSUB:
+		case Opcodes.OPCODE_FMUL:
+		case Opcodes.OPCODE_FDIV:
+		case Opcodes.OPCODE_FREM:
+		case Opcodes.OPCODE_INEG:
+		case Opcodes.OPCODE_FNEG:
+		case Opcodes.OPCODE_I2F:
+		case Opcodes.OPCODE_I2B:
+		case Opcodes.OPCODE_I2C:
+		case Opcodes.OPCODE_I2S:
+		case Opcodes.OPCODE_F2I:
+		case Opcodes.OPCODE_L2I:
+		case Opcodes.OPCODE_L2F:
+		case Opcodes.OPCODE_D2I:
+		case Opcodes.OPCODE_D2F:
+		case Opcodes.OPCODE_LCMP:
+		case Opcodes.OPCODE_FCMPL:
+		case Opcodes.OPCODE_FCMPG:
+		case Opcodes.OPCODE_DCMPL:
+		case Opcodes.OPCODE_DCMPG:
+		case Opcodes.OPCODE_JSR:
+		case Opcodes.OPCODE_JSR_W:
+		case Opcodes.OPCODE_NEW:
+		case Opcodes.OPCODE_NEWARRAY:
+		case Opcodes.OPCODE_ANEWARRAY:
+		case Opcodes.OPCODE_MULTIANEWARRAY:
+		case Opcodes.OPCODE_ARRAYLENGTH:
+		case Opcodes.OPCODE_CHECKCAST:
+		case Opcodes.OPCODE_INSTANCEOF:
+			return 1;
+		
+		case Opcodes.OPCODE_LCONST_0:
+		case Opcodes.OPCODE_LCONST_1:
+		case Opcodes.OPCODE_DCONST_0:
+		case Opcodes.OPCODE_DCONST_1:
+		case Opcodes.OPCODE_LDC2_W:
+		case Opcodes.OPCODE_LLOAD:
+		case Opcodes.OPCODE_LLOAD_0:
+		case Opcodes.OPCODE_LLOAD_1:
+		case Opcodes.OPCODE_LLOAD_2:
+		case Opcodes.OPCODE_LLOAD_3:
+		case Opcodes.OPCODE_DLOAD:
+		case Opcodes.OPCODE_DLOAD_0:
+		case Opcodes.OPCODE_DLOAD_1:
+		case Opcodes.OPCODE_DLOAD_2:
+		case Opcodes.OPCODE_DLOAD_3:
+		case Opcodes.OPCODE_LALOAD:
+		case Opcodes.OPCODE_DALOAD:
+		case Opcodes.OPCODE_DUP:
+		case Opcodes.OPCODE_SWAP:
+		case Opcodes.OPCODE_LADD:
+		case Opcodes.OPCODE_LSUB:
+		case Opcodes.OPCODE_LMUL:
+		case Opcodes.OPCODE_LDIV:
+		case Opcodes.OPCODE_LREM:
+		case Opcodes.OPCODE_LSHL:
+		case Opcodes.OPCODE_LSHR:
+		case Opcodes.OPCODE_LUSHR:
+		case Opcodes.OPCODE_LAND:
+		case Opcodes.OPCODE_LOR:
+		case Opcodes.OPCODE_LXOR:
+		case Opcodes.OPCODE_DADD:
+		case Opcodes.OPCODE_DSUB:
+		case Opcodes.OPCODE_DMUL:
+		case Opcodes.OPCODE_DDIV:
+		case Opcodes.OPCODE_DREM:
+		case Opcodes.OPCODE_LNEG:
+		case Opcodes.OPCODE_DNEG:
+		case Opcodes.OPCODE_I2L:
+		case Opcodes.OPCODE_I2D:
+		case Opcodes.OPCODE_F2L:
+		case Opcodes.OPCODE_F2D:
+		case Opcodes.OPCODE_L2D:
+		case Opcodes.OPCODE_D2L:
+			return 2;
+		
+		case Opcodes.OPCODE_DUP_X1:
+			return 3;
+		
+		case Opcodes.OPCODE_DUP_X2:
+		case Opcodes.OPCODE_DUP2:
+			return 4;
+		
+		case Opcodes.OPCODE_DUP2_X1:
+			return 5;
+		
+		case Opcodes.OPCODE_DUP2_X2:
+			return 6;
+		
+		case Opcodes.OPCODE_GETSTATIC:
+		case Opcodes.OPCODE_GETFIELD:
+			return fieldCategory(ainst);
+		
+		case Opcodes.OPCODE_INVOKESTATIC:
+		case Opcodes.OPCODE_INVOKEVIRTUAL:
+		case Opcodes.OPCODE_INVOKESPECIAL:
+		case Opcodes.OPCODE_INVOKEINTERFACE:
+			return TranslatorUtils.getReturnCategory(
+					TranslatorUtils.getReferencedName(cp, ainst)[2]).intValue();
+		
+		default:
+			return 0;
+		}
+	}
+	
+	private int fieldCategory(AbstractInstruction ainst) {
+		return TranslatorUtils.getCategory(
+				TranslatorUtils.getReferencedName(cp, ainst)[2]).intValue();
+	}
+}
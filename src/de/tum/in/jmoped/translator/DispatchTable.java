@@ -0,0 +1,199 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.tum.in.jmoped.translator.stub.Bypasser;
+
+/**
+ * A table of resolved virtual and interface calls.
+ * <p>
+ * For a static receiver class and a method signature, the table holds the
+ * classes whose implementation may be invoked, together with the ids of
+ * the receiver classes that select them. Each entry is resolved once per
+ * translation, on first use, so that call sites of the same method
+ * resolve by lookup.
+ * <p>
+ * Targets are ordered by the ids of their receiver classes.
+ * The table is thread-safe.
+ *
+ * @author suwimont
+ *
+ */
+class DispatchTable {
+
+	/**
+	 * The translator.
+	 */
+	private Translator translator;
+	
+	/**
+	 * Maps formatted method names to resolved virtual calls.
+	 */
+	private ConcurrentHashMap<String, List<Target>> virtuals
+			= new ConcurrentHashMap<String, List<Target>>();
+	
+	/**
+	 * Maps formatted method names to resolved interface calls.
+	 */
+	private ConcurrentHashMap<String, List<Target>> interfaces
+			= new ConcurrentHashMap<String, List<Target>>();
+	
+	/**
+	 * Orders targets by the ids of their receiver classes.
+	 */
+	private static final Comparator<Target> BY_ID = new Comparator<Target>() {
+		public int compare(Target t1, Target t2) {
+			return (t1.id < t2.id) ? -1 : ((t1.id == t2.id) ? 0 : 1);
+		}
+	};
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param translator the translator.
+	 */
+	DispatchTable(Translator translator) {
+		this.translator = translator;
+	}
+	
+	/**
+	 * Returns the targets of a virtual call to the method specified by
+	 * <code>called</code>; or <code>null</code> if the class is not included.
+	 * <p>
+	 * If the class does not have the method, the first target is its first
+	 * super class that has it, selected by the id of the class itself.
+	 * The other targets are the class and its descendants that have the
+	 * method, each selected by its own id.
+	 * 
+	 * @param called the called method.
+	 * @return the targets; or <code>null</code>.
+	 */
+	List<Target> virtual(String[] called) {
+		
+		String key = TranslatorUtils.formatName(called);
+		List<Target> targets = virtuals.get(key);
+		if (targets != null) return targets;
+		
+		ClassTranslator coll = translator.getClassTranslator(called[0]);
+		if (coll == null) return null;
+		
+		targets = new ArrayList<Target>();
+		if (coll.getModuleMaker(called[1], called[2]) == null) {
+			ClassTranslator superColl = findSuperClassHavingMethod(coll, called[1], called[2]);
+			if (superColl != null)
+				targets.add(new Target(superColl, coll.getId(), called));
+		}
+		
+		ArrayList<Target> subs = new ArrayList<Target>();
+		for (ClassTranslator sub : coll.getDescendantClasses()) {
+			if (sub.getModuleMaker(called[1], called[2]) != null)
+				subs.add(new Target(sub, sub.getId(), called));
+		}
+		Collections.sort(subs, BY_ID);
+		targets.addAll(subs);
+		
+		return putIfAbsent(virtuals, key, targets);
+	}
+	
+	/**
+	 * Returns the targets of an interface call to the method specified by
+	 * <code>called</code>. For each implementer, the target is the
+	 * implementer itself or its first super class that has the method,
+	 * selected by the id of the implementer.
+	 * 
+	 * @param called the called method.
+	 * @return the targets.
+	 */
+	List<Target> interfaces(String[] called) {
+		
+		String key = TranslatorUtils.formatName(called);
+		List<Target> targets = interfaces.get(key);
+		if (targets != null) return targets;
+		
+		targets = new ArrayList<Target>();
+		Collection<ClassTranslator> implementers = translator.getImplementers(called[0]);
+		for (ClassTranslator imp : implementers) {
+			ClassTranslator toinvoke = imp;
+			if (imp.getModuleMaker(called[1], called[2]) == null) {
+				toinvoke = findSuperClassHavingMethod(imp, called[1], called[2]);
+				if (toinvoke == null) {
+					Translator.log("\t\tCannot find method %s.%s%s%n",
+							imp.getName(), called[1], called[2]);
+					continue;
+				}
+			}
+			targets.add(new Target(toinvoke, imp.getId(), called));
+		}
+		Collections.sort(targets, BY_ID);
+		
+		return putIfAbsent(interfaces, key, targets);
+	}
+	
+	private static List<Target> putIfAbsent(ConcurrentHashMap<String, List<Target>> map,
+			String key, List<Target> targets) {
+		
+		targets = Collections.unmodifiableList(targets);
+		List<Target> existing = map.putIfAbsent(key, targets);
+		return (existing != null) ? existing : targets;
+	}
+	
+	/**
+	 * Returns the first super class of <code>coll</code> that has the
+	 * method; or <code>null</code> if none.
+	 * 
+	 * @param coll the class translator.
+	 * @param methodName the method name.
+	 * @param methodDesc the method descriptor.
+	 * @return the super class translator; or <code>null</code>.
+	 */
+	private ClassTranslator findSuperClassHavingMethod(ClassTranslator coll,
+			String methodName, String methodDesc) {
+		
+		while (coll.getSuperClassName() != null) {
+			coll = translator.getClassTranslator(coll.getSuperClassName());
+			if (coll == null) return null;
+			if (coll.getModuleMaker(methodName, methodDesc) != null)
+				return coll;
+		}
+		return null;
+	}
+	
+	/**
+	 * A resolved target of a call.
+	 */
+	static class Target {
+		
+		/**
+		 * The class whose method is invoked.
+		 */
+		final ClassTranslator coll;
+		
+		/**
+		 * The invoked module maker.
+		 */
+		final ModuleMaker maker;
+		
+		/**
+		 * The id of the receiver class that selects this target.
+		 */
+		final int id;
+		
+		/**
+		 * <code>true</code> if the call is bypassed by {@link Bypasser}.
+		 */
+		final boolean bypassed;
+		
+		Target(ClassTranslator coll, int id, String[] called) {
+			this.coll = coll;
+			this.maker = coll.getModuleMaker(called[1], called[2]);
+			this.id = id;
+			this.bypassed = Bypasser.isBypassed(
+					new String[] { coll.getName(), called[1], called[2] });
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.structures.CPInfo;
+
+import de.tum.in.jmoped.translator.stub.Bypasser;
+
+/**
+ * Computes the methods from which an exception may escape.
+ * <p>
+ * An exception escapes from a module by setting the global status
+ * variable <code>e</code>, which the caller tests after the call
+ * (see {@link MethodTranslator}). A method may throw if it contains an
+ * <code>athrow</code> instruction, or if it invokes a method that may throw.
+ * The invoked methods include the static initializers triggered by the
+ * method, because their status is tested only at the next call site.
+ * Exception handlers are ignored, so the analysis over-approximates.
+ * <p>
+ * The status after a call needs no test if no callee may throw, and if
+ * no status is left over by an earlier untested invocation, i.e. a static
+ * initializer, a bypass, or an assertion.
+ *
+ * @author suwimont
+ *
+ */
+class ExceptionAnalysis {
+
+	/**
+	 * The translator.
+	 */
+	private Translator translator;
+	
+	/**
+	 * The call graph.
+	 */
+	private MethodReachability calls;
+	
+	/**
+	 * The module makers from which an exception may escape.
+	 */
+	private HashSet<ModuleMaker> mayThrow = new HashSet<ModuleMaker>();
+	
+	/**
+	 * The methods with an untested invocation that may throw.
+	 */
+	private HashSet<ModuleMaker> unchecked = new HashSet<ModuleMaker>();
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param translator the translator.
+	 */
+	ExceptionAnalysis(Translator translator) {
+		this.translator = translator;
+		this.calls = new MethodReachability(translator);
+	}
+	
+	/**
+	 * Computes the methods that may throw, over all included classes.
+	 * 
+	 * @return this analysis.
+	 */
+	ExceptionAnalysis compute() {
+		
+		HashMap<ModuleMaker, Set<ModuleMaker>> callers
+				= new HashMap<ModuleMaker, Set<ModuleMaker>>();
+		HashMap<ModuleMaker, Set<ModuleMaker>> untested
+				= new HashMap<ModuleMaker, Set<ModuleMaker>>();
+		ArrayList<ModuleMaker> worklist = new ArrayList<ModuleMaker>();
+		
+		// Builds the reverse call graph, and seeds the throwing methods
+		for (ClassTranslator coll : translator.getClassTranslators()) {
+			for (ModuleMaker maker : coll.getModuleMakers()) {
+				if (!(maker instanceof MethodTranslator)) {
+					if (mayThrow.add(maker)) worklist.add(maker);
+					continue;
+				}
+				
+				HashSet<ModuleMaker> tested = new HashSet<ModuleMaker>();
+				HashSet<ModuleMaker> others = new HashSet<ModuleMaker>();
+				if (follow((MethodTranslator) maker, tested, others)
+						&& mayThrow.add(maker))
+					worklist.add(maker);
+				untested.put(maker, others);
+				
+				tested.addAll(others);
+				for (ModuleMaker callee : tested) {
+					Set<ModuleMaker> set = callers.get(callee);
+					if (set == null) {
+						set = new HashSet<ModuleMaker>();
+						callers.put(callee, set);
+					}
+					set.add(maker);
+				}
+			}
+		}
+		
+		// Propagates to the callers
+		while (!worklist.isEmpty()) {
+			ModuleMaker callee = worklist.remove(worklist.size() - 1);
+			Set<ModuleMaker> set = callers.get(callee);
+			if (set == null) continue;
+			for (ModuleMaker caller : set) {
+				if (mayThrow.add(caller)) worklist.add(caller);
+			}
+		}
+		
+		// Finds the methods that may leave a status untested
+		for (ModuleMaker maker : untested.keySet()) {
+			if (anyMayThrow(untested.get(maker)))
+				unchecked.add(maker);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Collects the invocations of <code>method</code>. The methods invoked
+	 * by call sites that test the status are added to <code>tested</code>,
+	 * the others to <code>untested</code>.
+	 * 
+	 * @param method the method translator.
+	 * @param tested the tested invocations.
+	 * @param untested the untested invocations.
+	 * @return <code>true</code> iff the method contains <code>athrow</code>.
+	 */
+	private boolean follow(MethodTranslator method,
+			Set<ModuleMaker> tested, Set<ModuleMaker> untested) {
+		
+		// A static initializer invokes the one of its super class
+		if (method.isClinit()) {
+			ClassTranslator ct = translator.getClassTranslator(
+					TranslatorUtils.extractClassName(method.getName()));
+			if (ct != null) addClinits(untested, ct.getSuperClassName());
+		}
+		
+		boolean athrow = false;
+		CPInfo[] cp = method.method.getClassFile().getConstantPool();
+		for (AbstractInstruction ainst : method.ainstList) {
+			
+			switch (ainst.getOpcode()) {
+			case Opcodes.OPCODE_ATHROW:
+				athrow = true;
+				break;
+			
+			case Opcodes.OPCODE_INVOKEINTERFACE:
+			case Opcodes.OPCODE_INVOKESPECIAL:
+			case Opcodes.OPCODE_INVOKESTATIC:
+			case Opcodes.OPCODE_INVOKEVIRTUAL:
+				String[] called = TranslatorUtils.getReferencedName(cp, ainst);
+				if (called == null) break;
+				if (isTested(called)) {
+					tested.addAll(calls.getTargets(called));
+					if (ainst.getOpcode() == Opcodes.OPCODE_INVOKESTATIC)
+						addClinits(tested, called[0]);
+				} else {
+					untested.addAll(calls.getTargets(called));
+				}
+				break;
+			
+			case Opcodes.OPCODE_GETSTATIC:
+			case Opcodes.OPCODE_PUTSTATIC:
+				String[] ref = TranslatorUtils.getReferencedName(cp, ainst);
+				if (ref != null) addClinits(untested, ref[0]);
+				break;
+			
+			case Opcodes.OPCODE_NEW:
+				addClinits(untested, TranslatorUtils.resolveClassName(cp, ainst));
+				break;
+			
+			case Opcodes.OPCODE_LDC:
+			case Opcodes.OPCODE_LDC_W:
+				int i = InstructionTranslator.immediateLdc(ainst);
+				if (cp[i].getTag() == CPInfo.CONSTANT_CLASS) {
+					ClassTranslator ct = translator.getClassTranslator(cp, i);
+					if (ct != null) addClinits(untested, ct.getName());
+				}
+				break;
+			}
+		}
+		
+		return athrow;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the status is tested after a call
+	 * to <code>called</code>.
+	 * 
+	 * @param called the called method.
+	 * @return <code>true</code> if the status is tested.
+	 */
+	private static boolean isTested(String[] called) {
+		
+		return !called[0].equals("org/junit/Assert")
+				&& !TranslatorUtils.nameEquals(called, "java/lang/Runnable", "run", "()V")
+				&& !Bypasser.isBypassed(called);
+	}
+	
+	/**
+	 * Adds the static initializers of the class specified by
+	 * <code>className</code> and of all its super classes.
+	 * 
+	 * @param makers the set of module makers.
+	 * @param className the class name.
+	 */
+	private void addClinits(Set<ModuleMaker> makers, String className) {
+		
+		ClassTranslator ct = translator.getClassTranslator(className);
+		while (ct != null) {
+			ModuleMaker maker = ct.getModuleMaker(MethodTranslator.clinitOf(ct.getName()));
+			if (maker != null) makers.add(maker);
+			ct = translator.getClassTranslator(ct.getSuperClassName());
+		}
+	}
+	
+	private boolean anyMayThrow(Set<ModuleMaker> makers) {
+		
+		for (ModuleMaker maker : makers) {
+			if (mayThrow.contains(maker)) return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns <code>true</code> if an exception may escape from
+	 * <code>maker</code>.
+	 * 
+	 * @param maker the module maker.
+	 * @return <code>true</code> if the module may throw.
+	 */
+	boolean mayThrow(ModuleMaker maker) {
+		return mayThrow.contains(maker);
+	}
+	
+	/**
+	 * Returns the number of module makers that may throw.
+	 * 
+	 * @return the number of module makers.
+	 */
+	int size() {
+		return mayThrow.size();
+	}
+	
+	/**
+	 * Returns <code>true</code> if <code>method</code> must test the status
+	 * after calling <code>called</code>.
+	 * 
+	 * @param method the calling method.
+	 * @param called the called method.
+	 * @param stc <code>true</code> if the call is static.
+	 * @return <code>true</code> if the status must be tested.
+	 */
+	boolean needsCheck(MethodTranslator method, String[] called, boolean stc) {
+		
+		// A status may be left over by an untested invocation
+		if (unchecked.contains(method)) return true;
+		
+		// No callee of the method may throw
+		if (!mayThrow.contains(method)) return false;
+		
+		if (anyMayThrow(calls.getTargets(called)))
+			return true;
+		if (!stc) return false;
+		
+		HashSet<ModuleMaker> clinits = new HashSet<ModuleMaker>();
+		addClinits(clinits, called[0]);
+		return anyMayThrow(clinits);
+	}
+	
+	/**
+	 * Returns a digest of the analysis result, which determines
+	 * the translation of all call sites.
+	 * 
+	 * @return the digest.
+	 */
+	String getKey() {
+		
+		ArrayList<String> names = new ArrayList<String>();
+		for (ModuleMaker maker : mayThrow)
+			names.add(maker.getName());
+		for (ModuleMaker maker : unchecked)
+			names.add("!" + maker.getName());
+		Collections.sort(names);
+		return TranslationCache.digest(names);
+	}
+}
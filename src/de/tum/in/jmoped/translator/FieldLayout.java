@@ -0,0 +1,145 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.structures.CPInfo;
+
+import de.tum.in.jmoped.translator.stub.StubManager;
+
+/**
+ * Finds the instance fields read by the translated methods, which
+ * are the only fields laid out in the objects.
+ * <p>
+ * An object has a heap cell for each instance field of its class and of
+ * its super classes, after the cells reserved by the translator.
+ * A field is read if a <code>getfield</code> resolving to it occurs in
+ * a method whose module is made. The other fields get no cells, so that
+ * the objects and the heap shrink (see {@link Translator}); the stores
+ * into them are translated into pops (see {@link MethodTranslator}).
+ *
+ * @author suwimont
+ *
+ */
+class FieldLayout {
+
+	/**
+	 * The translator.
+	 */
+	private Translator translator;
+	
+	/**
+	 * The names of the instance fields read.
+	 */
+	private HashSet<String> read = new HashSet<String>();
+	
+	/**
+	 * The names of the instance fields written.
+	 */
+	private HashSet<String> written = new HashSet<String>();
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param translator the translator.
+	 */
+	FieldLayout(Translator translator) {
+		this.translator = translator;
+	}
+	
+	/**
+	 * Computes the instance fields read and written by the methods whose
+	 * modules are made.
+	 * 
+	 * @return this layout.
+	 */
+	FieldLayout compute() {
+		
+		for (ClassTranslator coll : translator.getClassTranslators()) {
+			for (ModuleMaker maker : coll.getModuleMakers()) {
+				if (maker instanceof MethodTranslator && translator.isReachable(maker))
+					follow((MethodTranslator) maker);
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Collects the instance fields accessed by <code>method</code>.
+	 * 
+	 * @param method the method translator.
+	 */
+	private void follow(MethodTranslator method) {
+		
+		CPInfo[] cp = method.method.getClassFile().getConstantPool();
+		for (AbstractInstruction ainst : method.ainstList) {
+			
+			int op = ainst.getOpcode();
+			if (op != Opcodes.OPCODE_GETFIELD && op != Opcodes.OPCODE_PUTFIELD)
+				continue;
+			
+			String[] ref = TranslatorUtils.getReferencedName(cp, ainst);
+			if (ref == null) continue;
+			ClassTranslator coll = translator.getClassTranslator(
+					StubManager.removeStub(ref[0]));
+			if (coll == null) continue;
+			String name = MethodTranslator.resolveFieldName(coll, ref[1], translator);
+			if (name == null) continue;
+			
+			if (op == Opcodes.OPCODE_GETFIELD)
+				read.add(name);
+			else
+				written.add(name);
+		}
+	}
+	
+	/**
+	 * Returns <code>true</code> if the instance field <code>field</code>
+	 * is read.
+	 * 
+	 * @param field the instance field.
+	 * @return <code>true</code> iff the field is read.
+	 */
+	boolean isRead(FieldTranslator field) {
+		return read.contains(field.getName());
+	}
+	
+	/**
+	 * Returns the number of instance fields read.
+	 * 
+	 * @return the number of fields.
+	 */
+	int size() {
+		return read.size();
+	}
+	
+	/**
+	 * Returns the number of instance fields written but never read.
+	 * 
+	 * @return the number of fields.
+	 */
+	int countDeadStores() {
+		
+		int count = 0;
+		for (String name : written) {
+			if (!read.contains(name)) count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns a digest of the layout, which determines the translation
+	 * of all field accesses and allocations.
+	 * 
+	 * @return the digest.
+	 */
+	String getKey() {
+		
+		ArrayList<String> names = new ArrayList<String>(read);
+		Collections.sort(names);
+		return TranslationCache.digest(names);
+	}
+}
@@ -125,6 +125,31 @@ public class FieldTranslator {
 		return isFinal(field.getAccessFlags());
 	}
 	
+	/**
+	 * Returns <code>true</code> if the type <code>desc</code> is boolean,
+	 * byte, char, short, or int.
+	 * 
+	 * @param desc the type descriptor.
+	 * @return <code>true</code> iff the type is an integer type.
+	 */
+	public static boolean isInteger(String desc) {
+		return desc.length() == 1 && "ZBCSI".indexOf(desc.charAt(0)) >= 0;
+	}
+	
+	/**
+	 * Returns <code>true</code> if this field is of type boolean, byte,
+	 * char, short, or int.
+	 * 
+	 * @return <code>true</code> iff this field has an integer type.
+	 */
+	public boolean isInteger() {
+		try {
+			return isInteger(field.getDescriptor());
+		} catch (InvalidByteCodeException e) {
+			throw new TranslatorError("Error while reading a field");
+		}
+	}
+	
 	public boolean isStatic() {
 		
 		return TranslatorUtils.isStatic(field.getAccessFlags());
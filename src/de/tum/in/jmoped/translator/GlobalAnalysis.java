@@ -0,0 +1,141 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.structures.CPInfo;
+
+/**
+ * Finds the static fields read by the translated methods.
+ * <p>
+ * Each non-final static field is a global variable of the Remopla model.
+ * A field is read if a <code>getstatic</code> resolving to it occurs in
+ * a method whose module is made. Only the fields read need a variable:
+ * the stores into the other fields are translated into pops
+ * (see {@link MethodTranslator}).
+ *
+ * @author suwimont
+ *
+ */
+class GlobalAnalysis {
+
+	/**
+	 * The translator.
+	 */
+	private Translator translator;
+	
+	/**
+	 * The names of the static fields read.
+	 */
+	private HashSet<String> read = new HashSet<String>();
+	
+	/**
+	 * The names of the static fields written.
+	 */
+	private HashSet<String> written = new HashSet<String>();
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param translator the translator.
+	 */
+	GlobalAnalysis(Translator translator) {
+		this.translator = translator;
+	}
+	
+	/**
+	 * Computes the static fields read and written by the methods whose
+	 * modules are made.
+	 * 
+	 * @return this analysis.
+	 */
+	GlobalAnalysis compute() {
+		
+		for (ClassTranslator coll : translator.getClassTranslators()) {
+			for (ModuleMaker maker : coll.getModuleMakers()) {
+				if (maker instanceof MethodTranslator && translator.isReachable(maker))
+					follow((MethodTranslator) maker);
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Collects the static fields accessed by <code>method</code>.
+	 * 
+	 * @param method the method translator.
+	 */
+	private void follow(MethodTranslator method) {
+		
+		CPInfo[] cp = method.method.getClassFile().getConstantPool();
+		for (AbstractInstruction ainst : method.ainstList) {
+			
+			int op = ainst.getOpcode();
+			if (op != Opcodes.OPCODE_GETSTATIC && op != Opcodes.OPCODE_PUTSTATIC)
+				continue;
+			
+			String[] ref = TranslatorUtils.getReferencedName(cp, ainst);
+			if (ref == null) continue;
+			ClassTranslator coll = translator.getClassTranslator(ref[0]);
+			if (coll == null) continue;
+			FieldTranslator field = MethodTranslator.findSuperClassHavingField(
+					coll, ref[1], translator);
+			if (field == null || field.isFinal()) continue;
+			
+			if (op == Opcodes.OPCODE_GETSTATIC)
+				read.add(field.getName());
+			else
+				written.add(field.getName());
+		}
+	}
+	
+	/**
+	 * Returns <code>true</code> if the static field <code>name</code>
+	 * is read.
+	 * 
+	 * @param name the qualified field name.
+	 * @return <code>true</code> iff the field is read.
+	 */
+	boolean isRead(String name) {
+		return read.contains(name);
+	}
+	
+	/**
+	 * Returns the number of static fields read.
+	 * 
+	 * @return the number of fields.
+	 */
+	int size() {
+		return read.size();
+	}
+	
+	/**
+	 * Returns the number of static fields written but never read.
+	 * 
+	 * @return the number of fields.
+	 */
+	int countDeadStores() {
+		
+		int count = 0;
+		for (String name : written) {
+			if (!read.contains(name)) count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns a digest of the analysis result, which determines
+	 * the translation of all <code>putstatic</code> instructions.
+	 * 
+	 * @return the digest.
+	 */
+	String getKey() {
+		
+		ArrayList<String> names = new ArrayList<String>(read);
+		Collections.sort(names);
+		return TranslationCache.digest(names);
+	}
+}
@@ -0,0 +1,419 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.MultianewarrayInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.structures.CPInfo;
+
+/**
+ * Bounds the number of heap cells allocated by the translated program.
+ * <p>
+ * Each allocation site allocates an object of its class, or an array
+ * whose length is bounded by an {@link IntervalAnalysis}. An object has
+ * a cell for its class and one for each field laid out; an array has
+ * cells for its type, its length, and its elements. The number of times
+ * a site executes is the number of times its method is invoked, which is
+ * unbounded if the site is in a loop. A method is invoked by the method
+ * wrapper, or by the call sites of its callers (see
+ * {@link MethodReachability}); the invocations of a recursive method are
+ * unbounded. Static initializers are invoked at most once.
+ * <p>
+ * Besides the allocation sites, the heap holds the cells allocated by
+ * the method wrapper, the null reference, and one more cell, as in the
+ * check of the initial heap by {@link Translator}. A string constant is
+ * allocated by the model checker in cells not known here, so reaching one
+ * leaves the heap unbounded.
+ *
+ * @author suwimont
+ *
+ */
+class HeapAnalysis {
+
+	/**
+	 * The number of cells or invocations that is unbounded.
+	 */
+	static final long UNBOUNDED = Long.MAX_VALUE;
+	
+	/**
+	 * The translator.
+	 */
+	private Translator translator;
+	
+	/**
+	 * The number of bits of the translation.
+	 */
+	private int bits;
+	
+	/**
+	 * The call graph.
+	 */
+	private MethodReachability calls;
+	
+	/**
+	 * Maps the methods to their callers, and the callers to the number
+	 * of invocations per execution of the caller.
+	 */
+	private HashMap<ModuleMaker, HashMap<ModuleMaker, Long>> callers
+			= new HashMap<ModuleMaker, HashMap<ModuleMaker, Long>>();
+	
+	/**
+	 * Maps the methods to their callees.
+	 */
+	private HashMap<ModuleMaker, Set<ModuleMaker>> callees
+			= new HashMap<ModuleMaker, Set<ModuleMaker>>();
+	
+	/**
+	 * Maps the methods to the number of their invocations by the method
+	 * wrapper or as static initializers.
+	 */
+	private HashMap<ModuleMaker, Long> seeds = new HashMap<ModuleMaker, Long>();
+	
+	/**
+	 * Maps the methods to the number of their invocations.
+	 */
+	private HashMap<ModuleMaker, Long> counts = new HashMap<ModuleMaker, Long>();
+	
+	/**
+	 * Maps the methods to their allocation sites, and the sites to
+	 * the cells per execution of the method.
+	 */
+	private HashMap<MethodTranslator, Map<String, Long>> allocations
+			= new HashMap<MethodTranslator, Map<String, Long>>();
+	
+	/**
+	 * Maps the allocation sites to the cells they allocate.
+	 */
+	private HashMap<String, Long> sites = new HashMap<String, Long>();
+	
+	/**
+	 * The number of heap cells.
+	 */
+	private long cells;
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param translator the translator.
+	 * @param bits the number of bits of the translation.
+	 */
+	HeapAnalysis(Translator translator, int bits) {
+		this.translator = translator;
+		this.bits = bits;
+		this.calls = new MethodReachability(translator);
+	}
+	
+	/**
+	 * Computes the number of heap cells allocated by the methods whose
+	 * modules are made.
+	 * 
+	 * @return this analysis.
+	 */
+	HeapAnalysis compute() {
+		
+		// Builds the call graph and collects the allocation sites
+		for (ClassTranslator coll : translator.getClassTranslators()) {
+			for (ModuleMaker maker : coll.getModuleMakers()) {
+				if (maker instanceof MethodTranslator && translator.isReachable(maker))
+					follow((MethodTranslator) maker);
+			}
+		}
+		
+		// The method wrapper and the class initialization guards
+		for (ModuleMaker root : calls.getRoots())
+			seed(root, 1);
+		
+		// Counts the cells of all allocation sites
+		cells = add(2, translator.init.countHeapCells(bits));
+		for (Map.Entry<MethodTranslator, Map<String, Long>> entry
+				: allocations.entrySet()) {
+			long count = count(entry.getKey());
+			if (count == 0) continue;
+			for (Map.Entry<String, Long> site : entry.getValue().entrySet()) {
+				long n = multiply(count, site.getValue());
+				sites.put(site.getKey(), n);
+				cells = add(cells, n);
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Adds <code>n</code> invocations of <code>maker</code>.
+	 */
+	private void seed(ModuleMaker maker, long n) {
+		
+		if (maker == null) return;
+		Long seed = seeds.get(maker);
+		seeds.put(maker, add((seed == null) ? 0 : seed, n));
+	}
+	
+	/**
+	 * Collects the calls and the allocation sites of <code>method</code>.
+	 * 
+	 * @param method the method translator.
+	 */
+	private void follow(MethodTranslator method) {
+		
+		ControlFlow cfg = new ControlFlow(method);
+		IntervalAnalysis intervals = new IntervalAnalysis(method, bits);
+		intervals.compute();
+		
+		CPInfo[] cp = cfg.getConstantPool();
+		LinkedHashMap<String, Long> local = new LinkedHashMap<String, Long>();
+		for (int i = 0; i < cfg.size(); i++) {
+			
+			AbstractInstruction ainst = cfg.get(i);
+			long n;
+			switch (ainst.getOpcode()) {
+			case Opcodes.OPCODE_INVOKEINTERFACE:
+			case Opcodes.OPCODE_INVOKESPECIAL:
+			case Opcodes.OPCODE_INVOKESTATIC:
+			case Opcodes.OPCODE_INVOKEVIRTUAL:
+				String[] called = TranslatorUtils.getReferencedName(cp, ainst);
+				if (called == null || !intervals.isReached(i))
+					continue;
+				n = inLoop(cfg, i) ? UNBOUNDED : 1;
+				for (ModuleMaker callee : calls.getTargets(called))
+					call(method, callee, n);
+				continue;
+			
+			case Opcodes.OPCODE_NEW:
+				String className = TranslatorUtils.resolveClassName(cp, ainst);
+				ClassTranslator coll = translator.getClassTranslator(className);
+				if (coll == null || className.equals("java/lang/AssertionError")
+						|| !intervals.isReached(i))
+					continue;
+				n = 1 + translator.getObjectBaseId() + coll.size();
+				break;
+			
+			case Opcodes.OPCODE_NEWARRAY:
+			case Opcodes.OPCODE_ANEWARRAY:
+				n = countArrayCells(intervals, i, 1);
+				break;
+			
+			case Opcodes.OPCODE_MULTIANEWARRAY:
+				n = countArrayCells(intervals, i,
+						((MultianewarrayInstruction) ainst).getDimensions());
+				break;
+			
+			case Opcodes.OPCODE_LDC:
+			case Opcodes.OPCODE_LDC_W:
+				int index = InstructionTranslator.immediateLdc(ainst);
+				if (cp[index].getTag() != CPInfo.CONSTANT_STRING
+						|| !intervals.isReached(i))
+					continue;
+				n = UNBOUNDED;
+				break;
+			
+			default:
+				continue;
+			}
+			
+			if (n == 0) continue;
+			if (inLoop(cfg, i)) n = UNBOUNDED;
+			local.put(String.format("%s@%d", method.getName(), ainst.getOffset()), n);
+		}
+		if (!local.isEmpty()) allocations.put(method, local);
+	}
+	
+	/**
+	 * Returns the number of cells of the arrays allocated by the instruction
+	 * at index <code>i</code> with <code>dims</code> dimensions, whose
+	 * lengths are on the stack.
+	 */
+	private long countArrayCells(IntervalAnalysis intervals, int i, int dims) {
+		
+		// The object type, the length, (and the owner & counter)
+		int header = 2;
+		if (translator.multithreading() && translator.lazy())
+			header += 2;
+		
+		long cells = 0;
+		long arrays = 1;
+		for (int d = 0; d < dims; d++) {
+			int[] length = intervals.getOperand(i, dims - 1 - d);
+			if (length == null) return 0;
+			if (length[1] < 0) break;
+			cells = add(cells, multiply(arrays, header + length[1]));
+			arrays = multiply(arrays, length[1]);
+		}
+		return cells;
+	}
+	
+	/**
+	 * Adds <code>n</code> invocations of <code>callee</code> per execution
+	 * of <code>caller</code>.
+	 */
+	private void call(ModuleMaker caller, ModuleMaker callee, long n) {
+		
+		HashMap<ModuleMaker, Long> map = callers.get(callee);
+		if (map == null) {
+			map = new HashMap<ModuleMaker, Long>();
+			callers.put(callee, map);
+		}
+		Long m = map.get(caller);
+		map.put(caller, add((m == null) ? 0 : m, n));
+		
+		Set<ModuleMaker> set = callees.get(caller);
+		if (set == null) {
+			set = new HashSet<ModuleMaker>();
+			callees.put(caller, set);
+		}
+		set.add(callee);
+	}
+	
+	/**
+	 * Returns the number of invocations of <code>maker</code>.
+	 * The callers in the same recursion as <code>maker</code> are skipped,
+	 * so that the counting ends.
+	 */
+	private long count(ModuleMaker maker) {
+		
+		Long count = counts.get(maker);
+		if (count != null) return count;
+		
+		// Counts the invocations by the callers
+		long n = seeds.containsKey(maker) ? seeds.get(maker) : 0;
+		boolean recursive = isRecursive(maker);
+		HashMap<ModuleMaker, Long> map = callers.get(maker);
+		if (map != null) {
+			for (Map.Entry<ModuleMaker, Long> entry : map.entrySet()) {
+				if (recursive && isCalledBy(entry.getKey(), maker)) continue;
+				n = add(n, multiply(count(entry.getKey()), entry.getValue()));
+			}
+		}
+		
+		// Static initializers are invoked at most once
+		if (n > 1 && maker instanceof MethodTranslator
+				&& ((MethodTranslator) maker).isClinit())
+			n = 1;
+		else if (n > 0 && recursive)
+			n = UNBOUNDED;
+		counts.put(maker, n);
+		return n;
+	}
+	
+	/**
+	 * Returns <code>true</code> if <code>maker</code> may call itself.
+	 */
+	private boolean isRecursive(ModuleMaker maker) {
+		return isCalledBy(maker, maker);
+	}
+	
+	/**
+	 * Returns <code>true</code> if <code>callee</code> may be called,
+	 * directly or indirectly, by <code>caller</code>.
+	 */
+	private boolean isCalledBy(ModuleMaker callee, ModuleMaker caller) {
+		
+		HashSet<ModuleMaker> seen = new HashSet<ModuleMaker>();
+		ArrayList<ModuleMaker> worklist = new ArrayList<ModuleMaker>();
+		worklist.add(caller);
+		while (!worklist.isEmpty()) {
+			Set<ModuleMaker> set = callees.get(worklist.remove(worklist.size() - 1));
+			if (set == null) continue;
+			for (ModuleMaker maker : set) {
+				if (maker == callee) return true;
+				if (seen.add(maker)) worklist.add(maker);
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the instruction at index <code>i</code>
+	 * may be executed again, i.e. lies on a cycle of the control flow.
+	 * Every instruction of a method with subroutines may.
+	 */
+	private static boolean inLoop(ControlFlow cfg, int i) {
+		
+		if (cfg.hasSubroutines()) return true;
+		BitSet seen = new BitSet(cfg.size());
+		ArrayList<Integer> worklist = new ArrayList<Integer>();
+		worklist.add(i);
+		while (!worklist.isEmpty()) {
+			int j = worklist.remove(worklist.size() - 1);
+			for (int s : cfg.getSuccessors(j)) {
+				if (s == i) return true;
+				if (!seen.get(s)) {
+					seen.set(s);
+					worklist.add(s);
+				}
+			}
+			for (int h : cfg.getHandlers(j)) {
+				if (h == i) return true;
+				if (!seen.get(h)) {
+					seen.set(h);
+					worklist.add(h);
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns <code>a + b</code>, or {@link #UNBOUNDED} on overflow.
+	 */
+	private static long add(long a, long b) {
+		
+		if (a == UNBOUNDED || b == UNBOUNDED || a + b < 0)
+			return UNBOUNDED;
+		return a + b;
+	}
+	
+	/**
+	 * Returns <code>a * b</code>, or {@link #UNBOUNDED} on overflow.
+	 */
+	private static long multiply(long a, long b) {
+		
+		if (a == 0 || b == 0) return 0;
+		if (a == UNBOUNDED || b == UNBOUNDED || a > UNBOUNDED / b)
+			return UNBOUNDED;
+		return a * b;
+	}
+	
+	/**
+	 * Returns the number of heap cells.
+	 * 
+	 * @return the number of cells; or {@link #UNBOUNDED}.
+	 */
+	long getCells() {
+		return cells;
+	}
+	
+	/**
+	 * Returns the allocation sites that allocate the most cells,
+	 * with their numbers of cells, in decreasing order.
+	 * 
+	 * @param n the maximum number of sites.
+	 * @return the map from the sites to their numbers of cells.
+	 */
+	Map<String, Long> getDominantSites(int n) {
+		
+		ArrayList<Map.Entry<String, Long>> entries
+				= new ArrayList<Map.Entry<String, Long>>(sites.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+			public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+				int c = e2.getValue().compareTo(e1.getValue());
+				return (c != 0) ? c : e1.getKey().compareTo(e2.getKey());
+			}
+		});
+		
+		LinkedHashMap<String, Long> dominant = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Long> entry : entries) {
+			if (dominant.size() == n) break;
+			dominant.put(entry.getKey(), entry.getValue());
+		}
+		return dominant;
+	}
+}
@@ -699,6 +699,20 @@ public class InstructionTranslator {
 	
 	private static ExprSemiring iinc(AbstractInstruction ainst) {
 		
+		IncrementInstruction iinst = (IncrementInstruction) ainst;
+		return new ExprSemiring(ExprType.INC, 
+				new Inc(iinst.getImmediateByte(), incrementConst(ainst)));
+	}
+	
+	/**
+	 * Returns the signed constant of the <code>iinc</code> instruction
+	 * <code>ainst</code>.
+	 * 
+	 * @param ainst the instruction.
+	 * @return the increment.
+	 */
+	static int incrementConst(AbstractInstruction ainst) {
+		
 		IncrementInstruction iinst = (IncrementInstruction) ainst;
 		int c = iinst.getIncrementConst();
 		if (iinst.isWide()) {
@@ -706,8 +720,7 @@ public class InstructionTranslator {
 		} else {
 			if (c > 127) c -= 256;
 		}
-		return new ExprSemiring(ExprType.INC, 
-				new Inc(iinst.getImmediateByte(), c));
+		return c;
 	}
 	
 	private static ExprSemiring instanceofInst(Translator translator, CPInfo[] cp, 
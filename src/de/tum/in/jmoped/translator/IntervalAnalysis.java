@@ -0,0 +1,934 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.structures.CPInfo;
+import org.gjt.jclasslib.structures.constants.ConstantIntegerInfo;
+
+/**
+ * An intraprocedural interval analysis of the bytecode of a method,
+ * which finds the array accesses whose indices are always in bounds.
+ * <p>
+ * Each integer value has an interval and, per local variable holding
+ * an array, a gap: the value is at most the length of the array minus
+ * the gap. The gaps are established by comparisons with array lengths,
+ * shifted by additions of constants, and survive as long as the local
+ * variables are not assigned. An index is in bounds if it is
+ * non-negative and has a positive gap to its array. Each array reference
+ * also has a lower bound of its length, known from its allocation.
+ * <p>
+ * Integers range over the values representable with the number of bits
+ * of the translation. An operation that may overflow yields an unknown
+ * value, since the model wraps around.
+ * <p>
+ * Given a {@link WidthAnalysis}, the analysis also records the values
+ * stored into fields and array elements, and loads from them the values
+ * found so far.
+ *
+ * @author suwimont
+ *
+ */
+class IntervalAnalysis {
+
+	/**
+	 * The method translator.
+	 */
+	private MethodTranslator method;
+	
+	/**
+	 * The control flow graph.
+	 */
+	private ControlFlow cfg;
+	
+	/**
+	 * The smallest integer.
+	 */
+	private int min;
+	
+	/**
+	 * The largest integer.
+	 */
+	private int max;
+	
+	/**
+	 * The unknown value.
+	 */
+	private Value top;
+	
+	/**
+	 * The frames before the instructions; <code>null</code> if not reached.
+	 */
+	private Frame[] frames;
+	
+	/**
+	 * The number of merges along back edges into the frames, for widening.
+	 */
+	private int[] merges;
+	
+	/**
+	 * The number of merges along back edges after which a frame is widened.
+	 */
+	private static final int WIDEN = 3;
+	
+	/**
+	 * The number of local variables.
+	 */
+	private int maxLocals;
+	
+	/**
+	 * The ranges of fields and array elements; or <code>null</code>.
+	 */
+	private WidthAnalysis widths;
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param method the method translator.
+	 * @param bits the number of bits of integers.
+	 */
+	IntervalAnalysis(MethodTranslator method, int bits) {
+		this(method, bits, null);
+	}
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param method the method translator.
+	 * @param bits the number of bits of integers.
+	 * @param widths the ranges of fields and array elements.
+	 */
+	IntervalAnalysis(MethodTranslator method, int bits, WidthAnalysis widths) {
+		
+		this.method = method;
+		this.widths = widths;
+		this.cfg = new ControlFlow(method);
+		MethodWrapper.Range range = new MethodWrapper.Range(bits);
+		min = range.min;
+		max = range.max;
+		top = new Value(min, max, 0, null);
+	}
+	
+	/**
+	 * Computes the indices of the array loads and stores whose indices
+	 * are always in bounds. The result is empty if the method has
+	 * subroutines.
+	 * 
+	 * @return the instruction indices.
+	 */
+	BitSet compute() {
+		
+		BitSet safe = new BitSet();
+		int size = cfg.size();
+		if (size == 0) return safe;
+		if (cfg.hasSubroutines()) {
+			if (widths != null) storeAll();
+			return safe;
+		}
+		
+		frames = new Frame[size];
+		merges = new int[size];
+		maxLocals = method.codeAttr.getMaxLocals();
+		Frame entry = new Frame(maxLocals,
+				method.codeAttr.getMaxStack());
+		for (int i = 0; i < entry.locals.length; i++)
+			entry.locals[i] = top;
+		frames[0] = entry;
+		
+		BitSet worklist = new BitSet(size);
+		worklist.set(0);
+		for (int i = 0; i >= 0; i = worklist.nextSetBit(0)) {
+			worklist.clear(i);
+			Frame in = frames[i];
+			
+			// Exception handlers start with the thrown object on the stack
+			for (int h : cfg.getHandlers(i)) {
+				Frame f = in.copy();
+				f.sp = 0;
+				f.push(top, -1);
+				if (merge(i, h, f)) worklist.set(h);
+			}
+			
+			int[] succ = cfg.getSuccessors(i);
+			Frame out = in.copy();
+			int op = cfg.get(i).getOpcode();
+			if (isCompare(op)) {
+				Frame taken = out.copy();
+				branch(op, taken, out);
+				if (merge(i, succ[0], out)) worklist.set(succ[0]);
+				if (merge(i, succ[1], taken)) worklist.set(succ[1]);
+				continue;
+			}
+			
+			execute(i, out);
+			for (int s : succ) {
+				if (merge(i, s, out)) worklist.set(s);
+			}
+		}
+		
+		for (int i = 0; i < size; i++) {
+			if (frames[i] != null && isSafe(i, frames[i]))
+				safe.set(i);
+		}
+		return safe;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the instruction at index <code>i</code>
+	 * may be reached. Must be called after {@link #compute()}.
+	 * 
+	 * @param i the instruction index.
+	 * @return <code>true</code> if the instruction may be reached.
+	 */
+	boolean isReached(int i) {
+		return frames == null || frames[i] != null;
+	}
+	
+	/**
+	 * Returns the interval of the operand <code>depth</code> slots below
+	 * the top of the stack before the instruction at index <code>i</code>.
+	 * Must be called after {@link #compute()}.
+	 * 
+	 * @param i the instruction index.
+	 * @param depth the depth of the operand.
+	 * @return the smallest and the largest value; or <code>null</code>
+	 * 		if the instruction is unreachable.
+	 */
+	int[] getOperand(int i, int depth) {
+		
+		if (frames == null) return new int[] { min, max };
+		Frame f = frames[i];
+		if (f == null) return null;
+		Value v = f.stack[f.sp - 1 - depth];
+		return new int[] { v.lo, v.hi };
+	}
+	
+	/**
+	 * Records that all integers may be stored by the stores of this method.
+	 */
+	private void storeAll() {
+		
+		for (int i = 0; i < cfg.size(); i++) {
+			String key = widths.getKey(cfg.getConstantPool(), cfg.get(i));
+			if (key != null && cfg.pushes(i) == 0)
+				widths.store(key, min, max);
+		}
+	}
+	
+	/**
+	 * Merges <code>f</code> from the instruction at index <code>from</code>
+	 * into the frame before the instruction at index <code>i</code>.
+	 * Every cycle has a back edge, along which the frame is widened after
+	 * {@link #WIDEN} merges.
+	 * 
+	 * @param from the index of the preceding instruction.
+	 * @param i the instruction index.
+	 * @param f the frame.
+	 * @return <code>true</code> if the frame changed.
+	 */
+	private boolean merge(int from, int i, Frame f) {
+		
+		if (f.sp < 0) return false;
+		if (frames[i] == null) {
+			frames[i] = f.copy();
+			return true;
+		}
+		return frames[i].merge(f, i <= from && ++merges[i] > WIDEN);
+	}
+	
+	/**
+	 * Returns <code>true</code> if the instruction at index <code>i</code>
+	 * is an array access whose index is in bounds in <code>f</code>.
+	 * 
+	 * @param i the instruction index.
+	 * @param f the frame before the instruction.
+	 * @return <code>true</code> if the access is in bounds.
+	 */
+	private boolean isSafe(int i, Frame f) {
+		
+		int depth;
+		switch (cfg.get(i).getOpcode()) {
+		case Opcodes.OPCODE_AALOAD:
+		case Opcodes.OPCODE_BALOAD:
+		case Opcodes.OPCODE_IALOAD:
+		case Opcodes.OPCODE_LALOAD:
+		case Opcodes.OPCODE_SALOAD:
+			depth = 0;
+			break;
+		
+		case Opcodes.OPCODE_AASTORE:
+		case Opcodes.OPCODE_BASTORE:
+		case Opcodes.OPCODE_IASTORE:
+		case Opcodes.OPCODE_SASTORE:
+			depth = 1;
+			break;
+		
+		case Opcodes.OPCODE_LASTORE:
+			depth = 2;
+			break;
+		
+		default:
+			return false;
+		}
+		
+		Value index = f.stack[f.sp - 1 - depth];
+		int array = f.sp - 2 - depth;
+		if (index.lo < 0) return false;
+		if (index.hi < f.stack[array].length) return true;
+		return f.origins[array] >= 0 && index.gap(f.origins[array]) > 0;
+	}
+	
+	private static boolean isCompare(int op) {
+		
+		switch (op) {
+		case Opcodes.OPCODE_IF_ICMPEQ:
+		case Opcodes.OPCODE_IF_ICMPNE:
+		case Opcodes.OPCODE_IF_ICMPLT:
+		case Opcodes.OPCODE_IF_ICMPGE:
+		case Opcodes.OPCODE_IF_ICMPGT:
+		case Opcodes.OPCODE_IF_ICMPLE:
+		case Opcodes.OPCODE_IFEQ:
+		case Opcodes.OPCODE_IFNE:
+		case Opcodes.OPCODE_IFLT:
+		case Opcodes.OPCODE_IFGE:
+		case Opcodes.OPCODE_IFGT:
+		case Opcodes.OPCODE_IFLE:
+			return true;
+		default:
+			return false;
+		}
+	}
+	
+	/**
+	 * Pops the operands of the comparison <code>op</code> from both frames,
+	 * and refines <code>taken</code> by the condition and
+	 * <code>fall</code> by its negation. A frame is set to <code>null</code>
+	 * if the edge is infeasible.
+	 * 
+	 * @param op the opcode.
+	 * @param taken the frame of the branch target.
+	 * @param fall the frame of the next instruction.
+	 */
+	private void branch(int op, Frame taken, Frame fall) {
+		
+		Value x, y;
+		int ox, oy;
+		if (op >= Opcodes.OPCODE_IF_ICMPEQ) {
+			x = fall.stack[fall.sp - 2];
+			ox = fall.origins[fall.sp - 2];
+			y = fall.stack[fall.sp - 1];
+			oy = fall.origins[fall.sp - 1];
+			fall.pop(2);
+			taken.pop(2);
+			op -= Opcodes.OPCODE_IF_ICMPEQ - Opcodes.OPCODE_IFEQ;
+		} else {
+			x = fall.stack[fall.sp - 1];
+			ox = fall.origins[fall.sp - 1];
+			y = constant(0);
+			oy = -1;
+			fall.pop(1);
+			taken.pop(1);
+		}
+		
+		switch (op) {
+		case Opcodes.OPCODE_IFEQ:
+			equal(taken, x, ox, y, oy);
+			break;
+		case Opcodes.OPCODE_IFNE:
+			equal(fall, x, ox, y, oy);
+			break;
+		case Opcodes.OPCODE_IFLT:
+			less(taken, x, ox, y, oy, true);
+			less(fall, y, oy, x, ox, false);
+			break;
+		case Opcodes.OPCODE_IFGE:
+			less(taken, y, oy, x, ox, false);
+			less(fall, x, ox, y, oy, true);
+			break;
+		case Opcodes.OPCODE_IFGT:
+			less(taken, y, oy, x, ox, true);
+			less(fall, x, ox, y, oy, false);
+			break;
+		case Opcodes.OPCODE_IFLE:
+			less(taken, x, ox, y, oy, false);
+			less(fall, y, oy, x, ox, true);
+			break;
+		}
+	}
+	
+	/**
+	 * Refines <code>f</code> by <code>x &lt; y</code>, or by
+	 * <code>x &lt;= y</code> if not <code>strict</code>. The values are
+	 * refined in the local variables they are loaded from.
+	 */
+	private void less(Frame f, Value x, int ox, Value y, int oy, boolean strict) {
+		
+		int d = strict ? 1 : 0;
+		if (x.lo > (long) y.hi - d) {
+			f.sp = -1;
+			return;
+		}
+		
+		if (ox >= 0) {
+			f.locals[ox] = new Value(x.lo, Math.min(x.hi, y.hi - d), x.length,
+					maxGaps(x.gaps, shift(y.gaps, -d)));
+		}
+		if (oy >= 0) {
+			f.locals[oy] = new Value(Math.max(y.lo, x.lo + d), y.hi, y.length, y.gaps);
+		}
+	}
+	
+	/**
+	 * Refines <code>f</code> by <code>x == y</code>.
+	 */
+	private void equal(Frame f, Value x, int ox, Value y, int oy) {
+		
+		int lo = Math.max(x.lo, y.lo);
+		int hi = Math.min(x.hi, y.hi);
+		if (lo > hi) {
+			f.sp = -1;
+			return;
+		}
+		
+		int[] gaps = maxGaps(x.gaps, y.gaps);
+		if (ox >= 0)
+			f.locals[ox] = new Value(lo, hi, x.length, gaps);
+		if (oy >= 0)
+			f.locals[oy] = new Value(lo, hi, y.length, gaps);
+	}
+	
+	/**
+	 * Executes the instruction at index <code>i</code> on the frame
+	 * <code>f</code>.
+	 * 
+	 * @param i the instruction index.
+	 * @param f the frame.
+	 */
+	private void execute(int i, Frame f) {
+		
+		if (widths != null && access(i, f)) return;
+		AbstractInstruction ainst = cfg.get(i);
+		int op = ainst.getOpcode();
+		switch (op) {
+		
+		case Opcodes.OPCODE_ICONST_M1:
+		case Opcodes.OPCODE_ICONST_0:
+		case Opcodes.OPCODE_ICONST_1:
+		case Opcodes.OPCODE_ICONST_2:
+		case Opcodes.OPCODE_ICONST_3:
+		case Opcodes.OPCODE_ICONST_4:
+		case Opcodes.OPCODE_ICONST_5:
+			f.push(constant(op - Opcodes.OPCODE_ICONST_0), -1);
+			return;
+		
+		case Opcodes.OPCODE_BIPUSH:
+			f.push(constant((byte) TranslatorUtils.immediateByte(ainst)), -1);
+			return;
+		
+		case Opcodes.OPCODE_SIPUSH:
+			f.push(constant((short) TranslatorUtils.immediateShort(ainst)), -1);
+			return;
+		
+		case Opcodes.OPCODE_LDC:
+		case Opcodes.OPCODE_LDC_W: {
+			CPInfo ce = cfg.getConstantPool()[InstructionTranslator.immediateLdc(ainst)];
+			if (ce.getTag() == CPInfo.CONSTANT_INTEGER)
+				f.push(constant(((ConstantIntegerInfo) ce).getInt()), -1);
+			else
+				f.push(top, -1);
+			return;
+		}
+		
+		case Opcodes.OPCODE_ILOAD:
+		case Opcodes.OPCODE_ALOAD:
+			load(f, TranslatorUtils.immediateByte(ainst));
+			return;
+		
+		case Opcodes.OPCODE_ILOAD_0:
+		case Opcodes.OPCODE_ILOAD_1:
+		case Opcodes.OPCODE_ILOAD_2:
+		case Opcodes.OPCODE_ILOAD_3:
+			load(f, op - Opcodes.OPCODE_ILOAD_0);
+			return;
+		
+		case Opcodes.OPCODE_ALOAD_0:
+		case Opcodes.OPCODE_ALOAD_1:
+		case Opcodes.OPCODE_ALOAD_2:
+		case Opcodes.OPCODE_ALOAD_3:
+			load(f, op - Opcodes.OPCODE_ALOAD_0);
+			return;
+		
+		case Opcodes.OPCODE_ISTORE:
+		case Opcodes.OPCODE_FSTORE:
+		case Opcodes.OPCODE_ASTORE:
+			store(f, TranslatorUtils.immediateByte(ainst), 1);
+			return;
+		
+		case Opcodes.OPCODE_LSTORE:
+		case Opcodes.OPCODE_DSTORE:
+			store(f, TranslatorUtils.immediateByte(ainst), 2);
+			return;
+		
+		case Opcodes.OPCODE_ISTORE_0:
+		case Opcodes.OPCODE_ISTORE_1:
+		case Opcodes.OPCODE_ISTORE_2:
+		case Opcodes.OPCODE_ISTORE_3:
+			store(f, op - Opcodes.OPCODE_ISTORE_0, 1);
+			return;
+		
+		case Opcodes.OPCODE_FSTORE_0:
+		case Opcodes.OPCODE_FSTORE_1:
+		case Opcodes.OPCODE_FSTORE_2:
+		case Opcodes.OPCODE_FSTORE_3:
+			store(f, op - Opcodes.OPCODE_FSTORE_0, 1);
+			return;
+		
+		case Opcodes.OPCODE_ASTORE_0:
+		case Opcodes.OPCODE_ASTORE_1:
+		case Opcodes.OPCODE_ASTORE_2:
+		case Opcodes.OPCODE_ASTORE_3:
+			store(f, op - Opcodes.OPCODE_ASTORE_0, 1);
+			return;
+		
+		case Opcodes.OPCODE_LSTORE_0:
+		case Opcodes.OPCODE_LSTORE_1:
+		case Opcodes.OPCODE_LSTORE_2:
+		case Opcodes.OPCODE_LSTORE_3:
+			store(f, op - Opcodes.OPCODE_LSTORE_0, 2);
+			return;
+		
+		case Opcodes.OPCODE_DSTORE_0:
+		case Opcodes.OPCODE_DSTORE_1:
+		case Opcodes.OPCODE_DSTORE_2:
+		case Opcodes.OPCODE_DSTORE_3:
+			store(f, op - Opcodes.OPCODE_DSTORE_0, 2);
+			return;
+		
+		case Opcodes.OPCODE_IINC: {
+			int index = TranslatorUtils.immediateByte(ainst);
+			int c = InstructionTranslator.incrementConst(ainst);
+			f.forget(index);
+			f.locals[index] = add(f.locals[index], constant(c));
+			return;
+		}
+		
+		case Opcodes.OPCODE_IADD:
+		case Opcodes.OPCODE_ISUB:
+		case Opcodes.OPCODE_IMUL:
+		case Opcodes.OPCODE_IDIV:
+		case Opcodes.OPCODE_IREM:
+		case Opcodes.OPCODE_IAND:
+		case Opcodes.OPCODE_ISHR:
+		case Opcodes.OPCODE_IUSHR: {
+			Value y = f.stack[f.sp - 1];
+			Value x = f.stack[f.sp - 2];
+			f.pop(2);
+			f.push(arith(op, x, y), -1);
+			return;
+		}
+		
+		case Opcodes.OPCODE_INEG: {
+			Value x = f.stack[f.sp - 1];
+			f.pop(1);
+			f.push(range(-(long) x.hi, -(long) x.lo), -1);
+			return;
+		}
+		
+		case Opcodes.OPCODE_ARRAYLENGTH: {
+			int origin = f.origins[f.sp - 1];
+			int length = f.stack[f.sp - 1].length;
+			f.pop(1);
+			int[] gaps = null;
+			if (origin >= 0) {
+				gaps = newGaps();
+				gaps[origin] = 0;
+			}
+			f.push(new Value(Math.max(0, length), max, 0, gaps), -1);
+			return;
+		}
+		
+		case Opcodes.OPCODE_NEWARRAY:
+		case Opcodes.OPCODE_ANEWARRAY: {
+			int length = Math.max(0, f.stack[f.sp - 1].lo);
+			f.pop(1);
+			f.push(new Value(min, max, length, null), -1);
+			return;
+		}
+		
+		case Opcodes.OPCODE_CHECKCAST:
+			return;
+		
+		case Opcodes.OPCODE_DUP:
+			f.copy(1, 0);
+			return;
+		
+		case Opcodes.OPCODE_DUP_X1:
+			f.copy(1, 1);
+			return;
+		
+		case Opcodes.OPCODE_DUP_X2:
+			f.copy(1, 2);
+			return;
+		
+		case Opcodes.OPCODE_DUP2:
+			f.copy(2, 0);
+			return;
+		
+		case Opcodes.OPCODE_DUP2_X1:
+			f.copy(2, 1);
+			return;
+		
+		case Opcodes.OPCODE_SWAP: {
+			Value v = f.stack[f.sp - 1];
+			int o = f.origins[f.sp - 1];
+			f.stack[f.sp - 1] = f.stack[f.sp - 2];
+			f.origins[f.sp - 1] = f.origins[f.sp - 2];
+			f.stack[f.sp - 2] = v;
+			f.origins[f.sp - 2] = o;
+			return;
+		}
+		
+		default:
+			f.pop(cfg.pops(i));
+			for (int j = cfg.pushes(i); j > 0; j--)
+				f.push(top, -1);
+		}
+	}
+	
+	/**
+	 * Executes the instruction at index <code>i</code> on the frame
+	 * <code>f</code> if it accesses an integer field or array element:
+	 * a load yields the values found so far, and a store records its value.
+	 * 
+	 * @param i the instruction index.
+	 * @param f the frame.
+	 * @return <code>true</code> if the instruction is executed.
+	 */
+	private boolean access(int i, Frame f) {
+		
+		String key = widths.getKey(cfg.getConstantPool(), cfg.get(i));
+		if (key == null) return false;
+		
+		if (cfg.pushes(i) > 0) {
+			int[] r = widths.load(key);
+			f.pop(cfg.pops(i));
+			f.push(range(r[0], r[1]), -1);
+		} else {
+			Value v = f.stack[f.sp - 1];
+			widths.store(key, v.lo, v.hi);
+			f.pop(cfg.pops(i));
+		}
+		return true;
+	}
+	
+	private static void load(Frame f, int index) {
+		f.push(f.locals[index], index);
+	}
+	
+	private void store(Frame f, int index, int slots) {
+		
+		Value value = f.stack[f.sp - 1];
+		f.pop(slots);
+		for (int j = 0; j < slots; j++)
+			f.kill(index + j);
+		f.locals[index] = (slots == 1) ? value : top;
+		if (slots == 2) f.locals[index + 1] = top;
+	}
+	
+	private Value constant(long c) {
+		return range(c, c);
+	}
+	
+	/**
+	 * Returns the value in <code>[lo, hi]</code>; or the unknown value
+	 * if the interval is not representable.
+	 */
+	private Value range(long lo, long hi) {
+		
+		if (lo < min || hi > max) return top;
+		return new Value((int) lo, (int) hi, 0, null);
+	}
+	
+	private Value add(Value x, Value y) {
+		
+		Value r = range((long) x.lo + y.lo, (long) x.hi + y.hi);
+		if (r == top) return top;
+		return new Value(r.lo, r.hi, 0,
+				maxGaps(shift(x.gaps, y.hi), shift(y.gaps, x.hi)));
+	}
+	
+	private Value arith(int op, Value x, Value y) {
+		
+		switch (op) {
+		case Opcodes.OPCODE_IADD:
+			return add(x, y);
+		
+		case Opcodes.OPCODE_ISUB:
+			return add(x, range(-(long) y.hi, -(long) y.lo));
+		
+		case Opcodes.OPCODE_IMUL: {
+			long a = (long) x.lo * y.lo, b = (long) x.lo * y.hi;
+			long c = (long) x.hi * y.lo, d = (long) x.hi * y.hi;
+			return range(Math.min(Math.min(a, b), Math.min(c, d)),
+					Math.max(Math.max(a, b), Math.max(c, d)));
+		}
+		
+		// A non-negative value divided by a positive one is not larger
+		case Opcodes.OPCODE_IDIV:
+			if (x.lo < 0 || y.lo < 1) return top;
+			return new Value(0, x.hi, 0, x.gaps);
+		
+		case Opcodes.OPCODE_ISHR:
+		case Opcodes.OPCODE_IUSHR:
+			if (x.lo < 0 || y.lo < 0) return top;
+			return new Value(0, x.hi, 0, x.gaps);
+		
+		// A non-negative remainder is less than the divisor
+		case Opcodes.OPCODE_IREM:
+			if (x.lo < 0 || y.lo < 1) return top;
+			return new Value(0, Math.min(x.hi, y.hi - 1), 0,
+					maxGaps(x.gaps, shift(y.gaps, -1)));
+		
+		// A conjunction is at most any of its non-negative operands
+		case Opcodes.OPCODE_IAND:
+			if (x.lo >= 0 && y.lo >= 0)
+				return new Value(0, Math.min(x.hi, y.hi), 0, maxGaps(x.gaps, y.gaps));
+			if (x.lo >= 0)
+				return new Value(0, x.hi, 0, x.gaps);
+			if (y.lo >= 0)
+				return new Value(0, y.hi, 0, y.gaps);
+			return top;
+		
+		default:
+			return top;
+		}
+	}
+	
+	private int[] newGaps() {
+		
+		int[] gaps = new int[maxLocals];
+		Arrays.fill(gaps, -1);
+		return gaps;
+	}
+	
+	/**
+	 * Returns the gaps of a value increased by at most <code>c</code>;
+	 * or <code>null</code> if none remains.
+	 */
+	private int[] shift(int[] gaps, long c) {
+		
+		if (gaps == null || c == 0) return gaps;
+		int[] result = null;
+		for (int i = 0; i < gaps.length; i++) {
+			if (gaps[i] < 0 || gaps[i] - c < 0) continue;
+			if (result == null) result = newGaps();
+			result[i] = (int) Math.min(Integer.MAX_VALUE, gaps[i] - c);
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the larger gaps, which both hold.
+	 */
+	private static int[] maxGaps(int[] gaps1, int[] gaps2) {
+		
+		if (gaps1 == null) return gaps2;
+		if (gaps2 == null) return gaps1;
+		int[] result = gaps1.clone();
+		for (int i = 0; i < result.length; i++)
+			result[i] = Math.max(result[i], gaps2[i]);
+		return result;
+	}
+	
+	/**
+	 * An abstract value. Values are immutable.
+	 */
+	private static class Value {
+		
+		/**
+		 * The interval of an integer.
+		 */
+		final int lo, hi;
+		
+		/**
+		 * The lower bound of the length of an array.
+		 */
+		final int length;
+		
+		/**
+		 * The gaps to the lengths of the arrays held by the local
+		 * variables, or -1 if unknown; <code>null</code> if all unknown.
+		 */
+		final int[] gaps;
+		
+		Value(int lo, int hi, int length, int[] gaps) {
+			this.lo = lo;
+			this.hi = hi;
+			this.length = length;
+			this.gaps = gaps;
+		}
+		
+		int gap(int index) {
+			return (gaps == null) ? -1 : gaps[index];
+		}
+		
+		/**
+		 * Returns this value without the gap to the local variable
+		 * <code>index</code>.
+		 */
+		Value kill(int index) {
+			
+			if (gap(index) < 0) return this;
+			int[] gaps2 = gaps.clone();
+			gaps2[index] = -1;
+			return new Value(lo, hi, length, gaps2);
+		}
+		
+		/**
+		 * Returns the join of this value and <code>v</code>, widened to
+		 * <code>[min, max]</code> if <code>widen</code>.
+		 */
+		Value join(Value v, boolean widen, int min, int max) {
+			
+			int lo2 = Math.min(lo, v.lo);
+			int hi2 = Math.max(hi, v.hi);
+			int length2 = Math.min(length, v.length);
+			if (widen) {
+				if (lo2 < lo) lo2 = min;
+				if (hi2 > hi) hi2 = max;
+				if (length2 < length) length2 = 0;
+			}
+			
+			// Keeps the smaller gaps, which hold on both
+			int[] gaps2 = gaps;
+			if (gaps != null && !Arrays.equals(gaps, v.gaps)) {
+				gaps2 = null;
+				for (int i = 0; i < gaps.length; i++) {
+					int g = Math.min(gaps[i], v.gap(i));
+					if (g < 0) continue;
+					if (gaps2 == null) {
+						gaps2 = gaps.clone();
+						Arrays.fill(gaps2, -1);
+					}
+					gaps2[i] = g;
+				}
+				if (Arrays.equals(gaps, gaps2)) gaps2 = gaps;
+			}
+			if (lo2 == lo && hi2 == hi && length2 == length && gaps2 == gaps)
+				return this;
+			return new Value(lo2, hi2, length2, gaps2);
+		}
+	}
+	
+	/**
+	 * The abstract values of the local variables and the stack slots.
+	 */
+	private class Frame {
+		
+		Value[] locals;
+		
+		Value[] stack;
+		
+		/**
+		 * The local variable each stack slot is loaded from; or -1.
+		 */
+		int[] origins;
+		
+		/**
+		 * The stack height; or -1 if the frame is infeasible.
+		 */
+		int sp;
+		
+		Frame(int maxLocals, int maxStack) {
+			locals = new Value[maxLocals];
+			stack = new Value[maxStack];
+			origins = new int[maxStack];
+		}
+		
+		Frame copy() {
+			
+			Frame f = new Frame(0, 0);
+			f.locals = locals.clone();
+			f.stack = stack.clone();
+			f.origins = origins.clone();
+			f.sp = sp;
+			return f;
+		}
+		
+		void push(Value value, int origin) {
+			stack[sp] = value;
+			origins[sp++] = origin;
+		}
+		
+		void pop(int n) {
+			sp -= n;
+		}
+		
+		/**
+		 * Duplicates the top <code>n</code> slots below the
+		 * <code>skip</code> slots under them.
+		 */
+		void copy(int n, int skip) {
+			
+			int base = sp - n - skip;
+			System.arraycopy(stack, base, stack, base + n, n + skip);
+			System.arraycopy(origins, base, origins, base + n, n + skip);
+			System.arraycopy(stack, sp, stack, base, n);
+			System.arraycopy(origins, sp, origins, base, n);
+			sp += n;
+		}
+		
+		/**
+		 * The stack slots loaded from the local variable
+		 * <code>index</code> are no longer copies of it.
+		 */
+		void forget(int index) {
+			
+			for (int j = 0; j < sp; j++) {
+				if (origins[j] == index) origins[j] = -1;
+			}
+		}
+		
+		/**
+		 * Removes all facts about the local variable <code>index</code>,
+		 * which is about to be assigned.
+		 */
+		void kill(int index) {
+			
+			forget(index);
+			for (int j = 0; j < locals.length; j++)
+				locals[j] = locals[j].kill(index);
+			for (int j = 0; j < sp; j++)
+				stack[j] = stack[j].kill(index);
+		}
+		
+		boolean merge(Frame f, boolean widen) {
+			
+			if (f.sp != sp)
+				throw new TranslatorError("Inconsistent stack heights: %d and %d", sp, f.sp);
+			
+			boolean changed = false;
+			for (int j = 0; j < locals.length; j++) {
+				Value v = locals[j].join(f.locals[j], widen, min, max);
+				if (v != locals[j]) {
+					locals[j] = v;
+					changed = true;
+				}
+			}
+			for (int j = 0; j < sp; j++) {
+				Value v = stack[j].join(f.stack[j], widen, min, max);
+				if (v != stack[j]) {
+					stack[j] = v;
+					changed = true;
+				}
+				if (origins[j] != f.origins[j] && origins[j] != -1) {
+					origins[j] = -1;
+					changed = true;
+				}
+			}
+			return changed;
+		}
+	}
+}
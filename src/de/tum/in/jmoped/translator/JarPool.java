@@ -0,0 +1,71 @@
+package de.tum.in.jmoped.translator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.jar.JarFile;
+
+/**
+ * A pool of open jar files.
+ * <p>
+ * Each jar file is opened once, on first use, and reused for all subsequent
+ * entry reads. All jar files are closed by {@link #close()}.
+ * The pool is thread-safe.
+ *
+ * @author suwimont
+ *
+ */
+public class JarPool {
+
+	/**
+	 * Maps absolute jar paths to open jar files.
+	 */
+	private HashMap<String, JarFile> jars = new HashMap<String, JarFile>();
+	
+	/**
+	 * Returns the open jar file of <code>f</code>.
+	 * The jar file is opened if it is not in the pool.
+	 * 
+	 * @param f the jar file.
+	 * @return the open jar file.
+	 * @throws IOException
+	 */
+	public synchronized JarFile get(File f) throws IOException {
+		
+		String path = f.getAbsolutePath();
+		JarFile jar = jars.get(path);
+		if (jar == null) {
+			jar = new JarFile(f);
+			jars.put(path, jar);
+		}
+		return jar;
+	}
+	
+	/**
+	 * Returns the number of open jar files.
+	 * 
+	 * @return the number of open jar files.
+	 */
+	public synchronized int size() {
+		return jars.size();
+	}
+	
+	/**
+	 * Closes all jar files in the pool. The pool can be reused afterwards;
+	 * jar files are then reopened on demand.
+	 */
+	public synchronized void close() {
+		
+		List<JarFile> open = new ArrayList<JarFile>(jars.values());
+		jars.clear();
+		for (JarFile jar : open) {
+			try {
+				jar.close();
+			} catch (IOException e) {
+				Translator.log("\tCannot close jar %s: %s%n", jar.getName(), e);
+			}
+		}
+	}
+}
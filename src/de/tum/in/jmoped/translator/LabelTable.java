@@ -0,0 +1,174 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A symbol table of control-point labels.
+ * <p>
+ * A label is the pair of a module name and a bytecode offset. Each pair
+ * is interned into a compact int id, and its text is formatted only once
+ * (see {@link TranslatorUtils#formatName(String, int)}). All rules that
+ * refer to the same control point therefore share the same string, and
+ * the module name and offset of a label can be looked up without
+ * parsing the label.
+ * <p>
+ * The table is thread-safe.
+ *
+ * @author suwimont
+ *
+ */
+public class LabelTable {
+
+	/**
+	 * Maps module names to module ids.
+	 */
+	private HashMap<String, Integer> moduleIds = new HashMap<String, Integer>();
+	
+	/**
+	 * The module names, indexed by module ids.
+	 */
+	private ArrayList<String> modules = new ArrayList<String>();
+	
+	/**
+	 * Maps pairs of module id and offset to label ids.
+	 */
+	private HashMap<Long, Integer> ids = new HashMap<Long, Integer>();
+	
+	/**
+	 * Maps label texts to label ids.
+	 */
+	private HashMap<String, Integer> textIds = new HashMap<String, Integer>();
+	
+	/**
+	 * The label texts, indexed by label ids.
+	 */
+	private ArrayList<String> labels = new ArrayList<String>();
+	
+	/**
+	 * The module ids of labels, indexed by label ids.
+	 */
+	private int[] moduleOf = new int[64];
+	
+	/**
+	 * The offsets of labels, indexed by label ids.
+	 */
+	private int[] offsetOf = new int[64];
+	
+	/**
+	 * Returns the id of the label at <code>offset</code> of the module
+	 * specified by <code>module</code>. The label is added if it is not
+	 * in the table.
+	 * 
+	 * @param module the module name.
+	 * @param offset the bytecode offset.
+	 * @return the label id.
+	 */
+	public synchronized int intern(String module, int offset) {
+		return doIntern(module, moduleId(module), offset);
+	}
+	
+	/**
+	 * Interns the labels at all <code>offsets</code> of the module
+	 * specified by <code>module</code>.
+	 * 
+	 * @param module the module name.
+	 * @param offsets the bytecode offsets.
+	 * @return the label ids, in the order of <code>offsets</code>.
+	 */
+	public synchronized int[] intern(String module, int[] offsets) {
+		
+		int mid = moduleId(module);
+		int[] result = new int[offsets.length];
+		for (int i = 0; i < offsets.length; i++)
+			result[i] = doIntern(module, mid, offsets[i]);
+		return result;
+	}
+	
+	/**
+	 * Returns the text of the label <code>id</code>.
+	 * 
+	 * @param id the label id.
+	 * @return the label text.
+	 */
+	public synchronized String getLabel(int id) {
+		return labels.get(id);
+	}
+	
+	/**
+	 * Returns the module name of the label <code>id</code>.
+	 * 
+	 * @param id the label id.
+	 * @return the module name.
+	 */
+	public synchronized String getModuleName(int id) {
+		return modules.get(moduleOf[id]);
+	}
+	
+	/**
+	 * Returns the bytecode offset of the label <code>id</code>.
+	 * 
+	 * @param id the label id.
+	 * @return the offset.
+	 */
+	public synchronized int getOffset(int id) {
+		return offsetOf[id];
+	}
+	
+	/**
+	 * Returns the id of the label with text <code>label</code>;
+	 * or -1 if the label is not in the table.
+	 * 
+	 * @param label the label text.
+	 * @return the label id; or -1.
+	 */
+	public synchronized int lookup(String label) {
+		
+		Integer id = textIds.get(label);
+		return (id == null) ? -1 : id;
+	}
+	
+	/**
+	 * Returns the number of labels in the table.
+	 * 
+	 * @return the number of labels.
+	 */
+	public synchronized int size() {
+		return labels.size();
+	}
+	
+	private int moduleId(String module) {
+		
+		Integer mid = moduleIds.get(module);
+		if (mid == null) {
+			mid = modules.size();
+			modules.add(module);
+			moduleIds.put(module, mid);
+		}
+		return mid;
+	}
+	
+	private int doIntern(String module, int mid, int offset) {
+		
+		Long key = ((long) mid << 32) | (offset & 0xffffffffL);
+		Integer id = ids.get(key);
+		if (id != null) return id;
+		
+		id = labels.size();
+		if (id == moduleOf.length) {
+			int[] m = new int[2*id];
+			int[] o = new int[2*id];
+			System.arraycopy(moduleOf, 0, m, 0, id);
+			System.arraycopy(offsetOf, 0, o, 0, id);
+			moduleOf = m;
+			offsetOf = o;
+		}
+		String label = TranslatorUtils.formatName(module, offset);
+		labels.add(label);
+		moduleOf[id] = mid;
+		offsetOf[id] = offset;
+		ids.put(key, id);
+		textIds.put(label, id);
+		return id;
+	}
+}
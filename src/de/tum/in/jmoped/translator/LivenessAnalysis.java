@@ -0,0 +1,337 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.BitSet;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+
+/**
+ * A live-variable analysis of the local variables of a method, which
+ * finds where dead local variables must be reset to zero, and which
+ * local variables may share a slot.
+ * <p>
+ * A local variable is live before an instruction if its value may be read
+ * later without being written first. Values of category two are live in
+ * both of their slots. The exception handlers are successors of the
+ * instructions in their ranges.
+ * <p>
+ * The resets keep every dead local variable at zero, so that the model
+ * does not distinguish states that differ only in dead values. A local
+ * variable is reset on each edge where it dies: it is live before or
+ * written by the source of the edge, but dead before the target.
+ * The parameters are reset on the edges from the first instruction
+ * if they are dead there.
+ * <p>
+ * The compaction renumbers the local variables like a register allocator:
+ * two local variables share a slot if neither is written or live while
+ * the other is live. The parameters and the local variables accessed as
+ * values of category two keep their slots.
+ *
+ * @author suwimont
+ *
+ */
+class LivenessAnalysis {
+
+	/**
+	 * The method translator.
+	 */
+	private MethodTranslator method;
+	
+	/**
+	 * The control flow graph.
+	 */
+	private ControlFlow cfg;
+	
+	/**
+	 * The live local variables before the instructions.
+	 */
+	private BitSet[] live;
+	
+	/**
+	 * The number of parameter slots.
+	 */
+	private int nparams;
+	
+	/**
+	 * <code>true</code> if the first local variable is live throughout,
+	 * because a synchronized method releases its monitor when it returns.
+	 */
+	private boolean monitor;
+	
+	/**
+	 * Maps the local variables to their slots.
+	 */
+	private int[] slots;
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param method the method translator.
+	 */
+	LivenessAnalysis(MethodTranslator method) {
+		this.method = method;
+		this.cfg = new ControlFlow(method);
+	}
+	
+	/**
+	 * Computes the live local variables. Nothing is computed if the method
+	 * has subroutines, whose return addresses must survive in the local
+	 * variables.
+	 * 
+	 * @param nparams the number of parameter slots.
+	 * @return <code>true</code> if the live variables are computed.
+	 */
+	boolean compute(int nparams) {
+		
+		int size = cfg.size();
+		if (size == 0 || cfg.hasSubroutines()) return false;
+		
+		int maxLocals = method.codeAttr.getMaxLocals();
+		this.nparams = Math.min(nparams, maxLocals);
+		this.monitor = method.isSynchronized() && maxLocals > 0;
+		slots = new int[maxLocals];
+		for (int i = 0; i < maxLocals; i++)
+			slots[i] = i;
+		computeLive();
+		return true;
+	}
+	
+	/**
+	 * Renumbers the local variables onto as few slots as possible.
+	 * Must be called after {@link #compute(int)}.
+	 * 
+	 * @return the number of slots.
+	 */
+	int compact() {
+		
+		int maxLocals = slots.length;
+		BitSet[] interference = new BitSet[maxLocals];
+		for (int x = 0; x < maxLocals; x++)
+			interference[x] = new BitSet();
+		
+		// Finds the accessed, the fixed, and the interfering local variables
+		BitSet accessed = new BitSet();
+		BitSet fixed = new BitSet();
+		fixed.set(0, nparams);
+		for (int i = 0; i < cfg.size(); i++) {
+			for (int x = live[i].nextSetBit(0); x >= 0; x = live[i].nextSetBit(x + 1))
+				interference[x].or(live[i]);
+			
+			AbstractInstruction ainst = cfg.get(i);
+			int index = getLocal(ainst);
+			if (index < 0) continue;
+			int n = getSlots(ainst);
+			accessed.set(index, index + n);
+			if (n == 2) fixed.set(index, index + n);
+			
+			BitSet defs = new BitSet();
+			def(i, defs, true);
+			if (defs.isEmpty()) continue;
+			BitSet out = getLiveOut(i);
+			for (int x = defs.nextSetBit(0); x >= 0; x = defs.nextSetBit(x + 1)) {
+				interference[x].or(out);
+				for (int y = out.nextSetBit(0); y >= 0; y = out.nextSetBit(y + 1))
+					interference[y].set(x);
+			}
+		}
+		
+		// Assigns each local variable the lowest slot it may share
+		BitSet[] assigned = new BitSet[maxLocals];
+		for (int x = 0; x < maxLocals; x++)
+			assigned[x] = new BitSet();
+		int count = nparams;
+		for (int x = fixed.nextSetBit(0); x >= 0; x = fixed.nextSetBit(x + 1)) {
+			assigned[x].set(x);
+			count = Math.max(count, x + 1);
+		}
+		for (int x = accessed.nextSetBit(0); x >= 0; x = accessed.nextSetBit(x + 1)) {
+			if (fixed.get(x)) continue;
+			int slot = 0;
+			while (assigned[slot].intersects(interference[x]))
+				slot++;
+			slots[x] = slot;
+			assigned[slot].set(x);
+			count = Math.max(count, slot + 1);
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Returns the slot of the local variable <code>index</code>.
+	 * 
+	 * @param index the local variable index.
+	 * @return the slot.
+	 */
+	int getSlot(int index) {
+		return slots[index];
+	}
+	
+	/**
+	 * Returns the slots that die on the edge from the instruction at index
+	 * <code>i</code> to its successor or handler at index <code>s</code>:
+	 * those of the local variables live before or written by <code>i</code>,
+	 * but of none live before <code>s</code>. The parameters leave the first
+	 * instruction as well.
+	 * 
+	 * @param i the instruction index.
+	 * @param s the index of the successor or handler.
+	 * @return the slots to reset.
+	 */
+	BitSet getResets(int i, int s) {
+		
+		BitSet left = (BitSet) live[i].clone();
+		def(i, left, true);
+		if (i == 0) left.set(0, nparams);
+		
+		BitSet dead = toSlots(left);
+		dead.andNot(toSlots(live[s]));
+		return dead;
+	}
+	
+	/**
+	 * Maps the local variables in <code>locals</code> to their slots.
+	 */
+	private BitSet toSlots(BitSet locals) {
+		
+		BitSet result = new BitSet();
+		for (int x = locals.nextSetBit(0); x >= 0; x = locals.nextSetBit(x + 1))
+			result.set(slots[x]);
+		return result;
+	}
+	
+	/**
+	 * Returns the local variables live after the instruction at index
+	 * <code>i</code>, i.e. before any of its successors or handlers.
+	 */
+	private BitSet getLiveOut(int i) {
+		
+		BitSet out = new BitSet();
+		for (int s : cfg.getSuccessors(i))
+			out.or(live[s]);
+		for (int h : cfg.getHandlers(i))
+			out.or(live[h]);
+		return out;
+	}
+	
+	/**
+	 * Computes the live local variables before the instructions,
+	 * backwards until the fixed point.
+	 */
+	private void computeLive() {
+		
+		int size = cfg.size();
+		live = new BitSet[size];
+		for (int i = 0; i < size; i++)
+			live[i] = new BitSet();
+		
+		// The predecessors, for propagating backwards
+		BitSet[] preds = new BitSet[size];
+		for (int i = 0; i < size; i++)
+			preds[i] = new BitSet();
+		for (int i = 0; i < size; i++) {
+			for (int s : cfg.getSuccessors(i))
+				preds[s].set(i);
+			for (int h : cfg.getHandlers(i))
+				preds[h].set(i);
+		}
+		
+		BitSet worklist = new BitSet(size);
+		worklist.set(0, size);
+		for (int i = size - 1; i >= 0; i = worklist.length() - 1) {
+			worklist.clear(i);
+			
+			BitSet in = getLiveOut(i);
+			def(i, in, false);
+			use(i, in);
+			if (monitor) in.set(0);
+			
+			if (!in.equals(live[i])) {
+				live[i] = in;
+				worklist.or(preds[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the local variable accessed by <code>ainst</code>.
+	 * 
+	 * @param ainst the instruction.
+	 * @return the local variable index; or -1 if <code>ainst</code> is
+	 * 		neither a load, a store, nor <code>iinc</code>.
+	 */
+	static int getLocal(AbstractInstruction ainst) {
+		
+		int op = ainst.getOpcode();
+		if (op >= Opcodes.OPCODE_ILOAD_0 && op <= Opcodes.OPCODE_ALOAD_3)
+			return (op - Opcodes.OPCODE_ILOAD_0) % 4;
+		if (op >= Opcodes.OPCODE_ISTORE_0 && op <= Opcodes.OPCODE_ASTORE_3)
+			return (op - Opcodes.OPCODE_ISTORE_0) % 4;
+		if (op >= Opcodes.OPCODE_ILOAD && op <= Opcodes.OPCODE_ALOAD
+				|| op >= Opcodes.OPCODE_ISTORE && op <= Opcodes.OPCODE_ASTORE
+				|| op == Opcodes.OPCODE_IINC)
+			return TranslatorUtils.immediateByte(ainst);
+		return -1;
+	}
+	
+	/**
+	 * Returns the number of slots accessed by <code>ainst</code>:
+	 * two for the values of type long and double.
+	 * 
+	 * @param ainst the instruction.
+	 * @return the number of slots; or zero if <code>ainst</code> is
+	 * 		neither a load, a store, nor <code>iinc</code>.
+	 */
+	static int getSlots(AbstractInstruction ainst) {
+		
+		int op = ainst.getOpcode();
+		int kind;
+		if (op >= Opcodes.OPCODE_ILOAD && op <= Opcodes.OPCODE_ALOAD)
+			kind = op - Opcodes.OPCODE_ILOAD;
+		else if (op >= Opcodes.OPCODE_ILOAD_0 && op <= Opcodes.OPCODE_ALOAD_3)
+			kind = (op - Opcodes.OPCODE_ILOAD_0) / 4;
+		else if (op >= Opcodes.OPCODE_ISTORE && op <= Opcodes.OPCODE_ASTORE)
+			kind = op - Opcodes.OPCODE_ISTORE;
+		else if (op >= Opcodes.OPCODE_ISTORE_0 && op <= Opcodes.OPCODE_ASTORE_3)
+			kind = (op - Opcodes.OPCODE_ISTORE_0) / 4;
+		else
+			return (op == Opcodes.OPCODE_IINC) ? 1 : 0;
+		
+		// The kinds are int, long, float, double, and reference
+		return (kind == 1 || kind == 3) ? 2 : 1;
+	}
+	
+	/**
+	 * Adds the local variables written by the instruction at index
+	 * <code>i</code> to <code>set</code> if <code>add</code>;
+	 * or removes them otherwise.
+	 */
+	private void def(int i, BitSet set, boolean add) {
+		
+		AbstractInstruction ainst = cfg.get(i);
+		int op = ainst.getOpcode();
+		if (!(op >= Opcodes.OPCODE_ISTORE && op <= Opcodes.OPCODE_ASTORE)
+				&& !(op >= Opcodes.OPCODE_ISTORE_0 && op <= Opcodes.OPCODE_ASTORE_3))
+			return;
+		
+		int index = getLocal(ainst);
+		set.set(index, index + getSlots(ainst), add);
+	}
+	
+	/**
+	 * Adds the local variables read by the instruction at index
+	 * <code>i</code> to <code>set</code>.
+	 */
+	private void use(int i, BitSet set) {
+		
+		AbstractInstruction ainst = cfg.get(i);
+		int op = ainst.getOpcode();
+		if (!(op >= Opcodes.OPCODE_ILOAD && op <= Opcodes.OPCODE_ALOAD)
+				&& !(op >= Opcodes.OPCODE_ILOAD_0 && op <= Opcodes.OPCODE_ALOAD_3)
+				&& op != Opcodes.OPCODE_IINC)
+			return;
+		
+		int index = getLocal(ainst);
+		set.set(index, index + getSlots(ainst));
+	}
+}
@@ -0,0 +1,245 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.structures.CPInfo;
+
+import de.tum.in.jmoped.translator.stub.Bypasser;
+
+/**
+ * Computes the methods that are reachable from the starting method
+ * through invoke instructions.
+ * <p>
+ * The call graph over-approximates the call rules made by
+ * {@link MethodTranslator}: a call reaches the method in the referenced
+ * class or the first super class that has it, the overriding methods in
+ * all descendant classes, and the methods of all implementers in case of
+ * interfaces. The roots are the modules that the method wrapper invokes:
+ * the starting method, and the integer constructor for each integer
+ * argument. Static initializers are always reachable, because they are
+ * invoked by the class initialization guards of all included classes.
+ * A module is therefore never invoked without being made.
+ *
+ * @author suwimont
+ *
+ */
+class MethodReachability {
+
+	/**
+	 * The translator.
+	 */
+	private Translator translator;
+	
+	/**
+	 * The reachable module makers.
+	 */
+	private HashSet<ModuleMaker> reachable = new HashSet<ModuleMaker>();
+	
+	/**
+	 * The module makers whose calls are not yet followed.
+	 */
+	private ArrayList<ModuleMaker> worklist = new ArrayList<ModuleMaker>();
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param translator the translator.
+	 */
+	MethodReachability(Translator translator) {
+		this.translator = translator;
+	}
+	
+	/**
+	 * Computes the module makers reachable from the roots.
+	 * 
+	 * @return the reachable module makers.
+	 */
+	Set<ModuleMaker> compute() {
+		
+		for (ModuleMaker root : getRoots())
+			add(root);
+		
+		// Follows the calls
+		while (!worklist.isEmpty()) {
+			ModuleMaker maker = worklist.remove(worklist.size() - 1);
+			if (maker instanceof MethodTranslator)
+				follow((MethodTranslator) maker);
+		}
+		
+		return reachable;
+	}
+	
+	/**
+	 * Returns the module makers invoked from outside the translated methods:
+	 * the starting method and the integer constructor, by the method
+	 * wrapper, and the static initializers, by the class initialization
+	 * guards. The integer constructor occurs once for each integer argument
+	 * of the starting method.
+	 * 
+	 * @return the module makers.
+	 */
+	List<ModuleMaker> getRoots() {
+		
+		ArrayList<ModuleMaker> roots = new ArrayList<ModuleMaker>();
+		MethodWrapper init = translator.init;
+		addTarget(roots, getModuleMaker(init.getClassName(),
+				init.getMehtodName(), init.getMethodDesc()));
+		for (String param : init.paramTypes) {
+			if (param.equals("Ljava/lang/Integer;"))
+				addTarget(roots, getModuleMaker("java/lang/Integer", "<init>", "(I)V"));
+		}
+		for (ClassTranslator ct : translator.getClassTranslators())
+			addTarget(roots, ct.getModuleMaker(MethodTranslator.clinitOf(ct.getName())));
+		return roots;
+	}
+	
+	/**
+	 * Returns the module maker of the method, or <code>null</code>.
+	 */
+	private ModuleMaker getModuleMaker(String className,
+			String methodName, String methodDesc) {
+		
+		ClassTranslator coll = translator.getClassTranslator(className);
+		return (coll == null) ? null : coll.getModuleMaker(methodName, methodDesc);
+	}
+	
+	/**
+	 * Adds the module maker to the reachable set, if not already there.
+	 * 
+	 * @param maker the module maker; or <code>null</code>.
+	 */
+	private void add(ModuleMaker maker) {
+		
+		if (maker == null || !reachable.add(maker)) return;
+		worklist.add(maker);
+	}
+	
+	/**
+	 * Adds all methods that the invoke instructions of
+	 * <code>method</code> may call.
+	 * 
+	 * @param method the method translator.
+	 */
+	private void follow(MethodTranslator method) {
+		
+		CPInfo[] cp = method.method.getClassFile().getConstantPool();
+		for (AbstractInstruction ainst : method.ainstList) {
+			
+			switch (ainst.getOpcode()) {
+			case Opcodes.OPCODE_INVOKEINTERFACE:
+			case Opcodes.OPCODE_INVOKESPECIAL:
+			case Opcodes.OPCODE_INVOKESTATIC:
+			case Opcodes.OPCODE_INVOKEVIRTUAL:
+				String[] called = TranslatorUtils.getReferencedName(cp, ainst);
+				if (called != null)
+					call(called);
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Adds all methods that a call to <code>called</code> may reach.
+	 * 
+	 * @param called the called method.
+	 */
+	private void call(String[] called) {
+		
+		for (ModuleMaker maker : getTargets(called))
+			add(maker);
+	}
+	
+	/**
+	 * Returns all methods that a call to <code>called</code> may reach,
+	 * including the modules invoked by its bypass.
+	 * 
+	 * @param called the called method.
+	 * @return the module makers.
+	 */
+	Set<ModuleMaker> getTargets(String[] called) {
+		
+		HashSet<ModuleMaker> targets = new HashSet<ModuleMaker>();
+		
+		// Modules invoked by bypasses
+		for (String name : Bypasser.getInvokedModules(called)) {
+			ClassTranslator ct = translator.getClassTranslator(
+					TranslatorUtils.extractClassName(name));
+			if (ct != null) addTarget(targets, ct.getModuleMaker(name));
+		}
+		
+		// Runnable.run() also starts threads
+		if (TranslatorUtils.nameEquals(called, "java/lang/Runnable", "run", "()V"))
+			dispatch(targets, "java/lang/Thread", called[1], called[2]);
+		
+		// assertEquals(Object, Object) calls equals(Object)
+		if (called[0].equals("org/junit/Assert") && called[1].equals("assertEquals")
+				&& called[2].equals("(Ljava/lang/Object;Ljava/lang/Object;)V"))
+			dispatch(targets, "java/lang/Object", "equals", "(Ljava/lang/Object;)Z");
+		
+		dispatch(targets, called[0], called[1], called[2]);
+		return targets;
+	}
+	
+	/**
+	 * Adds the method in the class specified by <code>className</code>
+	 * or in its first super class that has the method, together with
+	 * the overriding methods of all descendants and implementers.
+	 * 
+	 * @param targets the set of module makers.
+	 * @param className the class name.
+	 * @param methodName the method name.
+	 * @param methodDesc the method descriptor.
+	 */
+	private void dispatch(Set<ModuleMaker> targets, 
+			String className, String methodName, String methodDesc) {
+		
+		ClassTranslator coll = translator.getClassTranslator(className);
+		if (coll == null) return;
+		
+		HashSet<ClassTranslator> receivers = new HashSet<ClassTranslator>();
+		receivers.addAll(coll.getDescendantClasses());
+		if (coll.isInterface()) {
+			for (ClassTranslator imp : translator.getImplementers(coll.getName()))
+				receivers.addAll(imp.getDescendantClasses());
+		}
+		
+		for (ClassTranslator receiver : receivers) {
+			ModuleMaker maker = receiver.getModuleMaker(methodName, methodDesc);
+			if (maker == null)
+				maker = findSuperMethod(receiver, methodName, methodDesc);
+			addTarget(targets, maker);
+		}
+	}
+	
+	private static void addTarget(Collection<ModuleMaker> targets, ModuleMaker maker) {
+		if (maker != null) targets.add(maker);
+	}
+	
+	/**
+	 * Returns the method in the first super class of <code>coll</code>
+	 * that has the method; or <code>null</code> if none.
+	 * 
+	 * @param coll the class translator.
+	 * @param methodName the method name.
+	 * @param methodDesc the method descriptor.
+	 * @return the module maker; or <code>null</code>.
+	 */
+	private ModuleMaker findSuperMethod(ClassTranslator coll,
+			String methodName, String methodDesc) {
+		
+		while (coll.getSuperClassName() != null) {
+			coll = translator.getClassTranslator(coll.getSuperClassName());
+			if (coll == null) return null;
+			
+			ModuleMaker maker = coll.getModuleMaker(methodName, methodDesc);
+			if (maker != null) return maker;
+		}
+		return null;
+	}
+}
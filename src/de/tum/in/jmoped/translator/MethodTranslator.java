@@ -5,11 +5,15 @@ import static de.tum.in.jmoped.underbone.expr.ExprType.*;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.BranchInstruction;
 import org.gjt.jclasslib.bytecode.LookupSwitchInstruction;
 import org.gjt.jclasslib.bytecode.MatchOffsetPair;
 import org.gjt.jclasslib.bytecode.Opcodes;
@@ -38,6 +42,7 @@ import de.tum.in.jmoped.underbone.expr.ExprSemiring;
 import de.tum.in.jmoped.underbone.expr.ExprType;
 import de.tum.in.jmoped.underbone.expr.Field;
 import de.tum.in.jmoped.underbone.expr.If;
+import de.tum.in.jmoped.underbone.expr.Inc;
 import de.tum.in.jmoped.underbone.expr.Invoke;
 import de.tum.in.jmoped.underbone.expr.Jump;
 import de.tum.in.jmoped.underbone.expr.Local;
@@ -85,10 +90,83 @@ public class MethodTranslator implements ModuleMaker {
 	LineNumberTableEntry[] lineTable;
 	
 	/**
-	 * The translated Remopla module.
+	 * The Remopla module being made; or <code>null</code> if none.
+	 * The module is released when made, since it may be shared through
+	 * the translation cache.
 	 */
 	Module module;
 	
+	/**
+	 * The bytecode offsets of the instructions, in the order of
+	 * <code>ainstList</code>.
+	 */
+	private int[] offsets;
+	
+	/**
+	 * The interned labels of the instructions, in the order of
+	 * <code>ainstList</code>.
+	 */
+	private String[] labels;
+	
+	/**
+	 * The indices of the instructions whose null-pointer checks are
+	 * omitted; or <code>null</code> if none.
+	 */
+	private BitSet nonNull;
+	
+	/**
+	 * The indices of the array accesses whose index-out-of-bounds checks
+	 * are omitted; or <code>null</code> if none.
+	 */
+	private BitSet inBounds;
+	
+	/**
+	 * The indices of the instructions whose labels are fused into
+	 * the labels of their successors; or <code>null</code> if none.
+	 */
+	private BitSet fused;
+	
+	/**
+	 * The liveness of the local variables, for resetting them when they
+	 * die and for compacting their slots; or <code>null</code> if neither.
+	 */
+	private LivenessAnalysis liveness;
+	
+	/**
+	 * <code>true</code> if the local variables are reset when they die.
+	 */
+	private boolean resetsLocals;
+	
+	/**
+	 * <code>true</code> if the local variables are compacted into
+	 * fewer slots.
+	 */
+	private boolean compactsLocals;
+	
+	/**
+	 * The stack heights of the bytecode, for sizing the operand stack;
+	 * or <code>null</code> if the stack has one extra slot throughout.
+	 */
+	private StackAnalysis stack;
+	
+	/**
+	 * The indices of the instructions in the assertion slice, together
+	 * with the jumps, returns, and throws; or <code>null</code> if all
+	 * instructions are translated.
+	 */
+	private BitSet sliced;
+	
+	/**
+	 * Maps the successors of the instruction being translated to the
+	 * labels that enter them.
+	 */
+	private HashMap<Integer, String> entries = new HashMap<Integer, String>();
+	
+	/**
+	 * The index of the instruction being translated.
+	 */
+	private int index;
+	
 	/**
 	 * The constructor.
 	 * 
@@ -213,9 +291,195 @@ public class MethodTranslator implements ModuleMaker {
 		return -1;
 	}
 	
+	/**
+	 * Interns the labels of all instructions in the label table
+	 * of <code>translator</code>.
+	 * 
+	 * @param translator the translator.
+	 */
+	private void internLabels(Translator translator) {
+		
+		int size = ainstList.size();
+		offsets = new int[size];
+		for (int i = 0; i < size; i++)
+			offsets[i] = ainstList.get(i).getOffset();
+		
+		LabelTable table = translator.getLabelTable();
+		int[] ids = table.intern(name, offsets);
+		labels = new String[size];
+		for (int i = 0; i < size; i++)
+			labels[i] = table.getLabel(ids[i]);
+	}
+	
+	/**
+	 * Returns the label of the instruction at <code>offset</code>.
+	 * 
+	 * @param offset the bytecode offset.
+	 * @return the label.
+	 */
+	private String label(int offset) {
+		
+		int i = Arrays.binarySearch(offsets, offset);
+		if (i < 0)
+			return TranslatorUtils.formatName(name, offset);
+		return labels[i];
+	}
+	
+	/**
+	 * Fuses the labels of the instructions that only jump to their
+	 * successors, i.e. <code>goto</code> and the narrowing conversions
+	 * of integers, into the labels of the successors. The predecessors
+	 * then jump directly to the successors, and no control point is made
+	 * for the fused instructions. The first instruction is never fused,
+	 * and neither is a cycle of jumps.
+	 * 
+	 * @return the indices of the fused instructions.
+	 */
+	private BitSet fuseLabels() {
+		
+		int size = ainstList.size();
+		int[] succ = new int[size];
+		for (int i = 0; i < size; i++)
+			succ[i] = jumpSuccessor(i);
+		
+		BitSet result = new BitSet(size);
+		String[] fusedLabels = labels.clone();
+		for (int i = 1; i < size; i++) {
+			
+			// Follows the jumps, at most once around a cycle
+			int j = i;
+			for (int n = 0; succ[j] >= 0 && n < size; n++)
+				j = succ[j];
+			if (j == i || succ[j] >= 0) continue;
+			
+			fusedLabels[i] = labels[j];
+			result.set(i);
+		}
+		labels = fusedLabels;
+		return result;
+	}
+	
+	/**
+	 * Returns the index of the successor of the instruction at index
+	 * <code>i</code>, if the instruction only jumps to it.
+	 * 
+	 * @param i the instruction index.
+	 * @return the successor index; or -1 if the instruction does more.
+	 */
+	private int jumpSuccessor(int i) {
+		
+		AbstractInstruction ainst = ainstList.get(i);
+		switch (ainst.getOpcode()) {
+		case Opcodes.OPCODE_GOTO:
+		case Opcodes.OPCODE_GOTO_W:
+			int j = Arrays.binarySearch(offsets, 
+					ainst.getOffset() + ((BranchInstruction) ainst).getBranchOffset());
+			return (j < 0) ? -1 : j;
+		
+		case Opcodes.OPCODE_I2B:
+		case Opcodes.OPCODE_I2C:
+		case Opcodes.OPCODE_I2S:
+			return i + 1;
+		
+		default:
+			return -1;
+		}
+	}
+	
 	private String nextLabel(int i) {
 		
-		return TranslatorUtils.formatName(name, ainstList.get(i+1).getOffset());
+		return enter(i + 1);
+	}
+	
+	/**
+	 * Gets the branch target from the instruction <code>ainst</code>.
+	 * 
+	 * @param ainst the instruction.
+	 * @return the branch target.
+	 */
+	private String branchTarget(AbstractInstruction ainst) {
+		
+		return target(ainst.getOffset() + ((BranchInstruction) ainst).getBranchOffset());
+	}
+	
+	/**
+	 * Returns the label for jumping from the instruction being translated
+	 * to the instruction at <code>offset</code>.
+	 * 
+	 * @param offset the bytecode offset.
+	 * @return the label.
+	 */
+	private String target(int offset) {
+		
+		int i = Arrays.binarySearch(offsets, offset);
+		if (i < 0)
+			return TranslatorUtils.formatName(name, offset);
+		return enter(i);
+	}
+	
+	/**
+	 * Returns the label for entering the instruction at index 
+	 * <code>s</code> from the instruction being translated. If local
+	 * variables die on the edge, the label starts the rules that reset
+	 * them to zero.
+	 * 
+	 * @param s the instruction index.
+	 * @return the label.
+	 */
+	private String enter(int s) {
+		
+		if (!resetsLocals)
+			return labels[s];
+		
+		String label = entries.get(s);
+		if (label != null)
+			return label;
+		
+		BitSet dead = liveness.getResets(index, s);
+		if (dead.isEmpty()) {
+			label = labels[s];
+		} else {
+			
+			// Each reset pushes a zero on the stack entering s
+			if (stack != null)
+				module.ensureMaxStack(stack.getHeight(s) + 1);
+			label = getFreshReturnLabel();
+			String label1 = label;
+			for (int i = dead.nextSetBit(0); i >= 0; i = dead.nextSetBit(i + 1)) {
+				String label2 = getFreshReturnLabel();
+				module.addRule(label1, 
+						new ExprSemiring(PUSH, new Value(Category.ONE, 0)), 
+						label2);
+				label1 = (dead.nextSetBit(i + 1) < 0) ? labels[s] : getFreshReturnLabel();
+				module.addRule(label2, 
+						new ExprSemiring(STORE, new Local(Category.ONE, i)), 
+						label1);
+			}
+		}
+		entries.put(s, label);
+		return label;
+	}
+	
+	/**
+	 * Renumbers the local variable accessed by <code>ainst</code>,
+	 * translated to <code>d</code>, to its compacted slot.
+	 * 
+	 * @param d the translated instruction.
+	 * @param ainst the instruction.
+	 */
+	private void compactLocal(ExprSemiring d, AbstractInstruction ainst) {
+		
+		int local = LivenessAnalysis.getLocal(ainst);
+		if (local < 0) return;
+		
+		int slot = liveness.getSlot(local);
+		if (d.type == INC) {
+			d.value = new Inc(slot, InstructionTranslator.incrementConst(ainst));
+		} else if (d.type == LOAD || d.type == STORE) {
+			Category cat = (LivenessAnalysis.getSlots(ainst) == 2) 
+					? Category.TWO : Category.ONE;
+			d.value = new Local(cat, slot);
+		}
 	}
 	
 	public static Module makeClinit(Translator translator, String className) {
@@ -275,25 +539,98 @@ public class MethodTranslator implements ModuleMaker {
 	public Module make(Translator translator) {
 		
 		log("%n*** Making: %s ***%n", name);
-		String label = TranslatorUtils.formatName(name, 0);
-		module = new Module(name, 
-				TranslatorUtils.countParams(isStatic(), method),
-				codeAttr.getMaxStack() + 1, // +1 because of exception modeling
-				codeAttr.getMaxLocals());
+		internLabels(translator);
+		fused = null;
+		if (translator.fusesLabels()) {
+			fused = fuseLabels();
+			log("\tFused labels: %d%n", fused.cardinality());
+		}
+		String label = label(0);
+		
+		// Finds the local variables to reset when they die, and their slots
+		int nparams = TranslatorUtils.countParams(isStatic(), method);
+		int maxLocals = codeAttr.getMaxLocals();
+		liveness = null;
+		resetsLocals = compactsLocals = false;
+		if (translator.resetsDeadLocals() || translator.compactsLocals()) {
+			liveness = new LivenessAnalysis(this);
+			if (liveness.compute(nparams)) {
+				resetsLocals = translator.resetsDeadLocals();
+				if (translator.compactsLocals()) {
+					compactsLocals = true;
+					maxLocals = liveness.compact();
+					log("\tCompacted locals: %d -> %d%n", 
+							codeAttr.getMaxLocals(), maxLocals);
+				}
+			} else {
+				liveness = null;
+			}
+		}
+		
+		// Sizes the operand stack by the heights the bytecode reaches
+		int maxStack = codeAttr.getMaxStack() + 1; // +1 because of exception modeling
+		stack = null;
+		if (translator.sizesStacks()) {
+			stack = new StackAnalysis(this);
+			if (stack.compute()) {
+				maxStack = stack.getMaxHeight();
+				log("\tStack height: %d%n", maxStack);
+			} else {
+				stack = null;
+			}
+		}
+		
+		module = new Module(name, nparams, maxStack, maxLocals);
 		
 		// If this is static initializer, 
 		if (isClinit()) {
 			label = makeClinit(translator, module);
 		}
 		
+		// Finds the references that are never null
+		nonNull = null;
+		if (translator.prunesNullChecks()) {
+			nonNull = new NullnessAnalysis(this).compute();
+			log("\tNon-null dereferences: %d%n", nonNull.cardinality());
+		}
+		
+		// Finds the array accesses that are always in bounds
+		inBounds = null;
+		if (translator.prunesBoundChecks()) {
+			inBounds = new IntervalAnalysis(this, translator.getBits()).compute();
+			log("\tRemoved bound checks: %d%n", inBounds.cardinality());
+		}
+		
+		// Finds the instructions in the assertion slice
+		sliced = translator.getSlice(this);
+		ControlFlow cfg = null;
+		if (sliced != null) {
+			cfg = new ControlFlow(this);
+			log("\tSliced instructions: %d%n", sliced.cardinality());
+		}
+		
 		CPInfo[] cp = method.getClassFile().getConstantPool();
 		int size = ainstList.size();
 		for (int i = 0; i < size; i++) {
 			
+			// Makes no rule for a fused instruction
+			if (fused != null && fused.get(i))
+				continue;
+			
+			index = i;
+			entries.clear();
 			AbstractInstruction ainst = ainstList.get(i);
 			ExprSemiring d = InstructionTranslator.translate(translator, cp, ainst);
+			if (compactsLocals)
+				compactLocal(d, ainst);
 			if (i != 0)
-				label = TranslatorUtils.formatName(name, ainst.getOffset());
+				label = labels[i];
+			
+			// Abstracts the instruction outside the assertion slice
+			if (sliced != null && !sliced.get(i)) {
+				havoc(cfg, i, label);
+				continue;
+			}
 			Translator.log("Making %s: %s%n", label, d);
 			
 			switch (ainst.getOpcode()) {
@@ -327,7 +664,7 @@ public class MethodTranslator implements ModuleMaker {
 			
 			case Opcodes.OPCODE_GOTO:
 			case Opcodes.OPCODE_GOTO_W:
-				module.addRule(label, d, TranslatorUtils.branchTarget(name, ainst));
+				module.addRule(label, d, branchTarget(ainst));
 				break;
 			
 			case Opcodes.OPCODE_IF_ACMPEQ:
@@ -338,7 +675,7 @@ public class MethodTranslator implements ModuleMaker {
 			case Opcodes.OPCODE_IF_ICMPGE:
 			case Opcodes.OPCODE_IF_ICMPGT:
 			case Opcodes.OPCODE_IF_ICMPLE:
-				module.addRule(label, d, TranslatorUtils.branchTarget(name, ainst));
+				module.addRule(label, d, branchTarget(ainst));
 				module.addRule(label, new ExprSemiring(IFCMP, negate(ainst.getOpcode())), nextLabel(i));
 				break;
 			
@@ -350,7 +687,7 @@ public class MethodTranslator implements ModuleMaker {
 			case Opcodes.OPCODE_IFLE:
 			case Opcodes.OPCODE_IFNONNULL:
 			case Opcodes.OPCODE_IFNULL:
-				module.addRule(label, d, TranslatorUtils.branchTarget(name, ainst));
+				module.addRule(label, d, branchTarget(ainst));
 				module.addRule(label, 
 						new ExprSemiring(IF, new If(negate(ainst.getOpcode()))), 
 						nextLabel(i));
@@ -408,7 +745,7 @@ public class MethodTranslator implements ModuleMaker {
 				
 			case Opcodes.OPCODE_NEW:
 				if (d.type == JUMP) {
-					String alabel = LabelUtils.formatAssertionName(nextLabel(i));
+					String alabel = LabelUtils.formatAssertionName(labels[i + 1]);
 					module.addRule(label, d, alabel);
 					module.addRule(alabel, ERROR, alabel);
 					i += 3;
@@ -448,7 +785,30 @@ public class MethodTranslator implements ModuleMaker {
 		}
 		
 		Translator.log("%n*****************%n", name);
-		return module;
+		Module made = module;
+		module = null;
+		return made;
+	}
+	
+	/**
+	 * Translates the instruction at index <code>i</code>, which is outside
+	 * the assertion slice, into rules that pop its operands and push
+	 * arbitrary values. The rules go to all successors of a branch.
+	 * 
+	 * @param cfg the control flow graph.
+	 * @param i the instruction index.
+	 * @param label the label of the instruction.
+	 */
+	private void havoc(ControlFlow cfg, int i, String label) {
+		
+		HashSet<String> targets = new HashSet<String>();
+		for (int s : cfg.getSuccessors(i)) {
+			String target = enter(s);
+			if (!targets.add(target)) continue;
+			module.addRule(label, 
+					new ExprSemiring(POPPUSH, new Poppush(cfg.pops(i), cfg.pushes(i))), 
+					target);
+		}
 	}
 	
 	private void athrow(Translator translator, ExprSemiring d,
@@ -467,7 +827,7 @@ public class MethodTranslator implements ModuleMaker {
 			return;
 		}
 		
-		Set<Integer> handled = new HashSet<Integer>();
+		BitSet handled = new BitSet();
 		for (ExceptionTableEntry e : etable) {
 			
 			// Continues if e is not in the scope
@@ -482,29 +842,29 @@ public class MethodTranslator implements ModuleMaker {
 			}
 			
 			// Gets all candidates
-			Set<Integer> candidates = null;
+			BitSet candidates = null;
 			try {
-				candidates = translator.getCastableIds(
-						StubManager.removeStub(cci.getName()));
+				candidates = (BitSet) translator.getCastableBits(
+						StubManager.removeStub(cci.getName())).clone();
 			} catch (InvalidByteCodeException e1) {
 				// TODO Auto-generated catch block
 				e1.printStackTrace();
 			}
 			
 			// Adds a rule
-			candidates.removeAll(handled);
+			candidates.andNot(handled);
 			Condition cond = new Condition(
-					Condition.CONTAINS, candidates);
+					Condition.CONTAINS, setOf(candidates));
 			module.addRule(label, new ExprSemiring(JUMP, Jump.THROW, cond), 
-					TranslatorUtils.formatName(name, e.getHandlerPc()));
+					target(e.getHandlerPc()));
 			
 			// Updates handled
-			handled.addAll(candidates);	
+			handled.or(candidates);	
 		}
 		
 		// Propagates exceptions if not handled
-		handled.add(0);
-		Condition cond = new Condition(Condition.NOTCONTAINS, handled);
+		handled.set(0);
+		Condition cond = new Condition(Condition.NOTCONTAINS, setOf(handled));
 		String label1 = getFreshReturnLabel();
 		module.addRule(label, new ExprSemiring(JUMP, Jump.ONE, cond), label1);
 		
@@ -524,11 +884,14 @@ public class MethodTranslator implements ModuleMaker {
 		int depth = (d.type == ExprType.ARRAYLOAD) ? 1 : category + 1;
 		npe(label, depth);
 		
-		String error = LabelUtils.formatIoobName(label);
-		module.addSharedRule(label, 
-				new ExprSemiring(IOOB, new Npe(depth)), 
-				error);
-		module.addRule(error, ERROR, error);
+		// Omits the check if the index is always in bounds
+		if (inBounds == null || !inBounds.get(index)) {
+			String error = LabelUtils.formatIoobName(label);
+			module.addSharedRule(label, 
+					new ExprSemiring(IOOB, new Npe(depth)), 
+					error);
+			module.addRule(error, ERROR, error);
+		}
 		
 		module.addSharedRule(label, d, nextlabel);
 	}
@@ -569,84 +932,26 @@ public class MethodTranslator implements ModuleMaker {
 		}
 		
 		String fieldName = resolveFieldName(coll, ref[1], translator);
-		HashSet<ClassTranslator> supers = getSuperClassesUntil(eref0, coll, translator);
-//		Set<ClassTranslator> subs = coll.getSubClasses();
-		Set<ClassTranslator> subs = coll.getDescendantClasses();
-		boolean hasCond = supers.size() > 1 || subs != null;
-		int baseid = translator.getObjectBaseId();
-		
-		
-		// Super classes and "this"
-		FieldTranslator field;
-		boolean added = false;
-		for (ClassTranslator superColl : supers) {
-			log("\tsuperColl.getName(): %s%n", superColl.getName());
-			field = superColl.getInstanceFieldTranslator(fieldName);
-			if (field == null) {
-				continue;
-			}
-			Condition cond = null;
-			if (hasCond)
-				cond = new Condition(Condition.CONTAINS, setOf(superColl.getId()));
-			module.addSharedRule(label, 
-					new ExprSemiring(d.type, 
-							new Field(cat, baseid + field.getId()), 
-							cond), 
-					nextlabel);
-			added = true;
-		}
+		FieldTranslator field = (fieldName == null) ? null 
+				: coll.getInstanceFieldTranslator(fieldName);
 		
 		// No fields found
-		if (subs == null) {
-			if (!added) {
-				poppushfield(d.type, cat.intValue(), label, nextlabel);
-			}
+		if (field == null) {
+			poppushfield(d.type, cat.intValue(), label, nextlabel);
 			return;
 		}
 		
-		// Subclasses
-		for (ClassTranslator subColl : subs) {
-			log("\tsubColl.getName(): %s%n", subColl.getName());
-			field = subColl.getInstanceFieldTranslator(fieldName);
-			if (field == null) {
-				log("\t\tfield %s not found%n", fieldName);
-				continue;
-			}
-			Condition cond = new Condition(Condition.CONTAINS, setOf(subColl.getId()));
-			module.addSharedRule(label, 
-					new ExprSemiring(d.type, 
-							new Field(cat, baseid + field.getId()), 
-							cond), 
-					nextlabel);
-			added = true;
-		}
-		
-		if (!added)
+		// Pops the operands, if the field has no cell because it is never read
+		if (field.getId() == 0) {
 			poppushfield(d.type, cat.intValue(), label, nextlabel);
-	}
-	
-	/**
-	 * Collects this class and iteratively all its parent classes until
-	 * the class specified by <code>className</code> is reached.
-	 * 
-	 * @param className
-	 * @param thisColl
-	 * @param translator
-	 * @return
-	 */
-	private HashSet<ClassTranslator> getSuperClassesUntil(String className,
-			ClassTranslator thisColl, Translator translator) {
-		
-		HashSet<ClassTranslator> set = new HashSet<ClassTranslator>();
-		String superName = thisColl.getName();
-		set.add(thisColl);
-		while (!superName.equals(className)) {
-			superName = thisColl.getSuperClassName();
-			ClassTranslator superColl = translator.getClassTranslator(superName);
-			set.add(superColl);
-			thisColl = superColl;
+			return;
 		}
-		return set;
+		
+		// The field has the same id in all subclasses
+		module.addSharedRule(label, 
+				new ExprSemiring(d.type, 
+						new Field(cat, translator.getObjectBaseId() + field.getId())), 
+				nextlabel);
 	}
 	
 	private void poppushstatic(int type, int cat, String label, String nextlabel) {
@@ -686,7 +991,7 @@ public class MethodTranslator implements ModuleMaker {
 	 * @param translator
 	 * @return
 	 */
-	private static FieldTranslator findSuperClassHavingField(ClassTranslator coll, 
+	static FieldTranslator findSuperClassHavingField(ClassTranslator coll, 
 			String fname, Translator translator) {
 		
 		String qname = FieldTranslator.formatName(coll.getName(), fname);
@@ -740,7 +1045,15 @@ public class MethodTranslator implements ModuleMaker {
 			}
 		}
 		
-		d.value = new Field(cat, field.getName());
+		// Pops the stored value, if the field is never read
+		boolean global = !field.isFinal();
+		if (global && d.type == GLOBALSTORE && !translator.isGlobal(field)) {
+			d.type = POPPUSH;
+			d.value = new Poppush(cat.intValue(), 0);
+			global = false;
+		} else {
+			d.value = new Field(cat, field.getName());
+		}
 
 		if (callClinit(translator, coll)) {
 			
@@ -754,7 +1067,7 @@ public class MethodTranslator implements ModuleMaker {
 			// <p, ret0> -> <p, nextlabel> (GLOBALLOAD/GLOBALSTORE, var)
 			Rule r = new Rule(new ExprSemiring(d.type, d.value), 
 					Remopla.p, ret0, Remopla.p, nextlabel);
-			if (!field.isFinal()) r.setGlobal(true);
+			if (global) r.setGlobal(true);
 			module.addRule(r);
 			
 			d.aux = new Condition(Condition.ONE, coll.getName());
@@ -762,7 +1075,7 @@ public class MethodTranslator implements ModuleMaker {
 		
 		// <p, label> -> <p, nextlabel> (GLOBALLOAD/GLOBALSTORE, var, (global, NE))
 		Rule r = new Rule(d, Remopla.p, label, Remopla.p, nextlabel);
-		if (!field.isFinal()) r.setGlobal(true);
+		if (global) r.setGlobal(true);
 		module.addRule(r);
 	}
 	
@@ -791,6 +1104,35 @@ public class MethodTranslator implements ModuleMaker {
 			return false;
 		}
 		
+		invoke(translator, called, label, nextlabel, maker, id, cond);
+		return true;
+	}
+	
+	/**
+	 * Invokes the resolved <code>target</code>.
+	 * 
+	 * @param translator the translator.
+	 * @param called the called method.
+	 * @param label the current label.
+	 * @param nextlabel the next label.
+	 * @param target the target from the dispatch table.
+	 * @param cond <code>true</code> if the call is guarded by the receiver id.
+	 */
+	private void invoke(Translator translator, String[] called, 
+			String label, String nextlabel, DispatchTable.Target target, boolean cond) {
+		
+		if (target.bypassed) {
+			Bypasser.bypass(module, translator, 
+					new String[] { target.coll.getName(), called[1], called[2] }, 
+					label, nextlabel);
+			return;
+		}
+		invoke(translator, called, label, nextlabel, target.maker, target.id, cond);
+	}
+	
+	private void invoke(Translator translator, String[] called, 
+			String label, String nextlabel, ModuleMaker maker, int id, boolean cond) {
+		
 		int nargs = TranslatorUtils.countParams(called[2]) + 1;
 		if (translator.multithreading() && maker.isSynchronized()) {
 			String label1 = getFreshReturnLabel();
@@ -826,19 +1168,40 @@ public class MethodTranslator implements ModuleMaker {
 					GETRETURN, TranslatorUtils.getReturnCategory(called[2]), 
 					nextlabel);
 		}
-		
-		return true;
 	}
 	
-	private void handleException(Translator translator, String label, 
-			String nextlabel, int offset, CPInfo[] cp) {
+	/**
+	 * Adds rules that test the exception status after a call returns to
+	 * <code>label</code>, and continue at <code>nextlabel</code> if it is
+	 * zero. If <code>check</code> is <code>false</code>, no rules are added
+	 * and the call must return to <code>nextlabel</code> directly.
+	 * 
+	 * @param translator the translator.
+	 * @param check <code>true</code> if the status needs a test, see
+	 * 		{@link Translator#needsExceptionCheck(MethodTranslator, String[], boolean)}.
+	 * @param stc <code>true</code> if the call is static.
+	 * @param label the label to which the call returns.
+	 * @param nextlabel the next label.
+	 * @param offset the offset of the call.
+	 * @param cp the constant pool.
+	 */
+	private void handleException(Translator translator, boolean check, boolean stc,
+			String label, String nextlabel, int offset, CPInfo[] cp) {
+		
+		if (!check)
+			return;
 		
 		String n2 = getFreshReturnLabel();
 		String n3 = getFreshReturnLabel();
 		
 		// FIXME the ordering is important for toMoped()
 		
-		// [Exception] GLOBALLOAD pushes the status variable (e)
+		// [Exception] GLOBALLOAD pushes the status variable (e),
+		// on top of the return value unless the call is static
+		if (stack != null) {
+			int height = stc ? stack.getBase(index) : stack.getHeightAfter(index);
+			module.ensureMaxStack(height + 1);
+		}
 		module.addRule(label, new ExprSemiring(GLOBALLOAD, 
 				new Field(Category.ONE, Remopla.e)), n2);
 		
@@ -876,24 +1239,14 @@ public class MethodTranslator implements ModuleMaker {
 			return;
 		
 		// Invokes all possible implementers
-		String freshlabel = getFreshReturnLabel();
-		for (ClassTranslator imp : implementers) {
-			log("\timplementor: %s%n", imp);
-			
-			ClassTranslator toinvoke = imp;
-			ModuleMaker maker = imp.getModuleMaker(called[1], called[2]);
-			if (maker == null) {
-				toinvoke = findSuperClassHavingMethod(imp, called[1], called[2], translator);
-				if (toinvoke == null) {
-					log("\t\tCannot find method %s.%s%s%n", imp.getName(), called[1], called[2]);
-					continue;
-				}
-				log("\ttoinvoke: %s%n", toinvoke);
-			}
-			invoke(translator, called, label, freshlabel, toinvoke, imp.getId(), true);
+		boolean check = translator.needsExceptionCheck(this, called, false);
+		String freshlabel = check ? getFreshReturnLabel() : nextlabel;
+		for (DispatchTable.Target target : translator.getDispatchTable().interfaces(called)) {
+			log("\ttoinvoke: %s%n", target.coll);
+			invoke(translator, called, label, freshlabel, target, true);
 		}
 		
-		handleException(translator, freshlabel, nextlabel, offset, cp);
+		handleException(translator, check, false, freshlabel, nextlabel, offset, cp);
 	}
 	
 	private boolean newThread(Translator translator, String[] called, 
@@ -959,6 +1312,7 @@ public class MethodTranslator implements ModuleMaker {
 		
 		int nargs = TranslatorUtils.countParams(called[2]);
 		boolean isVoid = TranslatorUtils.isVoid(called[2]);
+		boolean check = translator.needsExceptionCheck(this, called, true);
 		
 		// Invokes static initializer (if any)
 		String ret0 = null;
@@ -982,7 +1336,6 @@ public class MethodTranslator implements ModuleMaker {
 		// Invokes the method
 		d.value = new Invoke(true, nargs);
 		fname = TranslatorUtils.formatName(fname, 0);
-		String freshlabel = getFreshReturnLabel();
 		if (isVoid) {
 			if (clinit) {
 				// <p, ret0> -> <p, fname nextlabel> (INVOKE, d.value)
@@ -990,10 +1343,13 @@ public class MethodTranslator implements ModuleMaker {
 			}
 			
 			// <p, label> -> <p, fname nextlabel> (INVOKE, d.value, (global, ONE))
+			String freshlabel = check ? getFreshReturnLabel() : nextlabel;
 			module.addRule(label, d, fname, freshlabel);
 			
-			handleException(translator, freshlabel, nextlabel, offset, cp);
+			handleException(translator, check, true, freshlabel, nextlabel, offset, cp);
 		} else {
+			String freshlabel2 = getFreshReturnLabel();
+			String freshlabel = check ? getFreshReturnLabel() : freshlabel2;
 			if (clinit) {
 				// <p, ret0> -> <p, fname freshlabel> (INVOKE, d.value)
 				module.addRule(ret0, d1, fname, freshlabel);
@@ -1002,8 +1358,7 @@ public class MethodTranslator implements ModuleMaker {
 			// <p, label> -> <p, fname freshlabel> (INVOKE, d.value, (global, ONE))
 			module.addRule(label, d, fname, freshlabel);
 			
-			String freshlabel2 = getFreshReturnLabel();
-			handleException(translator, freshlabel, freshlabel2, offset, cp);
+			handleException(translator, check, true, freshlabel, freshlabel2, offset, cp);
 			
 			// <p, freshlabel> -> <p, nextlabel> (GETRETURN)
 			module.addRule(freshlabel2, 
@@ -1021,14 +1376,14 @@ public class MethodTranslator implements ModuleMaker {
 				String[] equals = new String[] {
 						"java/lang/Object", "equals", "(Ljava/lang/Object;)Z"};
 				
-				ClassTranslator ct = translator.getClassTranslator(equals[0]);
-				HashSet<ClassTranslator> subs = new HashSet<ClassTranslator>();
-				fillSubClassesHavingMethod(subs, ct, equals[1], equals[2], translator);
+				List<DispatchTable.Target> targets 
+						= translator.getDispatchTable().virtual(equals);
 				String freshlabel = getFreshReturnLabel();
 				
 				// Invokes all possible sub classes
-				for (ClassTranslator sub : subs) {
-					invoke(translator, equals, label, freshlabel, sub, sub.getId(), true);
+				if (targets != null) {
+					for (DispatchTable.Target target : targets)
+						invoke(translator, equals, label, freshlabel, target, true);
 				}
 				
 				addAssertRules(freshlabel, Comp.NE, nextlabel, label, Comp.EQ);
@@ -1094,11 +1449,12 @@ public class MethodTranslator implements ModuleMaker {
 			return;
 		}
 		
-		String freshlabel = getFreshReturnLabel();
+		boolean check = translator.needsExceptionCheck(this, called, false);
+		String freshlabel = check ? getFreshReturnLabel() : nextlabel;
 		if (!invoke(translator, called, label, freshlabel, coll, coll.getId(), false))
 			poppush(label, called[2], false, nextlabel, called);
 		else
-			handleException(translator, freshlabel, nextlabel, offset, cp);
+			handleException(translator, check, false, freshlabel, nextlabel, offset, cp);
 	}
 	
 	private void dynamic(Translator translator, String[] called, 
@@ -1159,49 +1515,29 @@ public class MethodTranslator implements ModuleMaker {
 		 * subclasses only.
 		 */
 		
-		// Bypasses, if the class is ignored
-		ClassTranslator coll = translator.getClassTranslator(called[0]);
-		if (coll == null) {
-			poppush(label, called[2], false, nextlabel, called);
-			return;
-		}
-		
-		ModuleMaker maker = coll.getModuleMaker(called[1], called[2]);
-		ClassTranslator superColl = null;
-		if (maker == null) {
-			superColl = findSuperClassHavingMethod(coll, called[1], called[2], translator);
-		}
-		
-		// Bypasses if translator doesn't include the method
-		HashSet<ClassTranslator> subs = new HashSet<ClassTranslator>();
-		fillSubClassesHavingMethod(subs, coll, called[1], called[2], translator);
-		if (superColl == null && subs.isEmpty()) {
+		// Bypasses, if the class is ignored or no class has the method
+		List<DispatchTable.Target> targets = translator.getDispatchTable().virtual(called);
+		if (targets == null || targets.isEmpty()) {
 			poppush(label, called[2], false, nextlabel, called);
 			return;
 		}
 		
 		// cond is true if there are more than one possibilities
-		boolean cond = subs.size() + ((superColl != null) ? 1 : 0) > 1;
+		boolean cond = targets.size() > 1;
 		
 		HashSet<Integer> others = null;
 		if (called[1].equals("hashCode") && called[2].equals("()I"))
 			others = new HashSet<Integer>();
 		
-		// Invokes the first super class that has the method if this class does't have it
-		String freshlabel = getFreshReturnLabel();
-		if (superColl != null) {
-			log("\t\tsuperColl: %s%n", superColl.getName());
-			invoke(translator, called, label, freshlabel, superColl, coll.getId(), cond);
+		// Invokes the first super class that has the method if this class 
+		// does't have it, and all possible sub classes
+		boolean check = translator.needsExceptionCheck(this, called, false);
+		String freshlabel = check ? getFreshReturnLabel() : nextlabel;
+		for (DispatchTable.Target target : targets) {
+			log("\t\ttarget: %s%n", target.coll.getName());
+			invoke(translator, called, label, freshlabel, target, cond);
 			if (others != null)
-				others.add(coll.getId());
-		}
-		
-		// Invokes all possible sub classes
-		for (ClassTranslator subColl : subs) {
-			log("\t\tsubColl: %s%n", subColl.getName());
-			invoke(translator, called, label, freshlabel, subColl, subColl.getId(), cond);
-			if (others != null)
-				others.add(subColl.getId());
+				others.add(target.id);
 		}
 		
 		if (others != null) {
@@ -1211,7 +1547,7 @@ public class MethodTranslator implements ModuleMaker {
 					nextlabel);
 		}
 		
-		handleException(translator, freshlabel, nextlabel, offset, cp);
+		handleException(translator, check, false, freshlabel, nextlabel, offset, cp);
 	}
 	
 	private void newExpr(Translator translator, ExprSemiring d, 
@@ -1273,6 +1609,10 @@ public class MethodTranslator implements ModuleMaker {
 	
 	private void npe(String label, int depth) {
 		
+		// Omits the check if the reference is never null
+		if (nonNull != null && nonNull.get(index))
+			return;
+		
 		String npelabel = LabelUtils.formatNpeName(label);
 		module.addSharedRule(label, 
 				new ExprSemiring(NPE, new Npe(depth)), 
@@ -1299,7 +1639,7 @@ public class MethodTranslator implements ModuleMaker {
 		jsrtable.add(nextlabel);
 		
 		// Jumps
-		module.addRule(freshlabel, d, TranslatorUtils.branchTarget(name, ainst));
+		module.addRule(freshlabel, d, branchTarget(ainst));
 	}
 	
 	private void ldc(Translator translator, ExprSemiring d, 
@@ -1386,14 +1726,14 @@ public class MethodTranslator implements ModuleMaker {
 			
 			module.addRule(label, 
 					new ExprSemiring(IF, new If(If.IS, pair.getMatch())),
-					TranslatorUtils.formatName(name, offset + pair.getOffset()));
+					target(offset + pair.getOffset()));
 			set.add(pair.getMatch());
 		}
 		
 		// Default case
 		module.addRule(label,
 				new ExprSemiring(IF, new If(set)),
-				TranslatorUtils.formatName(name, offset + inst.getDefaultOffset()));
+				target(offset + inst.getDefaultOffset()));
 	}
 	
 	private void tableswitch(Translator translator, ExprSemiring d, 
@@ -1409,13 +1749,13 @@ public class MethodTranslator implements ModuleMaker {
 			
 			module.addRule(label, 
 					new ExprSemiring(IF, new If(If.IS, lowByte + i)),
-					TranslatorUtils.formatName(name, offset + jumpOffsets[i]));
+					target(offset + jumpOffsets[i]));
 		}
 		
 		// Default case
 		module.addRule(label,
 				new ExprSemiring(IF, new If(If.LG, lowByte, highByte)),
-				TranslatorUtils.formatName(name, offset + inst.getDefaultOffset()));
+				target(offset + inst.getDefaultOffset()));
 	}
 	
 	private void returnExpr(Translator translator, ExprSemiring d, 
@@ -1426,6 +1766,10 @@ public class MethodTranslator implements ModuleMaker {
 		}
 		String label1 = getFreshReturnLabel();
 		String label2 = getFreshReturnLabel();
+		
+		// Pushes "this" on the return value, or on the thrown object
+		if (stack != null)
+			module.ensureMaxStack(stack.getHeight(index) + 1);
 		module.addRule(label, new ExprSemiring(LOAD, new Local(Category.ONE, 0)), label1);
 		module.addSharedRule(label1, new ExprSemiring(MONITOREXIT), label2);
 		module.addRule(label2, d);
@@ -1441,7 +1785,7 @@ public class MethodTranslator implements ModuleMaker {
 	 * @param translator the translator.
 	 * @return the resolved field name.
 	 */
-	private String resolveFieldName(ClassTranslator coll, 
+	static String resolveFieldName(ClassTranslator coll, 
 			String fieldName, Translator translator) {
 		
 		String candidate = TranslatorUtils.formatName(coll.getName(), fieldName);
@@ -1510,6 +1854,20 @@ public class MethodTranslator implements ModuleMaker {
 		return new HashSet<Integer>(Arrays.asList(value));
 	}
 	
+	/**
+	 * Returns the set of the indices of the bits set in <code>bits</code>.
+	 * 
+	 * @param bits the bit set.
+	 * @return the set of integers.
+	 */
+	static Set<Integer> setOf(BitSet bits) {
+		
+		Set<Integer> set = new HashSet<Integer>();
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1))
+			set.add(i);
+		return set;
+	}
+	
 	/**
 	 * Negates opcode to its opposite comparison type.
 	 * 
@@ -1565,8 +1923,15 @@ public class MethodTranslator implements ModuleMaker {
 	}
 	
 	private final static String RET = "ret";
-	private static int retcount = 0;
+	private static AtomicInteger retcount = new AtomicInteger();
+	
+	/**
+	 * Returns a fresh label. The labels are unique even if modules
+	 * are made concurrently.
+	 * 
+	 * @return a fresh label.
+	 */
 	public static String getFreshReturnLabel() {
-		return RET + retcount++;
+		return RET + retcount.getAndIncrement();
 	}
 }
@@ -124,6 +124,10 @@ public class MethodWrapper {
 		return methodName;
 	}
 	
+	public String getMethodDesc() {
+		return methodDesc;
+	}
+	
 	public String getName() {
 		return name;
 	}
@@ -198,6 +202,42 @@ public class MethodWrapper {
 		return out;
 	}
 	
+	/**
+	 * Returns the number of heap cells allocated by the method wrapper:
+	 * by the receiver, the integers, and the arrays of the longest lengths
+	 * passed to the initial method.
+	 * 
+	 * @param bits the default number of bits
+	 * @return the number of heap cells
+	 */
+	long countHeapCells(int bits) {
+		
+		long cells = 0;
+		int base = translator.getObjectBaseId();
+		if (!isStatic())
+			cells += 1 + base + translator.getClassTranslator(className).size();
+		
+		int i = 0;
+		for (String param : paramTypes) {
+			
+			// The integer object
+			if (param.equals("Ljava/lang/Integer;")) {
+				ClassTranslator ict = translator.getClassTranslator("java/lang/Integer");
+				if (ict != null) cells += 1 + base + ict.size();
+			}
+			
+			// The object type, the length, (the owner & counter,) and the elements
+			if (param.charAt(0) == '[') {
+				Range range = ranges.get(i);
+				cells += 2 + ((range == null) ? new Range(bits).max : range.max);
+				if (translator.multithreading() && translator.lazy())
+					cells += 2;
+			}
+			i++;
+		}
+		return cells;
+	}
+	
 	/**
 	 * Initializes the local variables: paramTypes, ranges, aranges.
 	 * 
@@ -279,9 +319,9 @@ public class MethodWrapper {
 //		
 //	}
 	
-	private String createInteger(Module init, String from) {
-		// Ensures the stack depth to three
-		init.ensureMaxStack(3);
+	private String createInteger(Module init, String from, int depth) {
+		// Ensures the stack depth for the object, its copy, and the value
+		init.ensureMaxStack(depth + 3);
 		
 		String to = getFreshLabel();
 		ClassTranslator ict = translator.getClassTranslator("java/lang/Integer");
@@ -322,6 +362,7 @@ public class MethodWrapper {
 		ExprSemiring d;
 		
 		Module init = new Module(name, 0, paramTypes.size(), 1);
+		int depth = isStatic() ? 0 : 1;
 		
 		// TODO Calls static initializers of parameters?
 		
@@ -358,7 +399,7 @@ public class MethodWrapper {
 			
 			// Handles java/lang/Integer as parameters
 			if (param.equals("Ljava/lang/Integer;")) {
-				from = createInteger(init, from);
+				from = createInteger(init, from, depth);
 			}
 			
 			to = getFreshLabel();
@@ -374,6 +415,10 @@ public class MethodWrapper {
 					d = new ExprSemiring(PUSH, new Value(cat, min, 1, range.max));
 				}
 				init.addRule(from, d, to);
+				
+				// The arguments stay on the stack until the invocation
+				depth += cat.intValue();
+				init.ensureMaxStack(depth);
 			} else {
 				// Remembers the maximum number of this parameter
 				int min, max;
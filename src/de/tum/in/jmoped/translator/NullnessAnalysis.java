@@ -0,0 +1,461 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.BitSet;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+
+/**
+ * An intraprocedural nullness analysis of the bytecode of a method.
+ * <p>
+ * The analysis finds the instructions with a null-pointer check whose
+ * dereferenced reference is provably non-null: <code>this</code>,
+ * newly allocated objects and arrays, and local variables that are
+ * already dereferenced or tested against <code>null</code>. It tracks
+ * the local variable each stack slot is loaded from, so that a check
+ * refines the variable and the other copies of it on the stack.
+ * <p>
+ * The checks are those made by {@link MethodTranslator}: array loads
+ * and stores, field accesses, and virtual and interface calls.
+ * A dereference refines its reference only if it is checked, because
+ * the model continues after a failed check only through the error.
+ *
+ * @author suwimont
+ *
+ */
+class NullnessAnalysis {
+
+	/**
+	 * The value is <code>null</code>.
+	 */
+	private static final int NULL = 1;
+	
+	/**
+	 * The value is not <code>null</code>.
+	 */
+	private static final int NONNULL = 2;
+	
+	/**
+	 * The value is unknown.
+	 */
+	private static final int UNKNOWN = NULL | NONNULL;
+	
+	/**
+	 * The method translator.
+	 */
+	private MethodTranslator method;
+	
+	/**
+	 * The control flow graph.
+	 */
+	private ControlFlow cfg;
+	
+	/**
+	 * The frames before the instructions; <code>null</code> if not reached.
+	 */
+	private Frame[] frames;
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param method the method translator.
+	 */
+	NullnessAnalysis(MethodTranslator method) {
+		this.method = method;
+		this.cfg = new ControlFlow(method);
+	}
+	
+	/**
+	 * Computes the indices of the checked instructions whose dereferenced
+	 * reference is not <code>null</code>. The result is empty if the method
+	 * has subroutines.
+	 * 
+	 * @return the instruction indices.
+	 */
+	BitSet compute() {
+		
+		BitSet nonNull = new BitSet();
+		int size = cfg.size();
+		if (size == 0 || cfg.hasSubroutines()) return nonNull;
+		
+		// The entry frame: "this" is never null
+		frames = new Frame[size];
+		Frame entry = new Frame(method.codeAttr.getMaxLocals(),
+				method.codeAttr.getMaxStack());
+		for (int i = 0; i < entry.locals.length; i++)
+			entry.locals[i] = UNKNOWN;
+		if (!method.isStatic() && entry.locals.length > 0)
+			entry.locals[0] = NONNULL;
+		frames[0] = entry;
+		
+		BitSet worklist = new BitSet(size);
+		worklist.set(0);
+		for (int i = 0; i >= 0; i = worklist.nextSetBit(0)) {
+			worklist.clear(i);
+			Frame in = frames[i];
+			
+			// Exception handlers start with the thrown object on the stack
+			for (int h : cfg.getHandlers(i)) {
+				Frame f = in.copy();
+				f.sp = 0;
+				f.push(UNKNOWN, -1);
+				if (merge(h, f)) worklist.set(h);
+			}
+			
+			int[] succ = cfg.getSuccessors(i);
+			Frame out = in.copy();
+			int op = cfg.get(i).getOpcode();
+			if (op == Opcodes.OPCODE_IFNULL || op == Opcodes.OPCODE_IFNONNULL) {
+				int origin = out.origins[out.sp - 1];
+				out.pop(1);
+				Frame isNull = out.copy();
+				if (origin >= 0) {
+					isNull.locals[origin] = NULL;
+					out.locals[origin] = NONNULL;
+				}
+				if (merge(succ[0], (op == Opcodes.OPCODE_IFNULL) ? out : isNull))
+					worklist.set(succ[0]);
+				if (merge(succ[1], (op == Opcodes.OPCODE_IFNULL) ? isNull : out))
+					worklist.set(succ[1]);
+				continue;
+			}
+			
+			execute(i, out);
+			for (int s : succ) {
+				if (merge(s, out)) worklist.set(s);
+			}
+		}
+		
+		for (int i = 0; i < size; i++) {
+			int depth = getCheckDepth(i);
+			if (depth < 0 || frames[i] == null) continue;
+			if (frames[i].stack[frames[i].sp - 1 - depth] == NONNULL)
+				nonNull.set(i);
+		}
+		return nonNull;
+	}
+	
+	/**
+	 * Merges <code>f</code> into the frame before the instruction at index
+	 * <code>i</code>.
+	 * 
+	 * @param i the instruction index.
+	 * @param f the frame.
+	 * @return <code>true</code> if the frame changed.
+	 */
+	private boolean merge(int i, Frame f) {
+		
+		if (frames[i] == null) {
+			frames[i] = f.copy();
+			return true;
+		}
+		return frames[i].merge(f);
+	}
+	
+	/**
+	 * Returns the depth of the reference checked for <code>null</code> by
+	 * the instruction at index <code>i</code>, i.e. the number of stack
+	 * slots above it; or -1 if the instruction has no check.
+	 * 
+	 * @param i the instruction index.
+	 * @return the depth; or -1.
+	 */
+	private int getCheckDepth(int i) {
+		
+		switch (cfg.get(i).getOpcode()) {
+		case Opcodes.OPCODE_AALOAD:
+		case Opcodes.OPCODE_BALOAD:
+		case Opcodes.OPCODE_IALOAD:
+		case Opcodes.OPCODE_LALOAD:
+		case Opcodes.OPCODE_SALOAD:
+			return 1;
+		
+		case Opcodes.OPCODE_AASTORE:
+		case Opcodes.OPCODE_BASTORE:
+		case Opcodes.OPCODE_IASTORE:
+		case Opcodes.OPCODE_SASTORE:
+			return 2;
+		
+		case Opcodes.OPCODE_LASTORE:
+			return 3;
+		
+		case Opcodes.OPCODE_GETFIELD:
+			return 0;
+		
+		case Opcodes.OPCODE_PUTFIELD:
+		case Opcodes.OPCODE_INVOKEINTERFACE:
+		case Opcodes.OPCODE_INVOKEVIRTUAL:
+			return cfg.pops(i) - 1;
+		
+		default:
+			return -1;
+		}
+	}
+	
+	/**
+	 * Returns <code>true</code> if the check of the instruction at index
+	 * <code>i</code> is made. Calls translated to prints have none.
+	 * 
+	 * @param i the instruction index.
+	 * @return <code>true</code> if the check is made.
+	 */
+	private boolean isChecked(int i) {
+		
+		AbstractInstruction ainst = cfg.get(i);
+		if (ainst.getOpcode() != Opcodes.OPCODE_INVOKEVIRTUAL)
+			return getCheckDepth(i) >= 0;
+		return !TranslatorUtils.getReferencedName(cfg.getConstantPool(), ainst)[0]
+				.equals("java/io/PrintStream");
+	}
+	
+	/**
+	 * Executes the instruction at index <code>i</code> on the frame
+	 * <code>f</code>.
+	 * 
+	 * @param i the instruction index.
+	 * @param f the frame.
+	 */
+	private void execute(int i, Frame f) {
+		
+		// A checked reference is not null afterwards
+		if (isChecked(i))
+			f.refine(f.sp - 1 - getCheckDepth(i));
+		
+		AbstractInstruction ainst = cfg.get(i);
+		int op = ainst.getOpcode();
+		switch (op) {
+		
+		case Opcodes.OPCODE_ALOAD:
+			load(f, TranslatorUtils.immediateByte(ainst));
+			return;
+		
+		case Opcodes.OPCODE_ALOAD_0:
+		case Opcodes.OPCODE_ALOAD_1:
+		case Opcodes.OPCODE_ALOAD_2:
+		case Opcodes.OPCODE_ALOAD_3:
+			load(f, op - Opcodes.OPCODE_ALOAD_0);
+			return;
+		
+		case Opcodes.OPCODE_ASTORE:
+			store(f, TranslatorUtils.immediateByte(ainst), 1);
+			return;
+		
+		case Opcodes.OPCODE_ASTORE_0:
+		case Opcodes.OPCODE_ASTORE_1:
+		case Opcodes.OPCODE_ASTORE_2:
+		case Opcodes.OPCODE_ASTORE_3:
+			store(f, op - Opcodes.OPCODE_ASTORE_0, 1);
+			return;
+		
+		case Opcodes.OPCODE_ISTORE:
+		case Opcodes.OPCODE_FSTORE:
+			store(f, TranslatorUtils.immediateByte(ainst), 1);
+			return;
+		
+		case Opcodes.OPCODE_LSTORE:
+		case Opcodes.OPCODE_DSTORE:
+			store(f, TranslatorUtils.immediateByte(ainst), 2);
+			return;
+		
+		case Opcodes.OPCODE_ISTORE_0:
+		case Opcodes.OPCODE_ISTORE_1:
+		case Opcodes.OPCODE_ISTORE_2:
+		case Opcodes.OPCODE_ISTORE_3:
+			store(f, op - Opcodes.OPCODE_ISTORE_0, 1);
+			return;
+		
+		case Opcodes.OPCODE_FSTORE_0:
+		case Opcodes.OPCODE_FSTORE_1:
+		case Opcodes.OPCODE_FSTORE_2:
+		case Opcodes.OPCODE_FSTORE_3:
+			store(f, op - Opcodes.OPCODE_FSTORE_0, 1);
+			return;
+		
+		case Opcodes.OPCODE_LSTORE_0:
+		case Opcodes.OPCODE_LSTORE_1:
+		case Opcodes.OPCODE_LSTORE_2:
+		case Opcodes.OPCODE_LSTORE_3:
+			store(f, op - Opcodes.OPCODE_LSTORE_0, 2);
+			return;
+		
+		case Opcodes.OPCODE_DSTORE_0:
+		case Opcodes.OPCODE_DSTORE_1:
+		case Opcodes.OPCODE_DSTORE_2:
+		case Opcodes.OPCODE_DSTORE_3:
+			store(f, op - Opcodes.OPCODE_DSTORE_0, 2);
+			return;
+		
+		case Opcodes.OPCODE_ACONST_NULL:
+			f.push(NULL, -1);
+			return;
+		
+		case Opcodes.OPCODE_NEW:
+		case Opcodes.OPCODE_NEWARRAY:
+		case Opcodes.OPCODE_ANEWARRAY:
+		case Opcodes.OPCODE_MULTIANEWARRAY:
+			f.pop(cfg.pops(i));
+			f.push(NONNULL, -1);
+			return;
+		
+		case Opcodes.OPCODE_CHECKCAST:
+			return;
+		
+		case Opcodes.OPCODE_DUP:
+			f.copy(1, 0);
+			return;
+		
+		case Opcodes.OPCODE_DUP_X1:
+			f.copy(1, 1);
+			return;
+		
+		case Opcodes.OPCODE_DUP_X2:
+			f.copy(1, 2);
+			return;
+		
+		case Opcodes.OPCODE_DUP2:
+			f.copy(2, 0);
+			return;
+		
+		case Opcodes.OPCODE_DUP2_X1:
+			f.copy(2, 1);
+			return;
+		
+		case Opcodes.OPCODE_SWAP: {
+			int v = f.stack[f.sp - 1], o = f.origins[f.sp - 1];
+			f.stack[f.sp - 1] = f.stack[f.sp - 2];
+			f.origins[f.sp - 1] = f.origins[f.sp - 2];
+			f.stack[f.sp - 2] = v;
+			f.origins[f.sp - 2] = o;
+			return;
+		}
+		
+		default:
+			f.pop(cfg.pops(i));
+			for (int j = cfg.pushes(i); j > 0; j--)
+				f.push(UNKNOWN, -1);
+		}
+	}
+	
+	private static void load(Frame f, int index) {
+		f.push(f.locals[index], index);
+	}
+	
+	private static void store(Frame f, int index, int slots) {
+		
+		int value = f.stack[f.sp - 1];
+		f.pop(slots);
+		for (int j = 0; j < slots; j++) {
+			f.locals[index + j] = (slots == 1) ? value : UNKNOWN;
+			f.forget(index + j);
+		}
+	}
+	
+	/**
+	 * The abstract values of the local variables and the stack slots.
+	 */
+	private static class Frame {
+		
+		int[] locals;
+		
+		int[] stack;
+		
+		/**
+		 * The local variable each stack slot is loaded from; or -1.
+		 */
+		int[] origins;
+		
+		int sp;
+		
+		Frame(int maxLocals, int maxStack) {
+			locals = new int[maxLocals];
+			stack = new int[maxStack];
+			origins = new int[maxStack];
+		}
+		
+		Frame copy() {
+			
+			Frame f = new Frame(0, 0);
+			f.locals = locals.clone();
+			f.stack = stack.clone();
+			f.origins = origins.clone();
+			f.sp = sp;
+			return f;
+		}
+		
+		void push(int value, int origin) {
+			stack[sp] = value;
+			origins[sp++] = origin;
+		}
+		
+		void pop(int n) {
+			sp -= n;
+		}
+		
+		/**
+		 * Duplicates the top <code>n</code> slots below the
+		 * <code>skip</code> slots under them.
+		 */
+		void copy(int n, int skip) {
+			
+			int base = sp - n - skip;
+			System.arraycopy(stack, base, stack, base + n, n + skip);
+			System.arraycopy(origins, base, origins, base + n, n + skip);
+			System.arraycopy(stack, sp, stack, base, n);
+			System.arraycopy(origins, sp, origins, base, n);
+			sp += n;
+		}
+		
+		/**
+		 * The stack slot <code>s</code> is not null, nor is the local
+		 * variable it is loaded from and the other copies of it.
+		 */
+		void refine(int s) {
+			
+			stack[s] = NONNULL;
+			int origin = origins[s];
+			if (origin < 0) return;
+			locals[origin] = NONNULL;
+			for (int j = 0; j < sp; j++) {
+				if (origins[j] == origin) stack[j] = NONNULL;
+			}
+		}
+		
+		/**
+		 * The stack slots loaded from the local variable
+		 * <code>index</code> are no longer copies of it.
+		 */
+		void forget(int index) {
+			
+			for (int j = 0; j < sp; j++) {
+				if (origins[j] == index) origins[j] = -1;
+			}
+		}
+		
+		boolean merge(Frame f) {
+			
+			if (f.sp != sp)
+				throw new TranslatorError("Inconsistent stack heights: %d and %d", sp, f.sp);
+			
+			boolean changed = false;
+			for (int j = 0; j < locals.length; j++) {
+				int v = locals[j] | f.locals[j];
+				if (v != locals[j]) {
+					locals[j] = v;
+					changed = true;
+				}
+			}
+			for (int j = 0; j < sp; j++) {
+				int v = stack[j] | f.stack[j];
+				if (v != stack[j]) {
+					stack[j] = v;
+					changed = true;
+				}
+				if (origins[j] != f.origins[j] && origins[j] != -1) {
+					origins[j] = -1;
+					changed = true;
+				}
+			}
+			return changed;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package de.tum.in.jmoped.translator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
+
+import de.tum.in.jmoped.underbone.Remopla;
+
+/**
+ * Writes Remopla code to a character or byte stream,
+ * optionally gzip-compressed.
+ * <p>
+ * The text is written in chunks of {@link #CHUNK} characters, so that no
+ * further copy of the whole program is made while encoding it.
+ *
+ * @author suwimont
+ *
+ */
+public class RemoplaWriter {
+
+	/**
+	 * The number of characters written at a time.
+	 */
+	static final int CHUNK = 8192;
+	
+	/**
+	 * The underlying writer.
+	 */
+	private Writer out;
+	
+	/**
+	 * Constructs a Remopla writer that writes to <code>out</code>.
+	 * 
+	 * @param out the writer.
+	 */
+	public RemoplaWriter(Writer out) {
+		this.out = out;
+	}
+	
+	/**
+	 * Constructs a Remopla writer that writes to <code>out</code> in UTF-8.
+	 * 
+	 * @param out the output stream.
+	 * @param gzip <code>true</code> if the output is gzip-compressed.
+	 * @throws IOException
+	 */
+	public RemoplaWriter(OutputStream out, boolean gzip) throws IOException {
+		this.out = open(out, gzip);
+	}
+	
+	/**
+	 * Constructs a Remopla writer that writes to <code>file</code> in UTF-8.
+	 * The output is gzip-compressed if the file name ends with ".gz".
+	 * The file is closed if the writer cannot be set up.
+	 * 
+	 * @param file the file.
+	 * @throws IOException
+	 */
+	public RemoplaWriter(File file) throws IOException {
+		
+		FileOutputStream stream = new FileOutputStream(file);
+		try {
+			out = open(stream, file.getName().endsWith(".gz"));
+		} catch (IOException e) {
+			stream.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Returns a buffered UTF-8 writer on <code>out</code>.
+	 * 
+	 * @param out the output stream.
+	 * @param gzip <code>true</code> if the output is gzip-compressed.
+	 * @return the writer.
+	 * @throws IOException
+	 */
+	private static Writer open(OutputStream out, boolean gzip) throws IOException {
+		if (gzip)
+			out = new GZIPOutputStream(out, CHUNK);
+		return new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), CHUNK);
+	}
+	
+	/**
+	 * Writes the Remopla code of <code>remopla</code>, followed by a line
+	 * separator, and flushes.
+	 * 
+	 * @param remopla the Remopla.
+	 * @throws IOException
+	 */
+	public void write(Remopla remopla) throws IOException {
+		
+		String moped = remopla.toMoped();
+		for (int i = 0; i < moped.length(); i += CHUNK)
+			out.write(moped, i, Math.min(CHUNK, moped.length() - i));
+		out.write(System.getProperty("line.separator"));
+		out.flush();
+	}
+	
+	/**
+	 * Closes the underlying stream. For gzip-compressed output,
+	 * this also writes the trailer.
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,135 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A stack-height analysis of the bytecode of a method, which sizes
+ * the operand stack of its module.
+ * <p>
+ * The height before each instruction is fixed by the bytecode verifier:
+ * zero at the first instruction, one at an exception handler, and the
+ * height after a predecessor otherwise. Values of category two take two
+ * slots. The maximum over the heights before and after the instructions
+ * is the stack the bytecode needs; {@link MethodTranslator} adds the
+ * slots that its extra rules push on top of these heights.
+ *
+ * @author suwimont
+ *
+ */
+class StackAnalysis {
+
+	/**
+	 * The control flow graph.
+	 */
+	private ControlFlow cfg;
+	
+	/**
+	 * The stack heights before the instructions; -1 if not reached.
+	 */
+	private int[] heights;
+	
+	/**
+	 * The maximum stack height.
+	 */
+	private int max;
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param method the method translator.
+	 */
+	StackAnalysis(MethodTranslator method) {
+		this.cfg = new ControlFlow(method);
+	}
+	
+	/**
+	 * Computes the stack heights. Nothing is computed if the method has
+	 * subroutines, whose return addresses the graph does not follow.
+	 * 
+	 * @return <code>true</code> if the heights are computed.
+	 */
+	boolean compute() {
+		
+		int size = cfg.size();
+		if (size == 0 || cfg.hasSubroutines()) return false;
+		
+		heights = new int[size];
+		Arrays.fill(heights, -1);
+		heights[0] = 0;
+		max = 0;
+		
+		BitSet worklist = new BitSet(size);
+		worklist.set(0);
+		for (int i = 0; i >= 0; i = worklist.nextSetBit(0)) {
+			worklist.clear(i);
+			
+			// Exception handlers start with the thrown object on the stack
+			for (int h : cfg.getHandlers(i)) {
+				if (reach(h, 1)) worklist.set(h);
+			}
+			
+			int out = getHeightAfter(i);
+			max = Math.max(max, Math.max(heights[i], out));
+			for (int s : cfg.getSuccessors(i)) {
+				if (reach(s, out)) worklist.set(s);
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Sets the height before the instruction at index <code>i</code>
+	 * if it is not reached yet.
+	 * 
+	 * @return <code>true</code> if the instruction is newly reached.
+	 */
+	private boolean reach(int i, int height) {
+		
+		if (heights[i] >= 0) return false;
+		heights[i] = height;
+		return true;
+	}
+	
+	/**
+	 * Returns the stack height before the instruction at index
+	 * <code>i</code>.
+	 * 
+	 * @param i the instruction index.
+	 * @return the stack height; or -1 if the instruction is unreachable.
+	 */
+	int getHeight(int i) {
+		return heights[i];
+	}
+	
+	/**
+	 * Returns the stack height below the operands popped by the instruction
+	 * at index <code>i</code>, e.g. the height to which a call returns.
+	 * 
+	 * @param i the instruction index.
+	 * @return the stack height.
+	 */
+	int getBase(int i) {
+		return heights[i] - cfg.pops(i);
+	}
+	
+	/**
+	 * Returns the stack height after the instruction at index
+	 * <code>i</code>, e.g. the height once a call pushes its result.
+	 * 
+	 * @param i the instruction index.
+	 * @return the stack height.
+	 */
+	int getHeightAfter(int i) {
+		return getBase(i) + cfg.pushes(i);
+	}
+	
+	/**
+	 * Returns the maximum stack height of the bytecode.
+	 * 
+	 * @return the maximum stack height.
+	 */
+	int getMaxHeight() {
+		return max;
+	}
+}
@@ -0,0 +1,165 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+
+/**
+ * An index of the subtype relation between the included classes.
+ * <p>
+ * The index is built once, after the class ids have been numbered in
+ * preorder (see {@link ClassTranslator#getMaxDescendantId()}). It holds
+ * one bit set of class ids per interface for its implementers, and one
+ * per class for the classes that are castable to it. Queries then do
+ * not walk the class hierarchy.
+ * <p>
+ * The bit sets returned by the index are shared and must not be modified.
+ *
+ * @author suwimont
+ *
+ */
+class SubtypeIndex {
+
+	/**
+	 * The empty bit set.
+	 */
+	private static final BitSet EMPTY = new BitSet(0);
+	
+	/**
+	 * The included classes, indexed by their ids.
+	 */
+	private ClassTranslator[] classes;
+	
+	/**
+	 * Maps interface names to the ids of their implementers,
+	 * including the descendants of the implementers.
+	 */
+	private HashMap<String, BitSet> implementers = new HashMap<String, BitSet>();
+	
+	/**
+	 * Maps classes to the ids of the classes castable to them.
+	 */
+	private IdentityHashMap<ClassTranslator, BitSet> castable
+			= new IdentityHashMap<ClassTranslator, BitSet>();
+	
+	/**
+	 * Builds the index of the included classes.
+	 * 
+	 * @param translator the translator.
+	 * @param included the included classes.
+	 */
+	SubtypeIndex(Translator translator, Collection<ClassTranslator> included) {
+		
+		classes = new ClassTranslator[included.size() + 1];
+		for (ClassTranslator ct : included)
+			classes[ct.getId()] = ct;
+		
+		// A class implements each super interface of its direct interfaces
+		for (ClassTranslator ct : included) {
+			if (ct.isInterface()) continue;
+			String[] interfaces = ct.getInterfaces();
+			if (interfaces == null) continue;
+			
+			HashSet<String> supers = new HashSet<String>();
+			for (int i = 0; i < interfaces.length; i++)
+				fillSuperInterfaces(translator, supers, interfaces[i]);
+			for (String name : supers) {
+				BitSet bits = implementers.get(name);
+				if (bits == null) {
+					bits = new BitSet(classes.length);
+					implementers.put(name, bits);
+				}
+				bits.set(ct.getId(), ct.getMaxDescendantId() + 1);
+			}
+		}
+		
+		for (ClassTranslator ct : included)
+			castable.put(ct, computeCastable(translator, ct));
+	}
+	
+	/**
+	 * Adds the interface specified by <code>name</code> and, if it is
+	 * included, all interfaces it extends.
+	 * 
+	 * @param translator the translator.
+	 * @param supers the set of interface names.
+	 * @param name the interface name.
+	 */
+	private static void fillSuperInterfaces(Translator translator,
+			HashSet<String> supers, String name) {
+		
+		if (!supers.add(name)) return;
+		ClassTranslator ct = translator.getClassTranslator(name);
+		if (ct == null || !ct.isInterface()) return;
+		String[] interfaces = ct.getInterfaces();
+		if (interfaces == null) return;
+		for (int i = 0; i < interfaces.length; i++)
+			fillSuperInterfaces(translator, supers, interfaces[i]);
+	}
+	
+	/**
+	 * Computes the ids of the classes castable to <code>ct</code>:
+	 * its descendants, its implementers, and for array types the arrays
+	 * of the descendants of the component type.
+	 * 
+	 * @param translator the translator.
+	 * @param ct the class translator.
+	 * @return the bit set of ids.
+	 */
+	private BitSet computeCastable(Translator translator, ClassTranslator ct) {
+		
+		BitSet bits = new BitSet(classes.length);
+		bits.set(ct.getId(), ct.getMaxDescendantId() + 1);
+		if (!ct.isArrayType()) {
+			bits.or(getImplementers(ct.getName()));
+			return bits;
+		}
+		
+		int dim = TranslatorUtils.countDims(ct.getName());
+		ClassTranslator component = translator.getClassTranslator(
+				TranslatorUtils.removeArrayPrefix(ct.getName()));
+		if (component == null) return bits;
+		for (int id = component.getId(); id <= component.getMaxDescendantId(); id++) {
+			ClassTranslator array = translator.getClassTranslator(
+					TranslatorUtils.insertArrayType(classes[id].getName(), dim));
+			if (array != null)
+				bits.set(array.getId());
+		}
+		return bits;
+	}
+	
+	/**
+	 * Returns the class with the given id.
+	 * 
+	 * @param id the class id.
+	 * @return the class translator.
+	 */
+	ClassTranslator getClassTranslator(int id) {
+		return classes[id];
+	}
+	
+	/**
+	 * Returns the ids of the implementers of the interface specified by
+	 * <code>name</code>, including the descendants of the implementers.
+	 * 
+	 * @param name the interface name.
+	 * @return the bit set of ids.
+	 */
+	BitSet getImplementers(String name) {
+		
+		BitSet bits = implementers.get(name);
+		return (bits == null) ? EMPTY : bits;
+	}
+	
+	/**
+	 * Returns the ids of the classes that are castable to <code>ct</code>.
+	 * 
+	 * @param ct the class translator.
+	 * @return the bit set of ids.
+	 */
+	BitSet getCastable(ClassTranslator ct) {
+		return castable.get(ct);
+	}
+}
@@ -0,0 +1,200 @@
+package de.tum.in.jmoped.translator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.TreeSet;
+
+import org.gjt.jclasslib.io.ClassFileReader;
+import org.gjt.jclasslib.structures.ClassFile;
+import org.gjt.jclasslib.structures.InvalidByteCodeException;
+
+import de.tum.in.jmoped.underbone.Module;
+
+/**
+ * A cache that carries parsed classes and translated modules from one
+ * translation to the next, within the same virtual machine.
+ * <p>
+ * Class files are keyed by a digest of their bytes, so that unchanged
+ * classes are not parsed again. Modules are keyed by the digest of
+ * their class, a digest of the classes they depend on
+ * (see {@link Translator#getDependencyKey(ClassTranslator)}),
+ * and the translation options. A module is therefore made again only if
+ * its class, one of its dependencies, or the options changed.
+ * <p>
+ * A cached module is not copied: every Remopla model translated with the
+ * cache holds the same module object. Modules are therefore immutable
+ * once made. A {@link ModuleMaker} releases the module it returns, so
+ * that the translator cannot add rules to it afterwards, and neither may
+ * the users of the models.
+ * <p>
+ * The cache is thread-safe. Pass it to the translators that share it,
+ * when they are constructed (see {@link Translator}).
+ *
+ * @author suwimont
+ *
+ */
+public class TranslationCache {
+
+	/**
+	 * Maps digests of class-file bytes to parsed class files.
+	 */
+	private HashMap<String, ClassFile> classFiles = new HashMap<String, ClassFile>();
+	
+	/**
+	 * Maps the parsed class files to the digests of their bytes.
+	 */
+	private IdentityHashMap<ClassFile, String> digests = new IdentityHashMap<ClassFile, String>();
+	
+	/**
+	 * Maps module keys to modules.
+	 */
+	private HashMap<String, Module> modules = new HashMap<String, Module>();
+	
+	/**
+	 * Number of modules served from this cache.
+	 */
+	private int hits = 0;
+	
+	/**
+	 * Number of modules made because they were not in this cache.
+	 */
+	private int misses = 0;
+	
+	/**
+	 * Returns the class file of the given bytes. The class file is parsed
+	 * only if no class file with the same bytes has been parsed before.
+	 * 
+	 * @param bytes the bytes of the class file.
+	 * @return the class file.
+	 * @throws InvalidByteCodeException
+	 * @throws IOException
+	 */
+	public ClassFile readClassFile(byte[] bytes)
+			throws InvalidByteCodeException, IOException {
+		
+		String digest = digest(bytes);
+		synchronized (this) {
+			ClassFile cf = classFiles.get(digest);
+			if (cf != null) return cf;
+		}
+		
+		ClassFile cf = ClassFileReader.readFromInputStream(new ByteArrayInputStream(bytes));
+		synchronized (this) {
+			ClassFile cached = classFiles.get(digest);
+			if (cached != null) return cached;
+			classFiles.put(digest, cf);
+			digests.put(cf, digest);
+		}
+		return cf;
+	}
+	
+	/**
+	 * Returns the digest of the bytes of the class file <code>cf</code>;
+	 * or <code>null</code> if the class file was not read by this cache.
+	 * 
+	 * @param cf the class file.
+	 * @return the digest; or <code>null</code>.
+	 */
+	public synchronized String getDigest(ClassFile cf) {
+		return digests.get(cf);
+	}
+	
+	/**
+	 * Returns the module stored under <code>key</code>;
+	 * or <code>null</code> if none.
+	 * 
+	 * @param key the module key.
+	 * @return the module; or <code>null</code>.
+	 */
+	synchronized Module getModule(String key) {
+		
+		Module module = modules.get(key);
+		if (module != null) hits++;
+		else misses++;
+		return module;
+	}
+	
+	/**
+	 * Stores the module under <code>key</code>.
+	 * 
+	 * @param key the module key.
+	 * @param module the module.
+	 */
+	synchronized void putModule(String key, Module module) {
+		modules.put(key, module);
+	}
+	
+	/**
+	 * Returns the number of modules served from this cache.
+	 * 
+	 * @return the number of hits.
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of modules that were made because they were not
+	 * in this cache.
+	 * 
+	 * @return the number of misses.
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Removes all class files and modules from this cache.
+	 */
+	public synchronized void clear() {
+		classFiles.clear();
+		digests.clear();
+		modules.clear();
+		hits = 0;
+		misses = 0;
+	}
+	
+	/**
+	 * Returns the hexadecimal SHA-1 digest of the given bytes.
+	 * 
+	 * @param bytes the bytes.
+	 * @return the digest.
+	 */
+	static String digest(byte[] bytes) {
+		
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new TranslatorError("SHA-1 not available.");
+		}
+		byte[] hash = md.digest(bytes);
+		StringBuilder s = new StringBuilder(hash.length * 2);
+		for (int i = 0; i < hash.length; i++)
+			s.append(String.format("%02x", hash[i] & 0xff));
+		return s.toString();
+	}
+	
+	/**
+	 * Returns the digest of the given strings, regardless of their order.
+	 * 
+	 * @param strings the strings.
+	 * @return the digest.
+	 */
+	static String digest(Collection<String> strings) {
+		
+		StringBuilder s = new StringBuilder();
+		for (String string : new TreeSet<String>(strings))
+			s.append(string).append('\n');
+		try {
+			return digest(s.toString().getBytes("UTF-8"));
+		} catch (IOException e) {
+			throw new TranslatorError("%s", e);
+		}
+	}
+}
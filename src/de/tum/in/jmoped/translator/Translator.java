@@ -6,26 +6,28 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
-import org.gjt.jclasslib.bytecode.AbstractInstruction;
-import org.gjt.jclasslib.bytecode.Opcodes;
-import org.gjt.jclasslib.io.ByteCodeReader;
 import org.gjt.jclasslib.structures.CPInfo;
-import org.gjt.jclasslib.structures.ClassFile;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
-import org.gjt.jclasslib.structures.MethodInfo;
-import org.gjt.jclasslib.structures.attributes.CodeAttribute;
-import org.gjt.jclasslib.structures.attributes.ExceptionTableEntry;
 import org.gjt.jclasslib.structures.constants.ConstantClassInfo;
+import org.gjt.jclasslib.structures.constants.ConstantReference;
 import org.gjt.jclasslib.structures.constants.ConstantUtf8Info;
 
+import de.tum.in.jmoped.translator.stub.Bypasser;
 import de.tum.in.jmoped.translator.stub.StubManager;
 import de.tum.in.jmoped.underbone.LabelUtils;
 import de.tum.in.jmoped.underbone.Module;
@@ -52,6 +54,12 @@ public class Translator {
 	 */
 	String[] searchPaths;
 	
+	/**
+	 * The class-location index of the search paths.
+	 * Built once by the constructor.
+	 */
+	ClassPathIndex classPath;
+	
 	/**
 	 * Maps class name to its class translator.
 	 */
@@ -83,6 +91,167 @@ public class Translator {
 	 */
 	private boolean lazy;
 	
+	/**
+	 * The translation cache of this translator; or <code>null</code> if none.
+	 */
+	private TranslationCache cache;
+	
+	/**
+	 * Maps class names to the cache key prefixes of their modules.
+	 */
+	private HashMap<String, String> moduleKeys;
+	
+	/**
+	 * The labels of the control points of the translated methods.
+	 */
+	private LabelTable labels = new LabelTable();
+	
+	/**
+	 * The executor on which modules are made;
+	 * or <code>null</code> if they are made sequentially.
+	 */
+	private ExecutorService executor = null;
+	
+	/**
+	 * The subtype index of the included classes.
+	 */
+	private SubtypeIndex subtypes;
+	
+	/**
+	 * The resolved virtual and interface calls; created on first use.
+	 */
+	private DispatchTable dispatch = null;
+	
+	/**
+	 * If <code>true</code>, only the methods reachable from the starting
+	 * method are translated.
+	 */
+	private boolean pruneMethods = false;
+	
+	/**
+	 * The module makers reachable from the starting method;
+	 * or <code>null</code> if all methods are translated.
+	 */
+	private Set<ModuleMaker> reachable = null;
+	
+	/**
+	 * If <code>true</code>, the exception status is not tested after
+	 * calls that cannot throw.
+	 */
+	private boolean pruneExceptions = true;
+	
+	/**
+	 * The may-throw analysis; or <code>null</code> if the exception status 
+	 * is tested after all calls.
+	 */
+	private ExceptionAnalysis exceptions = null;
+	
+	/**
+	 * If <code>true</code>, null-pointer checks are omitted for 
+	 * references that are never null.
+	 */
+	private boolean pruneNullChecks = true;
+	
+	/**
+	 * If <code>true</code>, index-out-of-bounds checks are omitted for
+	 * array accesses whose indices are always in bounds.
+	 */
+	private boolean pruneBoundChecks = true;
+	
+	/**
+	 * If <code>true</code>, the labels of instructions that only jump
+	 * are fused into the labels of their successors.
+	 */
+	private boolean fuseLabels = true;
+	
+	/**
+	 * If <code>true</code>, local variables are reset to zero when
+	 * they die.
+	 */
+	private boolean resetDeadLocals = true;
+	
+	/**
+	 * If <code>true</code>, local variables with disjoint live ranges
+	 * share their slots.
+	 */
+	private boolean compactLocals = true;
+	
+	/**
+	 * If <code>true</code>, the operand stack of each module is sized
+	 * by the stack heights its rules reach.
+	 */
+	private boolean sizeStacks = true;
+	
+	/**
+	 * If <code>true</code>, the integer static fields are declared with
+	 * the number of bits their values need.
+	 */
+	private boolean inferWidths = false;
+	
+	/**
+	 * The ranges of the fields and array elements.
+	 */
+	private WidthAnalysis widths;
+	
+	/**
+	 * If <code>true</code>, only the static fields read by the translated
+	 * methods are declared.
+	 */
+	private boolean sliceGlobals = true;
+	
+	/**
+	 * The static fields read by the translated methods.
+	 */
+	private GlobalAnalysis globals;
+	
+	/**
+	 * If <code>true</code>, only the instance fields read by the
+	 * translated methods are laid out in the objects.
+	 */
+	private boolean sliceFields = true;
+	
+	/**
+	 * The instance fields read by the translated methods.
+	 */
+	private FieldLayout layout;
+	
+	/**
+	 * If <code>true</code>, the heap is shrunk to the number of cells
+	 * the translated program may allocate.
+	 */
+	private boolean estimateHeap = false;
+	
+	/**
+	 * The allocation sites of the translated methods.
+	 */
+	private HeapAnalysis allocations;
+	
+	/**
+	 * If <code>true</code>, only the instructions on which the assertions
+	 * depend are translated.
+	 */
+	private boolean sliceAssertions = false;
+	
+	/**
+	 * The slice of the translated methods from their assertions.
+	 */
+	private AssertionSlice slice;
+	
+	/**
+	 * The number of classes visited by the class inclusion.
+	 */
+	private int visitedClassCount = 0;
+	
+	/**
+	 * The maximum worklist depth of the class inclusion.
+	 */
+	private int maxWorklistDepth = 0;
+	
+	/**
+	 * The number of threads used for class discovery.
+	 */
+	private int discoveryThreads;
+	
 	/**
 	 * The logger.
 	 */
@@ -106,13 +275,52 @@ public class Translator {
 	public Translator(String className, String[] searchPaths,
 			String methodName, String methodDesc) 
 			throws InvalidByteCodeException, IOException {
+		this(className, searchPaths, methodName, methodDesc, null, 
+				Runtime.getRuntime().availableProcessors(), null);
+	}
+	
+	/**
+	 * The constructor. The class-location index persists its jar listings
+	 * in <code>classIndexCache</code>, so that translators constructed
+	 * afterwards need not rescan unchanged jars. The reachable classes
+	 * are discovered by <code>discoveryThreads</code> threads. The
+	 * translation cache carries parsed classes and translated modules over
+	 * to other translators constructed with the same cache; the cached
+	 * modules are shared by all Remopla models translated with it, and
+	 * must not be modified.
+	 * 
+	 * @param className the class name where the analysis starts.
+	 * @param searchPaths the paths where class files are searched for.
+	 * @param methodName the method name  where the analysis starts.
+	 * @param methodDesc the method descriptor where the analysis starts.
+	 * @param classIndexCache the file where the class-location index
+	 * 		persists jar listings; or <code>null</code> if not persisted.
+	 * @param discoveryThreads the number of threads used for discovering
+	 * 		the reachable classes.
+	 * @param cache the translation cache; or <code>null</code> if none.
+	 * @throws InvalidByteCodeException
+	 * @throws IOException
+	 */
+	public Translator(String className, String[] searchPaths,
+			String methodName, String methodDesc, File classIndexCache,
+			int discoveryThreads, TranslationCache cache) 
+			throws InvalidByteCodeException, IOException {
 		
 		log("searchPaths: %s%n", Arrays.toString(searchPaths));
 		this.searchPaths = searchPaths;
+		this.discoveryThreads = discoveryThreads;
+		classPath = new ClassPathIndex(searchPaths, classIndexCache);
+		this.cache = cache;
+		classPath.setTranslationCache(cache);
 		
 		// Includes relevant methods
 		className = className.replace('.', '/');
-		includeAllMethodsFrom(className);
+		try {
+			includeAllMethodsFrom(className);
+		} finally {
+			// All class files are read by now
+			classPath.close();
+		}
 		logIncluded();
 		
 		// Creates a method wrapper
@@ -128,6 +336,316 @@ public class Translator {
 		return searchPaths;
 	}
 	
+	/**
+	 * Gets the class-location index of the search paths.
+	 * 
+	 * @return the class-location index.
+	 */
+	public ClassPathIndex getClassPathIndex() {
+		return classPath;
+	}
+	
+	/**
+	 * Gets the dispatch table of virtual and interface calls.
+	 * 
+	 * @return the dispatch table.
+	 */
+	synchronized DispatchTable getDispatchTable() {
+		if (dispatch == null)
+			dispatch = new DispatchTable(this);
+		return dispatch;
+	}
+	
+	/**
+	 * Returns <code>true</code> if <code>method</code> must test the
+	 * exception status after calling <code>called</code>.
+	 * 
+	 * @param method the calling method.
+	 * @param called the called method.
+	 * @param stc <code>true</code> if the call is static.
+	 * @return <code>true</code> if the status must be tested.
+	 */
+	boolean needsExceptionCheck(MethodTranslator method, String[] called, boolean stc) {
+		return exceptions == null || exceptions.needsCheck(method, called, stc);
+	}
+	
+	/**
+	 * Gets the label table of the translated methods.
+	 * 
+	 * @return the label table.
+	 */
+	public LabelTable getLabelTable() {
+		return labels;
+	}
+	
+	/**
+	 * Sets the executor on which {@link #translate(int, int, boolean, int, boolean)}
+	 * makes the modules concurrently. If <code>null</code> (the default),
+	 * the modules are made sequentially. The executor is not shut down
+	 * by the translator.
+	 * <p>
+	 * The order of the modules does not depend on the executor.
+	 * The numbering of fresh labels, however, does depend on the
+	 * scheduling of the tasks.
+	 * 
+	 * @param executor the executor; or <code>null</code>.
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+	
+	/**
+	 * Sets whether only the methods reachable from the starting method
+	 * through invoke instructions are translated. By default, all methods
+	 * of all included classes are translated.
+	 * 
+	 * @param prune <code>true</code> if unreachable methods are not translated.
+	 * @see MethodReachability
+	 */
+	public void setMethodPruning(boolean prune) {
+		this.pruneMethods = prune;
+	}
+	
+	/**
+	 * Sets whether the exception status is tested only after calls
+	 * that may throw. By default, it is. The setting has no effect
+	 * on multithreaded programs, where the status is always tested.
+	 * 
+	 * @param prune <code>true</code> if the status is not tested after
+	 * 		calls that cannot throw.
+	 * @see ExceptionAnalysis
+	 */
+	public void setExceptionPruning(boolean prune) {
+		this.pruneExceptions = prune;
+	}
+	
+	/**
+	 * Sets whether null-pointer checks are omitted for references that
+	 * are provably non-null. By default, they are.
+	 * 
+	 * @param prune <code>true</code> if the checks are omitted.
+	 * @see NullnessAnalysis
+	 */
+	public void setNullCheckPruning(boolean prune) {
+		this.pruneNullChecks = prune;
+	}
+	
+	/**
+	 * Returns <code>true</code> if null-pointer checks are omitted for
+	 * references that are provably non-null.
+	 * 
+	 * @return <code>true</code> if the checks are omitted.
+	 */
+	boolean prunesNullChecks() {
+		return pruneNullChecks;
+	}
+	
+	/**
+	 * Sets whether index-out-of-bounds checks are omitted for array
+	 * accesses whose indices are provably in bounds. By default, they are.
+	 * 
+	 * @param prune <code>true</code> if the checks are omitted.
+	 * @see IntervalAnalysis
+	 */
+	public void setBoundCheckPruning(boolean prune) {
+		this.pruneBoundChecks = prune;
+	}
+	
+	/**
+	 * Returns <code>true</code> if index-out-of-bounds checks are omitted
+	 * for array accesses whose indices are provably in bounds.
+	 * 
+	 * @return <code>true</code> if the checks are omitted.
+	 */
+	boolean prunesBoundChecks() {
+		return pruneBoundChecks;
+	}
+	
+	/**
+	 * Sets whether the labels of instructions that only jump, such as 
+	 * <code>goto</code>, are fused into the labels of their successors.
+	 * By default, they are.
+	 * 
+	 * @param fuse <code>true</code> if the labels are fused.
+	 */
+	public void setLabelFusion(boolean fuse) {
+		this.fuseLabels = fuse;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the labels of instructions that only
+	 * jump are fused into the labels of their successors.
+	 * 
+	 * @return <code>true</code> if the labels are fused.
+	 */
+	boolean fusesLabels() {
+		return fuseLabels;
+	}
+	
+	/**
+	 * Sets whether local variables are reset to zero when they die,
+	 * so that states that differ only in dead values coincide.
+	 * By default, they are.
+	 * 
+	 * @param reset <code>true</code> if dead local variables are reset.
+	 * @see LivenessAnalysis
+	 */
+	public void setDeadLocalReset(boolean reset) {
+		this.resetDeadLocals = reset;
+	}
+	
+	/**
+	 * Returns <code>true</code> if local variables are reset to zero
+	 * when they die.
+	 * 
+	 * @return <code>true</code> if dead local variables are reset.
+	 */
+	boolean resetsDeadLocals() {
+		return resetDeadLocals;
+	}
+	
+	/**
+	 * Sets whether local variables with disjoint live ranges share their
+	 * slots, so that the modules declare fewer local variables.
+	 * The compaction is enabled by default.
+	 * 
+	 * @param compact <code>true</code> if local variables are compacted.
+	 * @see LivenessAnalysis
+	 */
+	public void setLocalCompaction(boolean compact) {
+		this.compactLocals = compact;
+	}
+	
+	/**
+	 * Returns <code>true</code> if local variables with disjoint live ranges
+	 * share their slots.
+	 * 
+	 * @return <code>true</code> if local variables are compacted.
+	 */
+	boolean compactsLocals() {
+		return compactLocals;
+	}
+	
+	/**
+	 * Sets whether the operand stack of each module is sized by the stack
+	 * heights its rules reach, instead of the maximum stack of the bytecode
+	 * plus one slot for the exception status. By default, it is.
+	 * 
+	 * @param size <code>true</code> if the stacks are sized precisely.
+	 * @see StackAnalysis
+	 */
+	public void setStackSizing(boolean size) {
+		this.sizeStacks = size;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the operand stack of each module is sized
+	 * by the stack heights its rules reach.
+	 * 
+	 * @return <code>true</code> if the stacks are sized precisely.
+	 */
+	boolean sizesStacks() {
+		return sizeStacks;
+	}
+	
+	/**
+	 * Sets whether the integer static fields are declared with the number
+	 * of bits needed by the values the program stores into them, instead
+	 * of the number of bits of the translation. Only the fields that never
+	 * hold negative values are narrowed. By default, they are not.
+	 * 
+	 * @param infer <code>true</code> if the widths are inferred.
+	 * @see WidthAnalysis
+	 */
+	public void setWidthInference(boolean infer) {
+		this.inferWidths = infer;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the integer static fields are declared
+	 * with the number of bits their values need.
+	 * 
+	 * @return <code>true</code> if the widths are inferred.
+	 */
+	boolean infersWidths() {
+		return inferWidths;
+	}
+	
+	/**
+	 * Sets whether only the static fields read by the translated methods
+	 * are declared as global variables, and the stores into the others
+	 * are dropped. By default, they are.
+	 * 
+	 * @param slice <code>true</code> if the unread static fields are dropped.
+	 * @see GlobalAnalysis
+	 */
+	public void setGlobalSlicing(boolean slice) {
+		this.sliceGlobals = slice;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the static field <code>field</code>
+	 * is declared as a global variable.
+	 * 
+	 * @param field the static field.
+	 * @return <code>true</code> iff the field has a global variable.
+	 */
+	boolean isGlobal(FieldTranslator field) {
+		return globals == null || globals.isRead(field.getName());
+	}
+	
+	/**
+	 * Sets whether only the instance fields read by the translated methods
+	 * occupy heap cells in the objects, and the stores into the others
+	 * are dropped. By default, they do.
+	 * 
+	 * @param slice <code>true</code> if the unread fields are dropped.
+	 * @see FieldLayout
+	 */
+	public void setFieldSlicing(boolean slice) {
+		this.sliceFields = slice;
+	}
+	
+	/**
+	 * Sets whether the heap is shrunk to the number of cells the translated
+	 * program may allocate, if fewer than the given heap size.
+	 * By default, the heap is not shrunk. The estimation is skipped
+	 * for multithreading programs.
+	 * 
+	 * @param estimate <code>true</code> if the heap size is estimated.
+	 * @see HeapAnalysis
+	 */
+	public void setHeapEstimation(boolean estimate) {
+		this.estimateHeap = estimate;
+	}
+	
+	/**
+	 * Sets whether only the instructions on which the assertions depend
+	 * are translated, and only the methods they invoke. The others are
+	 * abstracted into rules that push arbitrary values and branch either
+	 * way, so that no errors but assertion failures are checked precisely.
+	 * By default, all instructions are translated. The slicing is skipped
+	 * for multithreading programs.
+	 * 
+	 * @param slice <code>true</code> if the assertions are sliced.
+	 * @see AssertionSlice
+	 */
+	public void setAssertionSlicing(boolean slice) {
+		this.sliceAssertions = slice;
+	}
+	
+	/**
+	 * Returns the instructions of <code>method</code> to be translated,
+	 * if the assertions are sliced.
+	 * 
+	 * @param method the method translator.
+	 * @return the instruction indices; or <code>null</code> if all
+	 * 		instructions are translated.
+	 */
+	BitSet getSlice(MethodTranslator method) {
+		return (slice == null) ? null : slice.getInstructions(method);
+	}
+	
 	/**
 	 * Gets the default number of bits of integers.
 	 * 
@@ -217,6 +735,68 @@ public class Translator {
 			info("Heap: %s%n", Arrays.toString(heap));
 		}
 		
+		// Finds the reachable methods
+		reachable = null;
+		if (pruneMethods) {
+			reachable = new MethodReachability(this).compute();
+			info("Reachable methods: %d%n", reachable.size());
+		}
+		
+		// Finds the methods that may throw
+		exceptions = null;
+		if (pruneExceptions && !multithreading()) {
+			exceptions = new ExceptionAnalysis(this).compute();
+			info("May-throw methods: %d%n", exceptions.size());
+		}
+		
+		// Slices the methods from the assertions
+		slice = null;
+		if (sliceAssertions && !multithreading()) {
+			AssertionSlice s = new AssertionSlice(this).compute();
+			info("Assertion slice: %d of %d instructions, %d methods%n", 
+					s.size(), s.getTotal(), s.countEntered());
+			slice = s;
+		}
+		
+		// Finds the static fields read
+		globals = null;
+		if (sliceGlobals) {
+			globals = new GlobalAnalysis(this).compute();
+			info("Read static fields: %d, dead stores into %d%n", 
+					globals.size(), globals.countDeadStores());
+		}
+		
+		// Lays out the instance fields read
+		layout = null;
+		if (sliceFields) {
+			layout = new FieldLayout(this).compute();
+			info("Read instance fields: %d, dead stores into %d%n", 
+					layout.size(), layout.countDeadStores());
+		}
+		layoutInstanceFields();
+		
+		// Bounds the heap by the cells allocated
+		allocations = null;
+		if (estimateHeap && !multithreading()) {
+			allocations = new HeapAnalysis(this, bits).compute();
+			long cells = allocations.getCells();
+			info("Heap cells: %s, dominated by %s%n", 
+					(cells == HeapAnalysis.UNBOUNDED) ? "unbounded" : cells, 
+					allocations.getDominantSites(5));
+			if (cells < heap.length) {
+				long[] shrunk = new long[(int) cells];
+				System.arraycopy(heap, 0, shrunk, 0, shrunk.length);
+				heap = shrunk;
+			}
+		}
+		
+		// Infers the widths of fields and array elements
+		widths = null;
+		if (inferWidths) {
+			widths = new WidthAnalysis(this, bits).compute();
+			info("Inferred widths: %s%n", widths.getNarrowed());
+		}
+		
 		// Global vars
 		ArrayList<Variable> gv = new ArrayList<Variable>();
 		gv.add(new Variable(Variable.INT, Remopla.e, bits));
@@ -233,12 +813,15 @@ public class Translator {
 			// Static field
 			for (FieldTranslator field : coll.getStaticFields()) {
 				
-				// Bypasses final field
-				if (field.isFinal()) continue;
+				// Bypasses final field and field never read
+				if (field.isFinal() || !isGlobal(field)) continue;
 				
 				Variable var;
 				if (field.isAssertionsDisabledField())
 					var = new Variable(Variable.BOOLEAN, field.getName());
+				else if (widths != null && field.isInteger())
+					var = new Variable(Variable.INT, field.getName(), 
+							widths.getBits(field.getName()));
 				else
 					var = new Variable(Variable.INT, field.getName(), bits);
 				var.setShared(true);
@@ -259,16 +842,25 @@ public class Translator {
 		// Creates list of module
 		ArrayList<Module> modules = new ArrayList<Module>();
 		modules.add(init.wrap(bits, nondet));
-		for (ClassTranslator coll : included.values()) {
-			for (ModuleMaker module : coll.getModuleMakers()) {
-				modules.add(module.make(this));
-			}
-			
-			// Manually creates a static initializer if not exist
-			if (!coll.getName().startsWith("[") && !coll.containsClinit()) {
-				modules.add(MethodTranslator.makeClinit(this, coll.getName()));
+		computeModuleKeys();
+		if (executor != null) {
+			modules.addAll(makeConcurrently());
+		} else {
+			for (ClassTranslator coll : included.values()) {
+				for (ModuleMaker module : coll.getModuleMakers()) {
+					if (!isReachable(module)) continue;
+					modules.add(makeModule(coll, module));
+				}
+				
+				// Manually creates a static initializer if not exist
+				if (!coll.getName().startsWith("[") && !coll.containsClinit()) {
+					modules.add(makeClinit(coll));
+				}
 			}
 		}
+		if (cache != null)
+			info("Translation cache: %d hits, %d misses%n", 
+					cache.getHits(), cache.getMisses());
 		
 		Remopla remopla = new Remopla(bits, heap, gv, modules, init.getName());
 		log("%n=== Remopla ===%n");
@@ -278,6 +870,254 @@ public class Translator {
 		return remopla;
 	}
 	
+	/**
+	 * Makes the modules of all included classes on the executor.
+	 * The modules are returned in the same order as they are made
+	 * sequentially.
+	 * 
+	 * @return the list of modules.
+	 */
+	private List<Module> makeConcurrently() {
+		
+		// Submits a task for each module
+		ArrayList<Future<Module>> futures = new ArrayList<Future<Module>>();
+		for (final ClassTranslator coll : included.values()) {
+			for (final ModuleMaker module : coll.getModuleMakers()) {
+				if (!isReachable(module)) continue;
+				futures.add(executor.submit(new Callable<Module>() {
+					public Module call() {
+						return makeModule(coll, module);
+					}
+				}));
+			}
+			
+			// Manually creates a static initializer if not exist
+			if (!coll.getName().startsWith("[") && !coll.containsClinit()) {
+				futures.add(executor.submit(new Callable<Module>() {
+					public Module call() {
+						return makeClinit(coll);
+					}
+				}));
+			}
+		}
+		
+		// Collects the modules in order
+		ArrayList<Module> modules = new ArrayList<Module>(futures.size());
+		try {
+			for (Future<Module> future : futures)
+				modules.add(future.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TranslatorError("Module generation interrupted.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new TranslatorError("%s", cause);
+		} finally {
+			for (Future<Module> future : futures)
+				future.cancel(true);
+		}
+		
+		return modules;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the module of <code>maker</code>
+	 * is to be made.
+	 * 
+	 * @param maker the module maker.
+	 * @return <code>true</code> iff the module is to be made.
+	 */
+	boolean isReachable(ModuleMaker maker) {
+		return (reachable == null || reachable.contains(maker))
+				&& (slice == null || slice.isEntered(maker));
+	}
+	
+	/**
+	 * Makes the module of <code>maker</code>, or takes it from the
+	 * translation cache if the class and its dependencies are unchanged.
+	 * 
+	 * @param coll the class translator of the module.
+	 * @param maker the module maker.
+	 * @return the module.
+	 */
+	private Module makeModule(ClassTranslator coll, ModuleMaker maker) {
+		
+		String key = getModuleKey(coll, maker.getName());
+		if (key == null)
+			return maker.make(this);
+		
+		Module module = cache.getModule(key);
+		if (module == null) {
+			module = maker.make(this);
+			cache.putModule(key, module);
+		}
+		return module;
+	}
+	
+	/**
+	 * Makes a static initializer for the class <code>coll</code>
+	 * that does not contain one, or takes it from the translation cache.
+	 * 
+	 * @param coll the class translator.
+	 * @return the module.
+	 */
+	private Module makeClinit(ClassTranslator coll) {
+		
+		String key = getModuleKey(coll, MethodTranslator.clinitOf(coll.getName()));
+		if (key == null)
+			return MethodTranslator.makeClinit(this, coll.getName());
+		
+		Module module = cache.getModule(key);
+		if (module == null) {
+			module = MethodTranslator.makeClinit(this, coll.getName());
+			cache.putModule(key, module);
+		}
+		return module;
+	}
+	
+	/**
+	 * Computes the cache key prefix of each included class, 
+	 * if there is a translation cache.
+	 */
+	private void computeModuleKeys() {
+		
+		moduleKeys = null;
+		if (cache == null) return;
+		
+		String options = String.format("%d/%b/%d/%b/%s/%s/%s/%s/%s/%b/%b/%b/%b/%b/%b", 
+				bits, nondet, tbound, lazy, getInitClassName(), 
+				(exceptions == null) ? "" : exceptions.getKey(), 
+				(globals == null) ? "" : globals.getKey(), 
+				(layout == null) ? "" : layout.getKey(), 
+				(slice == null) ? "" : slice.getKey(), 
+				pruneNullChecks, pruneBoundChecks, fuseLabels, resetDeadLocals, 
+				compactLocals, sizeStacks);
+		moduleKeys = new HashMap<String, String>();
+		for (ClassTranslator coll : included.values()) {
+			String digest = cache.getDigest(coll.getClassFile());
+			if (digest == null) continue;
+			moduleKeys.put(coll.getName(), String.format("%s/%s/%s", 
+					digest, getDependencyKey(coll), options));
+		}
+	}
+	
+	/**
+	 * Returns the cache key of the module specified by <code>name</code>
+	 * in the class <code>coll</code>; or <code>null</code> if the module
+	 * cannot be cached.
+	 * 
+	 * @param coll the class translator.
+	 * @param name the module name.
+	 * @return the cache key; or <code>null</code>.
+	 */
+	private String getModuleKey(ClassTranslator coll, String name) {
+		
+		if (moduleKeys == null) return null;
+		String prefix = moduleKeys.get(coll.getName());
+		if (prefix == null) return null;
+		return prefix + "/" + name;
+	}
+	
+	/**
+	 * Returns a digest of everything the modules of <code>coll</code>
+	 * depend on, besides the class itself: the names, ids and class-file 
+	 * digests of the classes it refers to, together with their super 
+	 * classes, super interfaces, subclasses, and implementers.
+	 * The classes whose modules the bypassed calls invoke
+	 * (see {@link Bypasser#getInvokedModules(String[])}) count as referred
+	 * to, and so does <code>java.lang.Thread</code> if the class refers to
+	 * <code>java.lang.Runnable</code>, since the threads started by
+	 * <code>Runnable.run()</code> run the subclasses of <code>Thread</code>.
+	 * A class that uses <code>java.lang.Class</code> depends on all classes.
+	 * 
+	 * @param coll the class translator.
+	 * @return the dependency digest.
+	 */
+	String getDependencyKey(ClassTranslator coll) {
+		
+		// Collects referenced class names
+		HashSet<String> refs = new HashSet<String>();
+		refs.add(coll.getName());
+		if (coll.references != null)
+			refs.addAll(coll.references);
+		CPInfo[] cp = coll.getClassFile().getConstantPool();
+		for (int i = 0; i < cp.length; i++) {
+			try {
+				if (cp[i] instanceof ConstantClassInfo) {
+					refs.add(((ConstantClassInfo) cp[i]).getName());
+				} else if (cp[i] instanceof ConstantReference) {
+					ConstantReference ref = (ConstantReference) cp[i];
+					String[] called = new String[] {
+							StubManager.removeStub(ref.getClassInfo().getName()),
+							ref.getNameAndTypeInfo().getName(),
+							StubManager.removeStub(ref.getNameAndTypeInfo().getDescriptor()) };
+					for (String invoked : Bypasser.getInvokedModules(called))
+						refs.add(TranslatorUtils.extractClassName(invoked));
+				}
+			} catch (InvalidByteCodeException e) {
+				throw new TranslatorError("%s", e);
+			}
+		}
+		if (refs.contains("java/lang/Runnable"))
+			refs.add("java/lang/Thread");
+		
+		// Collects the classes that determine the translation of the refs
+		HashSet<ClassTranslator> deps = new HashSet<ClassTranslator>();
+		boolean arrays = false;
+		for (String ref : refs) {
+			ref = StubManager.removeStub(ref);
+			if (ref.equals("java/lang/Class")) {
+				deps.addAll(included.values());
+				break;
+			}
+			if (ref.startsWith("[")) {
+				arrays = true;
+				ref = TranslatorUtils.removeArrayPrefix(ref);
+			}
+			ClassTranslator ct = getClassTranslator(ref);
+			if (ct == null) continue;
+			for (ClassTranslator sub : ct.getDescendantClasses())
+				addSupers(deps, sub);
+			for (ClassTranslator imp : getImplementers(ct.getName()))
+				addSupers(deps, imp);
+			addSupers(deps, ct);
+		}
+		if (arrays) {
+			for (ClassTranslator ct : included.values()) {
+				if (ct.isArrayType()) deps.add(ct);
+			}
+		}
+		
+		// Digests the class names, ids, and class files
+		ArrayList<String> fingerprints = new ArrayList<String>(deps.size());
+		for (ClassTranslator ct : deps) {
+			fingerprints.add(String.format("%s#%d#%s", ct.getName(), ct.getId(),
+					(ct.getClassFile() == null) ? "" : cache.getDigest(ct.getClassFile())));
+		}
+		return TranslationCache.digest(fingerprints);
+	}
+	
+	/**
+	 * Adds <code>ct</code> and all its super classes and super interfaces
+	 * to <code>deps</code>.
+	 * 
+	 * @param deps the set of classes.
+	 * @param ct the class translator.
+	 */
+	private void addSupers(Set<ClassTranslator> deps, ClassTranslator ct) {
+		
+		if (ct == null || !deps.add(ct)) return;
+		addSupers(deps, getClassTranslator(ct.getSuperClassName()));
+		String[] interfaces = ct.getInterfaces();
+		if (interfaces == null) return;
+		for (int i = 0; i < interfaces.length; i++)
+			addSupers(deps, getClassTranslator(interfaces[i]));
+	}
+	
 	/**
 	 * Returns the name of the class where the analysis starts.
 	 * 
@@ -297,11 +1137,32 @@ public class Translator {
 	 */
 	public int getSourceLine(String label) {
 		
-		ClassTranslator coll = included.get(TranslatorUtils.extractClassName(label));
-		ModuleMaker module = coll.getModuleMaker(LabelUtils.trimOffset(label));
+		int id = labels.lookup(label);
+		if (id >= 0)
+			return getSourceLine(labels.getModuleName(id), labels.getOffset(id));
+		return getSourceLine(LabelUtils.trimOffset(label), LabelUtils.getOffset(label));
+	}
+	
+	/**
+	 * Gets the source line number of the label <code>id</code>
+	 * in the label table.
+	 * 
+	 * @param id the label id.
+	 * @return the source line number.
+	 * @see #getLabelTable()
+	 */
+	public int getSourceLine(int id) {
+		
+		return getSourceLine(labels.getModuleName(id), labels.getOffset(id));
+	}
+	
+	private int getSourceLine(String moduleName, int offset) {
+		
+		ClassTranslator coll = included.get(TranslatorUtils.extractClassName(moduleName));
+		ModuleMaker module = coll.getModuleMaker(moduleName);
 		if (!(module instanceof MethodTranslator))
 			return -1;
-		return ((MethodTranslator) module).getSourceLine(LabelUtils.getOffset(label));
+		return ((MethodTranslator) module).getSourceLine(offset);
 	}
 	
 	/**
@@ -313,6 +1174,31 @@ public class Translator {
 		return included.values();
 	}
 	
+	/**
+	 * Returns the integer fields and array elements, e.g. <code>[I</code>,
+	 * whose values need fewer bits than the last translation, mapped to
+	 * their numbers of bits.
+	 * 
+	 * @return the inferred widths; or an empty map if none are inferred.
+	 */
+	public Map<String, Integer> getInferredWidths() {
+		if (widths == null) return Collections.emptyMap();
+		return widths.getNarrowed();
+	}
+	
+	/**
+	 * Returns the allocation sites of the last translation, e.g.
+	 * <code>sort/Quicksort.test([I)V@12</code>, mapped to the numbers of
+	 * heap cells they may allocate, in decreasing order.
+	 * 
+	 * @return the allocation sites; or an empty map if the heap size
+	 * 		is not estimated.
+	 */
+	public Map<String, Long> getAllocationSites() {
+		if (allocations == null) return Collections.emptyMap();
+		return allocations.getDominantSites(Integer.MAX_VALUE);
+	}
+	
 	/**
 	 * Returns the class translator of the class specified by className.
 	 * The method also handles the case where the class is a stub.
@@ -379,70 +1265,28 @@ public class Translator {
 	private HashMap<String, HashSet<ClassTranslator>> implementers = 
 		new HashMap<String, HashSet<ClassTranslator>>();
 	
-	private void fillSubInterfaces(HashSet<String> interfaces) {
-		
-		// Considers all interfaces
-		for (ClassTranslator coll : included.values()) {
-			
-			// Bypasses non-interface class
-			if (!coll.isInterface()) continue;
-			
-			// Gets interfaces
-			String[] supers = coll.getInterfaces();
-			if (supers == null) continue;
-			
-			// Adds the this interface to set if it extends the existing interfaces
-			for (int i = 0; i < supers.length; i++) {
-				if (interfaces.contains(supers[i])) {
-					if (interfaces.add(coll.getName()))
-						fillSubInterfaces(interfaces);	// Finds subs of sub
-				}
-			}
-		}
-	}
-	
 	/**
 	 * Gets all translators of classes (including their subclasses) 
 	 * that implement the interface specified by <code>name</code>.
 	 * 
+	 * The sets are cached; the method is thread-safe.
+	 * 
 	 * @param name the interface name.
 	 * @return the class translators.
 	 */
-	public Set<ClassTranslator> getImplementers(String name) {
+	public synchronized Set<ClassTranslator> getImplementers(String name) {
 		
 		// Returns the set if already created
 		HashSet<ClassTranslator> classes = implementers.get(name);
 		if (classes != null) return classes;
 		
-		// Creates new set
+		// Creates new set from the subtype index
+		BitSet bits = subtypes.getImplementers(name);
 		classes = new HashSet<ClassTranslator>();
+		for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1))
+			classes.add(subtypes.getClassTranslator(id));
 		implementers.put(name, classes);
 		
-		// Finds all sub-interfaces of this interface
-		HashSet<String> subs = new HashSet<String>();
-		subs.add(name);
-		fillSubInterfaces(subs);
-		log("Subinterfaces of %s: %s%n", name, subs);
-		
-		// Searches in every included class
-		for (ClassTranslator coll : included.values()) {
-			
-			// Bypasses interface
-			if (coll.isInterface()) continue;
-			
-			// Gets interfaces this class implements
-			String[] interfaces = coll.getInterfaces();
-			if (interfaces == null) continue;
-			
-			// Adds the class to set if it implements the interface or any of its subs
-			for (int i = 0; i < interfaces.length; i++) {
-				if (subs.contains(interfaces[i])) {
-					classes.add(coll);
-					classes.addAll(coll.getDescendantClasses());
-				}
-			}
-		}
-		
 		log("Implementors of %s: %s%n", name, classes);
 		return classes;
 	}
@@ -456,44 +1300,24 @@ public class Translator {
 	 */
 	public Set<Integer> getCastableIds(String className) {
 		
-		Set<Integer> set = new HashSet<Integer>();
+		return MethodTranslator.setOf(getCastableBits(className));
+	}
+	
+	/**
+	 * Gets the ids of all classes that are castable from the class
+	 * specified by <code>className</code>, as a bit set.
+	 * The bit set is shared and must not be modified.
+	 * 
+	 * @param className the class name.
+	 * @return the bit set of class ids.
+	 */
+	BitSet getCastableBits(String className) {
 		
 		log("\tclassName: %s%n", className);
 		ClassTranslator ct = getClassTranslator(className);
 		if (ct == null)
-			return set;
-		
-		// Adds ids of all subs
-		Set<ClassTranslator> subs = ct.getDescendantClasses();
-		for (ClassTranslator sub : subs)
-			set.add(sub.getId());
-	
-		if (!ct.isArrayType()) {
-			// Adds ids of all implementers
-			for (ClassTranslator imp : getImplementers(className))
-				set.add(imp.getId());
-		}
-		
-		// In case of array
-		int dim = TranslatorUtils.countDims(className);
-		if (dim > 0) {
-			ct = getClassTranslator(TranslatorUtils.removeArrayPrefix(className));
-			if (ct != null) {
-				
-				// Gets all subs of the array internal
-				subs = ct.getDescendantClasses();
-				
-				// For each sub, adds the id of the array type of the sub
-				for (ClassTranslator sub : subs) {
-					ct = getClassTranslator(
-							TranslatorUtils.insertArrayType(sub.getName(), dim));
-					if (ct != null)
-						set.add(ct.getId());
-				}
-			}
-		}
-		
-		return set;
+			return new BitSet(0);
+		return subtypes.getCastable(ct);
 	}
 	
 	public MethodArgument[] getMethodArguments(Collection<RawArgument> raws, List<Float> floats) {
@@ -652,6 +1476,8 @@ public class Translator {
 		
 		includeAllReachableClasses(className);
 		updateSubClasses();
+		numberClassesInPreorder();
+		subtypes = new SubtypeIndex(this, included.values());
 		updateInstanceFields();
 		info("Included %d classes%n", included.size());
 	}
@@ -659,153 +1485,99 @@ public class Translator {
 	/**
 	 * Includes all classes that are reachable from the class specified by
 	 * <code>className</code>.
+	 * <p>
+	 * The classes are first discovered in parallel by {@link ClassDiscovery}.
+	 * The ids are then assigned by a depth-first traversal of the
+	 * discovered references, so that they do not depend on the order
+	 * in which the classes were discovered. The traversal uses an explicit
+	 * worklist instead of recursion, so that deep class graphs do not
+	 * exhaust the thread stack.
 	 * 
 	 * @param className
 	 * @throws IOException
 	 * @throws InvalidByteCodeException
 	 */
-	@SuppressWarnings("unchecked")
 	private void includeAllReachableClasses(String className) 
 			throws IOException, InvalidByteCodeException {
 		
-		if (className == null) 
-			return;
-		
-		// Removes stub prefix
-		log("Including class: %s%n", className);
-		String extractedClassName = StubManager.removeStub(className);
-		
-		// Returns if already included
-		if (included.containsKey(extractedClassName))
-			return;
-		
-		// (Recursively) includes array types
-		if (extractedClassName.startsWith("[")) {
-			included.put(extractedClassName, 
-					new ClassTranslator(included.size() + 1, extractedClassName));
-			if (extractedClassName.charAt(1) == '[')
-				includeAllReachableClasses(extractedClassName.substring(1));
-			return;
-		}
+		Map<String, ClassDiscovery.ClassScan> scans = 
+				new ClassDiscovery(this, discoveryThreads).discover(className);
 		
-		// Includes stub first, if any
-		ClassTranslator collection;
-		if (StubManager.hasStub(extractedClassName)) {
-			collection = StubManager.createClassStub(included.size() + 1, className, searchPaths);
-			log("\tstub: %s%n", collection.getName());
-		} 
-		
-		// Skips if ignored
-		else if (isIgnored(className)) {
-			log("Ignored: %s%n%n", className);
-			return;
-		} 
-		
-		// Includes the class
-		else {
-			collection = new ClassTranslator(included.size() + 1, 
-					TranslatorUtils.findClassFile(className, searchPaths));
-		}
-		included.put(extractedClassName, collection);
-		
-		// Interfaces
-		String[] interfaces = collection.getInterfaces();
-		if (interfaces != null) {
-			for (int i = 0; i < interfaces.length; i++) {
-				// Recursively includes for each interface
-				log("\tinterface: %s%n", interfaces[i]);
-				includeAllReachableClasses(interfaces[i]);
-			}
-		}
-		
-		// Super class
-		log("\tsuper: %s%n", collection.getSuperClassName());
-		includeAllReachableClasses(collection.getSuperClassName());
-		
-		// Goes through all methods
-		ClassFile cf = collection.getClassFile();
-		MethodInfo[] methods = cf.getMethods();
-		if (methods == null) return;
-		CPInfo[] cp = cf.getConstantPool();
-		for (int i = 0; i < methods.length; i++) {
+		// Classes are popped in the order the recursive traversal visits them
+		ArrayList<String> worklist = new ArrayList<String>();
+		worklist.add(className);
+		while (!worklist.isEmpty()) {
 			
-			// Includes all classes in parameters
-			log("\tmethod: %s.%s%s%n", collection.getName(), 
-					methods[i].getName(), methods[i].getDescriptor());
-			List<String> params = LabelUtils.getParamTypes(methods[i].getDescriptor());
-			for (String param : params) {
-				if (param.startsWith("[")) {
-					includeAllReachableClasses(param);
-					continue;
-				}
-				if (param.startsWith("L")) {
-					includeAllReachableClasses(param.substring(1, param.length() - 1));
-					continue;
-				}
-			}
+			if (worklist.size() > maxWorklistDepth)
+				maxWorklistDepth = worklist.size();
+			className = worklist.remove(worklist.size() - 1);
+			if (className == null) 
+				continue;
+			visitedClassCount++;
 			
-			// Finds code attribute
-			CodeAttribute code = (CodeAttribute) methods[i].findAttribute(CodeAttribute.class);
-			if (code == null) continue;
+			// Removes stub prefix
+			log("Including class: %s%n", className);
+			String extractedClassName = StubManager.removeStub(className);
 			
-			// Creates new module maker
-			ModuleMaker module = new MethodTranslator(methods[i]);
-			collection.add(module);
+			// Skips if already included
+			if (included.containsKey(extractedClassName))
+				continue;
 			
-			// Goes through exception table
-			ExceptionTableEntry[] etable = code.getExceptionTable();
-			if (etable != null) {
-				for (ExceptionTableEntry e : etable) {
-					ConstantClassInfo cci = (ConstantClassInfo) cp[e.getCatchType()];
-					if (cci == null) {
-						log("ConstantClassInfo at entry %d not found.%n", e.getCatchType());
-						continue;
-					}
-					includeAllReachableClasses(StubManager.removeStub(cci.getName()));
-				}
+			// Includes array types and their component arrays
+			if (extractedClassName.startsWith("[")) {
+				included.put(extractedClassName, 
+						new ClassTranslator(included.size() + 1, extractedClassName));
+				if (extractedClassName.charAt(1) == '[')
+					worklist.add(extractedClassName.substring(1));
+				continue;
 			}
 			
-			// Goes through each instruction
+			ClassDiscovery.ClassScan scan = scans.get(extractedClassName);
+			scan.rethrow();
 			
-			List<AbstractInstruction> ainstList = 
-				(List<AbstractInstruction>) ByteCodeReader.readByteCode(code.getCode());
-			for (AbstractInstruction ainst : ainstList) {
-				
-				String ref = null;
-				switch (ainst.getOpcode()) {
-				
-				case Opcodes.OPCODE_GETSTATIC:
-				case Opcodes.OPCODE_PUTSTATIC:
-				case Opcodes.OPCODE_INVOKEINTERFACE: 	
-				case Opcodes.OPCODE_INVOKESPECIAL:
-				case Opcodes.OPCODE_INVOKESTATIC:
-				case Opcodes.OPCODE_INVOKEVIRTUAL:
-					String[] refs = TranslatorUtils.getReferencedName(cp, ainst);
-					ref = refs[0];
-					
-				case Opcodes.OPCODE_ANEWARRAY:
-					if (ref == null)
-						ref = "[L" + TranslatorUtils.resolveClassName(cp, ainst) + ";";
-					
-				case Opcodes.OPCODE_CHECKCAST:
-				case Opcodes.OPCODE_INSTANCEOF:
-				case Opcodes.OPCODE_MULTIANEWARRAY:
-				case Opcodes.OPCODE_NEW:
-					if (ref == null) {
-						ref = TranslatorUtils.resolveClassName(cp, ainst);
-					}
-					
-				case Opcodes.OPCODE_NEWARRAY:
-					if (ref == null) {
-						ref = TranslatorUtils.getNewarrayType(ainst);
-					}
-					log("\t\tref: %s (from %s)%n", ref, className);
-					includeAllReachableClasses(ref);
-					break;
-				}
+			// Skips if ignored
+			ClassTranslator collection = scan.collection;
+			if (collection == null) {
+				log("Ignored: %s%n%n", className);
+				continue;
+			}
+			if (scan.stub)
+				log("\tstub: %s%n", collection.getName());
+			
+			// Includes the class
+			collection.setId(included.size() + 1);
+			collection.references = scan.refs;
+			included.put(extractedClassName, collection);
+			
+			// Interfaces, super class, and references from methods:
+			// pushed in reverse, so that the first reference is visited first
+			for (int i = scan.refs.size() - 1; i >= 0; i--) {
+				log("\t\tref: %s (from %s)%n", scan.refs.get(i), className);
+				worklist.add(scan.refs.get(i));
 			}
 		}
-		log("%n");
+		info("Visited %d classes, maximum worklist depth %d%n", 
+				visitedClassCount, maxWorklistDepth);
+	}
+	
+	/**
+	 * Returns the number of classes visited while including the reachable
+	 * classes. A class is counted once per reference to it.
+	 * 
+	 * @return the number of visited classes.
+	 */
+	public int getVisitedClassCount() {
+		return visitedClassCount;
+	}
+	
+	/**
+	 * Returns the maximum depth of the worklist while including the
+	 * reachable classes.
+	 * 
+	 * @return the maximum worklist depth.
+	 */
+	public int getMaxWorklistDepth() {
+		return maxWorklistDepth;
 	}
 	
 	/**
@@ -840,23 +1612,133 @@ public class Translator {
 		}
 	}
 	
+	/**
+	 * Renumbers the included classes by a preorder walk of the class
+	 * hierarchy, so that the ids of each class and its descendants form
+	 * a contiguous range. Sets of castable classes, exception handlers,
+	 * and dispatch guards then become few intervals of ids, which are
+	 * encoded by small BDDs.
+	 * <p>
+	 * Roots and subclasses are walked in the order of the ids assigned by
+	 * {@link #includeAllReachableClasses(String)}, so that the numbering
+	 * is deterministic.
+	 * 
+	 * @see ClassTranslator#getMaxDescendantId()
+	 */
+	private void numberClassesInPreorder() {
+		
+		Comparator<ClassTranslator> byId = new Comparator<ClassTranslator>() {
+			public int compare(ClassTranslator ct1, ClassTranslator ct2) {
+				return ct1.getId() - ct2.getId();
+			}
+		};
+		
+		// Finds the roots of the hierarchy
+		HashSet<ClassTranslator> children = new HashSet<ClassTranslator>();
+		for (ClassTranslator ct : included.values()) {
+			if (ct.getSubClasses() != null)
+				children.addAll(ct.getSubClasses());
+		}
+		ArrayList<ClassTranslator> roots = new ArrayList<ClassTranslator>();
+		for (ClassTranslator ct : included.values()) {
+			if (!children.contains(ct))
+				roots.add(ct);
+		}
+		Collections.sort(roots, byId);
+		
+		// Walks the hierarchy in preorder
+		ArrayList<ClassTranslator> order = new ArrayList<ClassTranslator>(included.size());
+		ArrayList<ClassTranslator> stack = new ArrayList<ClassTranslator>();
+		for (int i = roots.size() - 1; i >= 0; i--)
+			stack.add(roots.get(i));
+		while (!stack.isEmpty()) {
+			ClassTranslator ct = stack.remove(stack.size() - 1);
+			order.add(ct);
+			if (ct.getSubClasses() == null) continue;
+			
+			ArrayList<ClassTranslator> subs = new ArrayList<ClassTranslator>(ct.getSubClasses());
+			Collections.sort(subs, byId);
+			for (int i = subs.size() - 1; i >= 0; i--)
+				stack.add(subs.get(i));
+		}
+		
+		// Assigns the ids, and the ranges from the leaves up
+		for (int i = 0; i < order.size(); i++)
+			order.get(i).setId(i + 1);
+		for (int i = order.size() - 1; i >= 0; i--) {
+			ClassTranslator ct = order.get(i);
+			int max = ct.getId();
+			if (ct.getSubClasses() != null) {
+				for (ClassTranslator sub : ct.getSubClasses())
+					max = Math.max(max, sub.getMaxDescendantId());
+			}
+			ct.setMaxDescendantId(max);
+		}
+	}
+	
 	/**
 	 * Updates instance fields for each class:
-	 * (i) Copies all fields from its parent classes.
-	 * (ii) Assigns a unique id to each field. The id begins with one in case
-	 * of non-multithreading; and two in multithreading case.
+	 * (i) Shares all fields of its parent classes.
+	 * (ii) Assigns an id to each field (see {@link #layoutInstanceFields()}).
 	 */
 	private void updateInstanceFields() {
 		
 		HashSet<ClassTranslator> updated 
 				= new HashSet<ClassTranslator>((int) (1.4*included.size()));
 		for (ClassTranslator ct : included.values()) {
-			HashMap<String, FieldTranslator> fields = getSuperInstanceFields(updated, ct);
-			int id = 1;
-			for (FieldTranslator field : fields.values()) {
-				field.setId(id++);
-			}
+			getSuperInstanceFields(updated, ct);
 		}
+		layoutInstanceFields();
+	}
+	
+	/**
+	 * Numbers the instance fields of each class, such that the layout
+	 * of a class extends the one of its super class: the inherited fields
+	 * keep their ids, and the fields declared by the class follow.
+	 * A field thus has the same id in all classes, and its access needs
+	 * no test of the runtime class. Only the fields read are numbered
+	 * if the fields are sliced; the others have id zero and no heap cell.
+	 */
+	private void layoutInstanceFields() {
+		
+		HashMap<ClassTranslator, Integer> sizes 
+				= new HashMap<ClassTranslator, Integer>((int) (1.4*included.size()));
+		for (ClassTranslator ct : included.values()) {
+			layoutInstanceFields(sizes, ct);
+		}
+	}
+	
+	/**
+	 * Recursively numbers the instance fields of the parent classes,
+	 * and then the ones declared by <code>ct</code>.
+	 * 
+	 * @param sizes maps the classes already numbered to their sizes.
+	 * @param ct the class translator.
+	 * @return the size of the class.
+	 */
+	private int layoutInstanceFields(HashMap<ClassTranslator, Integer> sizes, 
+			ClassTranslator ct) {
+		
+		Integer size = sizes.get(ct);
+		if (size != null) return size;
+		
+		int id = 0;
+		ClassTranslator superct = getClassTranslator(ct.getSuperClassName());
+		if (superct != null) id = layoutInstanceFields(sizes, superct);
+		for (FieldTranslator field : ct.instanceFields.values()) {
+			
+			// Bypasses the inherited field
+			if (superct != null 
+					&& superct.getInstanceFieldTranslator(field.getName()) == field)
+				continue;
+			
+			if (layout == null || layout.isRead(field))
+				field.setId(++id);
+			else
+				field.setId(0);
+		}
+		sizes.put(ct, id);
+		return id;
 	}
 	
 	/**
@@ -881,7 +1763,7 @@ public class Translator {
 		HashMap<String, FieldTranslator> superFields 
 				= getSuperInstanceFields(updated, superct);
 		for (Map.Entry<String, FieldTranslator> superEntry : superFields.entrySet()) {
-			thisFields.put(superEntry.getKey(), (FieldTranslator) superEntry.getValue().clone());
+			thisFields.put(superEntry.getKey(), superEntry.getValue());
 		}
 		return thisFields;
 	}
@@ -892,7 +1774,7 @@ public class Translator {
 		ignoreJavaLibrary = ignore;
 	}
 	
-	private boolean isIgnored(String className) {
+	boolean isIgnored(String className) {
 		return isPackageIgnored(className);
 	}
 	
@@ -979,7 +1861,9 @@ public class Translator {
 		String newline = System.getProperty("line.separator");
 		System.err.println(newline 
 				+ "Java-bytecode-to-Remopla translator" + newline + newline
-				+ "Parameters: [package/]class.method bits heapsize [path1 ...]" + newline + newline
+				+ "Parameters: [-o file[.gz]] [package/]class.method bits heapsize [path1 ...]" + newline + newline
+				+ "Options: -o writes the Remopla code to the file instead of the standard output;" + newline
+				+ "            the file is gzip-compressed if its name ends with .gz" + newline + newline
 				+ "Examples: \"sort/Quicksort.test([I)V\" 4 15 \"/home/suwimont/examples/bin\"" + newline
 		);
 		System.exit(1);
@@ -988,9 +1872,16 @@ public class Translator {
 	/**
 	 * Starts the translator from command line.
 	 * 
-	 * @param args the arguments: [method, bits, heapsize, searchpaths]
+	 * @param args the arguments: [-o file, method, bits, heapsize, searchpaths]
 	 */
 	public static void main(String[] args) {
+		// Reads the output file (if any)
+		File output = null;
+		if (args.length >= 2 && args[0].equals("-o")) {
+			output = new File(args[1]);
+			args = Arrays.copyOfRange(args, 2, args.length);
+		}
+		
 		// Needs at least 3 arguments
 		if (args.length < 3) {
 			usage();
@@ -1038,7 +1929,16 @@ public class Translator {
 			int heapSize = Integer.parseInt(args[2]);
 			Remopla remopla = translator.translate(bits, heapSize, true, 1, false);
 //			System.out.println(remopla);
-			System.out.println(remopla.toMoped());
+			
+			// Writes to the output file or to the standard output
+			RemoplaWriter writer = (output != null) 
+					? new RemoplaWriter(output) 
+					: new RemoplaWriter(System.out, false);
+			try {
+				writer.write(remopla);
+			} finally {
+				if (output != null) writer.close();
+			}
 		} catch (Throwable e) {
 			e.printStackTrace();
 		}
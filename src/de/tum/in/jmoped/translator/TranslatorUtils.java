@@ -3,8 +3,7 @@ package de.tum.in.jmoped.translator;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.InputStream;
 import java.util.List;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -64,87 +63,34 @@ public class TranslatorUtils {
 	}
 
 	/**
-	 * Searches all classpath directories for the file and all jars, otherwise
-	 * looks into the rt.jar
+	 * Looks up the class in the class-location index, otherwise
+	 * looks into the stubs.
 	 * 
-	 * @param className packages are expected to be separated by a '/' 
+	 * @param className packages are expected to be separated by a '/'
 	 * or '.' , e.g. "java/util/StringTokenizer" or "java.util.StringTokenizer"
+	 * @param index the class-location index.
 	 * @throws Exception if there was an error reading the class file or the
 	 * file was not found
 	 */
-	public static ClassFile findClassFile(String className,
-			String[] searchPaths) throws InvalidByteCodeException, IOException {
+	public static ClassFile findClassFile(ClassPathIndex index, String className)
+			throws InvalidByteCodeException, IOException {
 		
-		// Creates file name of the class name
 		Translator.log("TranslatorUtils.findClassFile(%s)%n", className);
-		String replacement = File.separator;
-		if (replacement.equals("\\"))
-			replacement = "\\\\";
-		String filename = className.replaceAll("/|\\.", replacement) + ".class";
-		Translator.log("\tfilename: %s%n", filename);
-		
-		// Joins the given search paths and the classpaths
-		ArrayList<String> paths = new ArrayList<String>();
-		if (searchPaths != null)
-			paths.addAll(Arrays.asList(searchPaths));
-		String[] classpaths = System.getProperty("java.class.path",".")
-				.split(System.getProperty("path.separator"));
-		if (classpaths != null)
-			paths.addAll(Arrays.asList(classpaths));
-		
-		ClassFile cf;
-		for (String path : paths) {
-			File f = new File(path);
-			// if path is a file, it must be a jar file -> looks inside
-			if (f.isFile()) {
-				cf = findClassFile(new JarFile(f), filename);
-				if (cf != null) return cf;
-			}
-			// if path is a folder
-			else {
-				File possibleClassFile = new File(f, filename);
-				if (possibleClassFile.isFile()) {
-					return ClassFileReader.readFromFile(possibleClassFile);
-				}
-			}
-		}
+		ClassFile cf = index.findClassFile(className);
+		if (cf != null) return cf;
 		
 		// Finds in stubs
 		cf = StubManager.findClassFile(className);
 		if (cf != null) return cf;
 		
-		// Falls back to JAVA_HOME/jre/lib/rt.jar
-		File rtFile = new File(JAVA_HOME,  File.separator + "jre" 
-				+ File.separator + "lib" + File.separator + "rt.jar");
-		if (rtFile.isFile()) {
-			Translator.log("\trt.jar: %s%n", rtFile.getAbsolutePath());
-			cf = findClassFile(new JarFile(rtFile), filename);
-			if (cf != null) return cf;
-		}
-		
-		// Falls back to JAVA_HOME/lib/rt.jar
-		rtFile = new File(JAVA_HOME, File.separator + "lib" + File.separator + "rt.jar");
-		if (rtFile.isFile()) {
-			Translator.log("\trt.jar: %s%n", rtFile.getAbsolutePath());
-			cf = findClassFile(new JarFile(rtFile), filename);
-			if (cf != null) return cf;
-		}
-		
-		// Falls back to JAVA_HOME/Classes/classes.jar (MacOS X)
-		rtFile = new File(JAVA_HOME, File.separator + "Classes" + File.separator + "classes.jar");
-		if (rtFile.isFile()) {
-			cf = findClassFile(new JarFile(rtFile), filename);
-			if (cf != null) return cf;
-		}
-		
 		throw new FileNotFoundException(String.format(
-				"File for class %s not found in %s or rt.jar.", 
-				className, paths));
+				"File for class %s not found in %s or rt.jar.",
+				className, index.getPaths()));
 	}
 	
 	/**
 	 * Converts the filesystem path to a jar path and looks it up in the
-	 * jarFile. 
+	 * jarFile.
 	 * <p>
 	 * If successful a class file object is returned.
 	 * @throws Exception
@@ -153,17 +99,36 @@ public class TranslatorUtils {
 			throws InvalidByteCodeException, IOException {
 		
 	    try {
-	    	String jarPath = path.replace(File.separatorChar, '/');
-	        JarEntry jarEntry = jarFile.getJarEntry(jarPath);
-	        if (jarEntry != null) {
-	        	return ClassFileReader.readFromInputStream
-					(jarFile.getInputStream(jarEntry));
-	        }
+	    	return readClassFile(jarFile, path);
 	    } 
 	    finally {
 	        jarFile.close();
 	    }	
-	    return null;
+	}
+	
+	/**
+	 * Converts the filesystem path to a jar path and looks it up in the
+	 * jarFile. Unlike {@link #findClassFile(JarFile, String)}, the jar file
+	 * is left open, so that it can be reused for further lookups.
+	 * 
+	 * @param jarFile the jar file.
+	 * @param path the path of the class file.
+	 * @return the class file; or <code>null</code> if not found.
+	 * @throws InvalidByteCodeException
+	 * @throws IOException
+	 */
+	public static ClassFile readClassFile(JarFile jarFile, String path)
+			throws InvalidByteCodeException, IOException {
+		
+		String jarPath = path.replace(File.separatorChar, '/');
+		JarEntry jarEntry = jarFile.getJarEntry(jarPath);
+		if (jarEntry == null) return null;
+		InputStream in = jarFile.getInputStream(jarEntry);
+		try {
+			return ClassFileReader.readFromInputStream(in);
+		} finally {
+			in.close();
+		}
 	}
 
 	/**
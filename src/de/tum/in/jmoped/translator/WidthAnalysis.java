@@ -0,0 +1,319 @@
+package de.tum.in.jmoped.translator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.gjt.jclasslib.bytecode.AbstractInstruction;
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.gjt.jclasslib.structures.CPInfo;
+
+/**
+ * Infers the number of bits needed by the integer fields and array
+ * elements, from the values the program stores into them.
+ * <p>
+ * The locations are the static fields, the instance fields, and the
+ * elements of the arrays of each primitive type. All start with zero.
+ * The values stored by each method are found by an
+ * {@link IntervalAnalysis}, in which a load yields the values stored so far.
+ * The analysis of all methods is repeated until no range grows; a range
+ * that grows more than {@link #WIDEN} times is widened to all integers.
+ * If the ranges still grow after {@link #ROUNDS} rounds, no location
+ * is narrowed.
+ * <p>
+ * Some values are not stored by the bytecode: the arrays passed to the
+ * starting method, and the contents of string constants. Their locations
+ * range over all integers. The width of a location is the smallest number
+ * of bits whose range, in the sense of {@link MethodWrapper.Range},
+ * contains the values of the location. A location that may hold a
+ * negative value keeps the width of the translation, so that narrowing
+ * never depends on how a narrower variable is sign-extended when loaded.
+ *
+ * @author suwimont
+ *
+ */
+class WidthAnalysis {
+
+	/**
+	 * The number of times a range grows before it is widened.
+	 */
+	private static final int WIDEN = 3;
+	
+	/**
+	 * The number of rounds after which the analysis gives up.
+	 */
+	private static final int ROUNDS = 16;
+	
+	/**
+	 * The translator.
+	 */
+	private Translator translator;
+	
+	/**
+	 * The number of bits of the translation.
+	 */
+	private int bits;
+	
+	/**
+	 * The smallest integer.
+	 */
+	private int min;
+	
+	/**
+	 * The largest integer.
+	 */
+	private int max;
+	
+	/**
+	 * Maps the locations to the ranges of their values.
+	 */
+	private HashMap<String, int[]> ranges = new HashMap<String, int[]>();
+	
+	/**
+	 * Maps the locations to the ranges stored in the current round.
+	 */
+	private HashMap<String, int[]> stored;
+	
+	/**
+	 * Maps the locations to the number of times their ranges grew.
+	 */
+	private HashMap<String, Integer> grown = new HashMap<String, Integer>();
+	
+	/**
+	 * <code>true</code> if the ranges did not settle within
+	 * {@link #ROUNDS} rounds.
+	 */
+	private boolean exhausted;
+	
+	/**
+	 * The constructor.
+	 * 
+	 * @param translator the translator.
+	 * @param bits the number of bits of the translation.
+	 */
+	WidthAnalysis(Translator translator, int bits) {
+		
+		this.translator = translator;
+		this.bits = bits;
+		MethodWrapper.Range range = new MethodWrapper.Range(bits);
+		min = range.min;
+		max = range.max;
+	}
+	
+	/**
+	 * Computes the ranges of all locations.
+	 * 
+	 * @return this analysis.
+	 */
+	WidthAnalysis compute() {
+		
+		boolean changed = true;
+		for (int round = 0; changed; round++) {
+			if (round == ROUNDS) {
+				exhausted = true;
+				break;
+			}
+			stored = new HashMap<String, int[]>();
+			seed();
+			for (ClassTranslator coll : translator.getClassTranslators()) {
+				for (ModuleMaker maker : coll.getModuleMakers()) {
+					if (maker instanceof MethodTranslator)
+						new IntervalAnalysis((MethodTranslator) maker, bits, this).compute();
+				}
+			}
+			changed = update();
+		}
+		stored = null;
+		return this;
+	}
+	
+	/**
+	 * Stores all integers into the locations whose values are not stored
+	 * by the bytecode.
+	 */
+	private void seed() {
+		
+		// The arrays passed to the starting method
+		String desc = translator.init.getMethodDesc();
+		desc = desc.substring(1, desc.indexOf(')'));
+		for (int i = desc.indexOf('['); i >= 0; i = desc.indexOf('[', i + 1)) {
+			String key = getArrayKey(desc.charAt(i + 1));
+			if (key != null) store(key, min, max);
+		}
+		
+		// The contents of string constants
+		store(getArrayKey('C'), min, max);
+		ClassTranslator string = translator.getClassTranslator("java/lang/String");
+		if (string != null) {
+			for (FieldTranslator field : string.getInstanceFields())
+				store(field.getName(), min, max);
+		}
+	}
+	
+	/**
+	 * Joins the stored ranges into the ranges of the locations.
+	 * 
+	 * @return <code>true</code> if any range grew.
+	 */
+	private boolean update() {
+		
+		boolean changed = false;
+		for (Map.Entry<String, int[]> entry : stored.entrySet()) {
+			String key = entry.getKey();
+			int[] s = entry.getValue();
+			int[] r = ranges.get(key);
+			if (r == null) r = new int[] { 0, 0 };
+			if (s[0] >= r[0] && s[1] <= r[1]) {
+				ranges.put(key, r);
+				continue;
+			}
+			
+			int n = grown.containsKey(key) ? grown.get(key) + 1 : 1;
+			grown.put(key, n);
+			if (n > WIDEN)
+				ranges.put(key, new int[] { min, max });
+			else
+				ranges.put(key, new int[] { Math.min(r[0], s[0]), Math.max(r[1], s[1]) });
+			changed = true;
+		}
+		return changed;
+	}
+	
+	/**
+	 * Returns the location accessed by <code>ainst</code>.
+	 * 
+	 * @param cp the constant pool.
+	 * @param ainst the instruction.
+	 * @return the location; or <code>null</code> if <code>ainst</code>
+	 * 		accesses no integer field or array element of the model.
+	 */
+	String getKey(CPInfo[] cp, AbstractInstruction ainst) {
+		
+		switch (ainst.getOpcode()) {
+		case Opcodes.OPCODE_IALOAD:
+		case Opcodes.OPCODE_IASTORE:
+			return getArrayKey('I');
+		
+		case Opcodes.OPCODE_BALOAD:
+		case Opcodes.OPCODE_BASTORE:
+			return getArrayKey('B');
+		
+		case Opcodes.OPCODE_CALOAD:
+		case Opcodes.OPCODE_CASTORE:
+			return getArrayKey('C');
+		
+		case Opcodes.OPCODE_SALOAD:
+		case Opcodes.OPCODE_SASTORE:
+			return getArrayKey('S');
+		
+		case Opcodes.OPCODE_GETSTATIC:
+		case Opcodes.OPCODE_PUTSTATIC: {
+			String[] ref = TranslatorUtils.getReferencedName(cp, ainst);
+			if (ref == null || !FieldTranslator.isInteger(ref[2])) return null;
+			ClassTranslator coll = translator.getClassTranslator(ref[0]);
+			if (coll == null) return null;
+			FieldTranslator field = MethodTranslator.findSuperClassHavingField(
+					coll, ref[1], translator);
+			if (field == null || field.isFinal()) return null;
+			return field.getName();
+		}
+		
+		case Opcodes.OPCODE_GETFIELD:
+		case Opcodes.OPCODE_PUTFIELD: {
+			String[] ref = TranslatorUtils.getReferencedName(cp, ainst);
+			if (ref == null || !FieldTranslator.isInteger(ref[2])) return null;
+			ClassTranslator coll = translator.getClassTranslator(ref[0]);
+			if (coll == null) return null;
+			return MethodTranslator.resolveFieldName(coll, ref[1], translator);
+		}
+		
+		default:
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the location of the elements of the arrays of the primitive
+	 * type <code>type</code>. The arrays of booleans and bytes share their
+	 * elements, as they share their instructions.
+	 */
+	private static String getArrayKey(char type) {
+		
+		switch (type) {
+		case 'Z':
+		case 'B':
+			return "[B";
+		case 'C':
+		case 'I':
+		case 'S':
+			return "[" + type;
+		default:
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the range of the values of <code>key</code>.
+	 * 
+	 * @param key the location.
+	 * @return the smallest and the largest value.
+	 */
+	int[] load(String key) {
+		
+		int[] r = ranges.get(key);
+		return (r == null) ? new int[] { 0, 0 } : r;
+	}
+	
+	/**
+	 * Records that values in <code>[lo, hi]</code> are stored into
+	 * <code>key</code>.
+	 * 
+	 * @param key the location.
+	 * @param lo the smallest value.
+	 * @param hi the largest value.
+	 */
+	void store(String key, int lo, int hi) {
+		
+		int[] s = stored.get(key);
+		if (s == null) {
+			stored.put(key, new int[] { lo, hi });
+		} else {
+			s[0] = Math.min(s[0], lo);
+			s[1] = Math.max(s[1], hi);
+		}
+	}
+	
+	/**
+	 * Returns the number of bits needed by the values of <code>key</code>.
+	 * 
+	 * @param key the location.
+	 * @return the number of bits.
+	 */
+	int getBits(String key) {
+		
+		int[] r = load(key);
+		if (exhausted || r[0] < 0) return bits;
+		for (int b = 1; b < bits; b++) {
+			MethodWrapper.Range range = new MethodWrapper.Range(b);
+			if (range.min <= r[0] && r[1] <= range.max)
+				return b;
+		}
+		return bits;
+	}
+	
+	/**
+	 * Returns the number of bits of each location that needs fewer bits
+	 * than the translation, sorted by the locations.
+	 * 
+	 * @return the map from the locations to their numbers of bits.
+	 */
+	Map<String, Integer> getNarrowed() {
+		
+		TreeMap<String, Integer> narrowed = new TreeMap<String, Integer>();
+		for (String key : ranges.keySet()) {
+			int b = getBits(key);
+			if (b < bits) narrowed.put(key, b);
+		}
+		return narrowed;
+	}
+}
@@ -156,6 +156,30 @@ public class Bypasser {
 		error(called);
 	}
 	
+	/**
+	 * Returns the names of the modules that the bypass of the method
+	 * specified by <code>called</code> invokes.
+	 * 
+	 * @param called the method.
+	 * @return the formatted names of the invoked modules; 
+	 * 			or an empty set if none.
+	 */
+	public static Set<String> getInvokedModules(String[] called) {
+		
+		HashSet<String> names = new HashSet<String>();
+		if (!isBypassed(called)) return names;
+		
+		if (called[0].equals("de/tum/in/jmoped/underbone/DomainManager")) {
+			if (called[1].equals("ithVar"))
+				names.add(TranslatorUtils.formatName("net/sf/javabdd/BDDDomain", 
+						"ithVar", "(J)Lnet/sf/javabdd/BDD;"));
+			else if (called[1].equals("scanVar"))
+				names.add(TranslatorUtils.formatName("net/sf/javabdd/BDD", 
+						"scanVar", "(Lnet/sf/javabdd/BDDDomain;)J"));
+		}
+		return names;
+	}
+	
 	private static void bypassDomainManager(Module module,
 			Translator translator, String[] called,
 			String label, String nextlabel) {
@@ -9,6 +9,7 @@ import org.gjt.jclasslib.io.ClassFileReader;
 import org.gjt.jclasslib.structures.ClassFile;
 import org.gjt.jclasslib.structures.InvalidByteCodeException;
 
+import de.tum.in.jmoped.translator.ClassPathIndex;
 import de.tum.in.jmoped.translator.ClassTranslator;
 import de.tum.in.jmoped.translator.TranslatorUtils;
 
@@ -125,21 +126,22 @@ public class StubManager {
 	
 	/**
 	 * Creates class translator for the class specified by className.
+	 * The class file is looked up in the class-location index.
 	 * 
 	 * @param id
 	 * @param className
+	 * @param index
 	 * @return
 	 * @throws IOException
 	 * @throws InvalidByteCodeException
 	 */
-	public static ClassTranslator createClassStub(int id, String className, String[] searchPaths) 
+	public static ClassTranslator createClassStub(int id, String className, ClassPathIndex index)
 			throws IOException, InvalidByteCodeException {
 		
 		String prefixClassName = prefixName(className);
 		ClassFile cf = findClassFile(prefixClassName);
 		if (cf == null) {
-			cf = TranslatorUtils.findClassFile(prefixClassName, 
-					searchPaths);
+			cf = TranslatorUtils.findClassFile(index, prefixClassName);
 			if (cf == null) return null;
 		}
 		return new ClassTranslator(id, cf);
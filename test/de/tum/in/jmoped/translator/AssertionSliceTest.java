@@ -0,0 +1,88 @@
+package de.tum.in.jmoped.translator;
+
+import static de.tum.in.jmoped.translator.Fixtures.find;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.junit.Test;
+
+public class AssertionSliceTest {
+
+	private static final String FIXTURE =
+			"de/tum/in/jmoped/translator/AssertionSliceTest$Fixture";
+	
+	public static class Fixture {
+		static int counter;
+		static int unrelated;
+		public static void test(int x) {
+			int y = square(x);
+			int z = 0;
+			if (x > 2) z = 1;
+			bump();
+			unrelated = x + 1;
+			if (y + z + counter < 0) throw new AssertionError();
+			unrelated = noise(x);
+		}
+		static int square(int x) { return x * x; }
+		static void bump() { counter++; }
+		static int noise(int x) { return x + 1; }
+	}
+	
+	private Translator translator;
+	
+	private MethodTranslator method;
+	
+	private Translator create(boolean slice) throws Exception {
+		translator = Fixtures.translator(FIXTURE, "(I)V");
+		translator.setAssertionSlicing(slice);
+		method = maker("test", "(I)V");
+		return translator;
+	}
+	
+	private MethodTranslator maker(String name, String desc) {
+		return Fixtures.method(translator, FIXTURE, name, desc);
+	}
+	
+	@Test public void testSlice() throws Exception {
+		AssertionSlice slice = new AssertionSlice(create(true)).compute();
+		BitSet insts = slice.getInstructions(method);
+		
+		// y flows from the call to square
+		assertTrue(insts.get(find(method, Opcodes.OPCODE_INVOKESTATIC, 0)));
+		assertTrue(slice.getInstructions(maker("square", "(I)I"))
+				.get(find(maker("square", "(I)I"), Opcodes.OPCODE_IMUL, 0)));
+		
+		// z depends on x > 2 through control flow
+		assertTrue(insts.get(find(method, Opcodes.OPCODE_IF_ICMPLE, 0)));
+		assertTrue(insts.get(find(method, Opcodes.OPCODE_ISTORE_2, 1)));
+		
+		// counter is incremented by bump
+		assertTrue(insts.get(find(method, Opcodes.OPCODE_INVOKESTATIC, 1)));
+		assertTrue(slice.isEntered(maker("bump", "()V")));
+		
+		// unrelated does not reach the assertion, and noise comes after it
+		assertFalse(insts.get(find(method, Opcodes.OPCODE_IADD, 0)));
+		assertFalse(insts.get(find(method, Opcodes.OPCODE_PUTSTATIC, 0)));
+		assertFalse(insts.get(find(method, Opcodes.OPCODE_INVOKESTATIC, 2)));
+		assertFalse(slice.isEntered(maker("noise", "(I)I")));
+		assertTrue(slice.size() < slice.getTotal());
+	}
+	
+	@Test public void testTranslation() throws Exception {
+		
+		// Only the modules invoked by the slice are made
+		create(true).translate(4, 10, true, 1, false);
+		assertTrue(translator.isReachable(maker("square", "(I)I")));
+		assertTrue(translator.isReachable(maker("bump", "()V")));
+		assertFalse(translator.isReachable(maker("noise", "(I)I")));
+		
+		// Without slicing, all modules are
+		create(false).translate(4, 10, true, 1, false);
+		assertTrue(translator.isReachable(maker("square", "(I)I")));
+		assertTrue(translator.isReachable(maker("bump", "()V")));
+		assertTrue(translator.isReachable(maker("noise", "(I)I")));
+	}
+}
@@ -0,0 +1,73 @@
+package de.tum.in.jmoped.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Test;
+
+public class ClassPathIndexTest {
+
+	@Test public void testDirectory() throws Exception {
+		File dir = File.createTempFile("index", "");
+		dir.delete();
+		File pkg = new File(dir, "a/b");
+		pkg.mkdirs();
+		new File(pkg, "C.class").createNewFile();
+		
+		ClassPathIndex index = new ClassPathIndex(new String[] { dir.getPath() }, null);
+		assertTrue(index.contains("a/b/C"));
+		assertTrue(index.contains("a.b.C"));
+		assertFalse(index.contains("a/b/D"));
+	}
+	
+	private File createJar(String entry) throws Exception {
+		File jar = File.createTempFile("index", ".jar");
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+		out.putNextEntry(new JarEntry(entry));
+		InputStream in = getClass().getClassLoader().getResourceAsStream(entry);
+		byte[] buf = new byte[4096];
+		for (int n; (n = in.read(buf)) > 0; )
+			out.write(buf, 0, n);
+		in.close();
+		out.close();
+		return jar;
+	}
+	
+	@Test public void testCache() throws Exception {
+		File cache = File.createTempFile("index", ".cache");
+		cache.delete();
+		File jar = createJar("de/tum/in/jmoped/translator/ClassPathIndexTest.class");
+		String[] paths = new String[] { jar.getPath() };
+		
+		new ClassPathIndex(paths, cache);
+		assertTrue(cache.isFile());
+		ClassPathIndex cached = new ClassPathIndex(paths, cache);
+		ClassPathIndex fresh = new ClassPathIndex(paths, null);
+		assertEquals(fresh.getClassNames(), cached.getClassNames());
+		assertEquals(jar.getPath(), cached.getPaths().get(0));
+		assertEquals("de/tum/in/jmoped/translator/ClassPathIndexTest", 
+				cached.findClassFile("de/tum/in/jmoped/translator/ClassPathIndexTest")
+				.getThisClassName());
+		cached.close();
+	}
+	
+	@Test public void testJar() throws Exception {
+		File jar = createJar("de/tum/in/jmoped/translator/ClassPathIndexTest.class");
+		ClassPathIndex index = new ClassPathIndex(new String[] { jar.getPath() }, null);
+		assertNotNull(index.findClassFile("de/tum/in/jmoped/translator/ClassPathIndexTest"));
+		index.close();
+		
+		// Reopens on demand after closing
+		assertEquals("de/tum/in/jmoped/translator/ClassPathIndexTest", 
+				index.findClassFile("de.tum.in.jmoped.translator.ClassPathIndexTest").getThisClassName());
+		index.close();
+	}
+}
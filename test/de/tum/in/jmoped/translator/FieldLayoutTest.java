@@ -0,0 +1,139 @@
+package de.tum.in.jmoped.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class FieldLayoutTest {
+
+	private static final String FIXTURE =
+			"de/tum/in/jmoped/translator/FieldLayoutTest$Fixture";
+	
+	private static final String BASE =
+			"de/tum/in/jmoped/translator/FieldLayoutTest$Base";
+	
+	private static final String DERIVED =
+			"de/tum/in/jmoped/translator/FieldLayoutTest$Derived";
+	
+	private static final String LEAF =
+			"de/tum/in/jmoped/translator/FieldLayoutTest$Leaf";
+	
+	public static class Base {
+		int a;
+		int unused;
+		int b;
+	}
+	
+	public static class Derived extends Base {
+		int c;
+		int w;
+	}
+	
+	public static class Leaf extends Derived {
+		int e;
+	}
+	
+	public static class Fixture {
+		public static int test() {
+			Derived d = new Derived();
+			d.a = 1;
+			d.unused = 2;
+			d.b = 3;
+			d.c = 4;
+			d.w = 5;
+			Base b = new Base();
+			Leaf l = new Leaf();
+			l.e = 6;
+			return d.a + d.b + d.c + b.a + b.b + l.e + l.a;
+		}
+	}
+	
+	private Translator translator;
+	
+	private Translator translate(boolean slice) throws Exception {
+		translator = Fixtures.translator(FIXTURE, "()I");
+		translator.setFieldSlicing(slice);
+		translator.translate(4, 10, true, 1, false);
+		return translator;
+	}
+	
+	private FieldTranslator field(String className, String owner, String name) {
+		return translator.getClassTranslator(className)
+				.getInstanceFieldTranslator(FieldTranslator.formatName(owner, name));
+	}
+	
+	private int id(String className, String owner, String name) {
+		return field(className, owner, name).getId();
+	}
+	
+	private static HashSet<Integer> setOf(Integer... ids) {
+		return new HashSet<Integer>(Arrays.asList(ids));
+	}
+	
+	@Test public void testAnalysis() throws Exception {
+		translator = Fixtures.translator(FIXTURE, "()I");
+		FieldLayout layout = new FieldLayout(translator).compute();
+		assertTrue(layout.isRead(field(BASE, BASE, "a")));
+		assertFalse(layout.isRead(field(BASE, BASE, "unused")));
+		assertTrue(layout.isRead(field(DERIVED, DERIVED, "c")));
+		assertFalse(layout.isRead(field(DERIVED, DERIVED, "w")));
+	}
+	
+	@Test public void testWriteOnly() throws Exception {
+		translate(true);
+		
+		// The fields only written get no cell, and the others close the gap
+		assertEquals(0, id(BASE, BASE, "unused"));
+		assertEquals(0, id(DERIVED, DERIVED, "w"));
+		assertEquals(setOf(1, 2), setOf(id(BASE, BASE, "a"), id(BASE, BASE, "b")));
+		assertEquals(3, id(DERIVED, DERIVED, "c"));
+		assertEquals(2, translator.getClassTranslator(BASE).size());
+		assertEquals(3, translator.getClassTranslator(DERIVED).size());
+	}
+	
+	@Test public void testUnsliced() throws Exception {
+		translate(false);
+		assertEquals(setOf(1, 2, 3), setOf(id(BASE, BASE, "a"), 
+				id(BASE, BASE, "unused"), id(BASE, BASE, "b")));
+		assertEquals(setOf(4, 5), setOf(id(DERIVED, DERIVED, "c"), 
+				id(DERIVED, DERIVED, "w")));
+		assertEquals(5, translator.getClassTranslator(DERIVED).size());
+	}
+	
+	/**
+	 * Asserts that the layout of <code>sub</code> extends the one of
+	 * its super class <code>sup</code>: the inherited fields are shared,
+	 * and the fields declared by <code>sub</code> follow.
+	 */
+	private void assertExtends(String sub, String sup) {
+		
+		ClassTranslator subct = translator.getClassTranslator(sub);
+		ClassTranslator supct = translator.getClassTranslator(sup);
+		for (FieldTranslator field : supct.getInstanceFields())
+			assertTrue(subct.getInstanceFieldTranslator(field.getName()) == field);
+		for (FieldTranslator field : subct.getInstanceFields()) {
+			if (supct.getInstanceFieldTranslator(field.getName()) == null
+					&& field.getId() != 0)
+				assertTrue(field.getId() > supct.size());
+		}
+		assertTrue(subct.size() >= supct.size());
+	}
+	
+	@Test public void testHierarchy() throws Exception {
+		translate(true);
+		assertExtends(DERIVED, BASE);
+		assertExtends(LEAF, DERIVED);
+		assertEquals(4, id(LEAF, LEAF, "e"));
+		assertEquals(id(BASE, BASE, "a"), id(LEAF, BASE, "a"));
+		
+		translate(false);
+		assertExtends(DERIVED, BASE);
+		assertExtends(LEAF, DERIVED);
+		assertEquals(6, id(LEAF, LEAF, "e"));
+	}
+}
@@ -0,0 +1,85 @@
+package de.tum.in.jmoped.translator;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Translates the fixtures of the analysis tests, and finds their methods
+ * and instructions. A fixture is a nested class of a test, searched for
+ * in <code>bin</code>.
+ */
+class Fixtures {
+
+	/**
+	 * Returns the internal name of <code>c</code>,
+	 * e.g. <code>de/tum/in/jmoped/translator/ArrayTest$Test0</code>.
+	 * 
+	 * @param c the class.
+	 * @return the class name.
+	 */
+	static String nameOf(Class<?> c) {
+		return c.getName().replace('.', '/');
+	}
+	
+	/**
+	 * Creates a translator starting from the method <code>test</code>
+	 * of <code>className</code> with descriptor <code>desc</code>.
+	 * 
+	 * @param className the fixture class name.
+	 * @param desc the descriptor of <code>test</code>.
+	 * @return the translator.
+	 * @throws Exception
+	 */
+	static Translator translator(String className, String desc) throws Exception {
+		return new Translator(className, new String[] { "bin" }, "test", desc);
+	}
+	
+	/**
+	 * Creates a translator starting from the method <code>test()V</code>
+	 * of <code>className</code>.
+	 * 
+	 * @param className the fixture class name.
+	 * @return the translator.
+	 * @throws Exception
+	 */
+	static Translator translator(String className) throws Exception {
+		return translator(className, "()V");
+	}
+	
+	/**
+	 * Returns the translator of the method <code>name</code> with
+	 * descriptor <code>desc</code> in <code>className</code>.
+	 * 
+	 * @param translator the translator.
+	 * @param className the class name.
+	 * @param name the method name.
+	 * @param desc the method descriptor.
+	 * @return the method translator.
+	 */
+	static MethodTranslator method(Translator translator, String className,
+			String name, String desc) {
+		
+		ModuleMaker maker = translator.getClassTranslator(className)
+				.getModuleMaker(name, desc);
+		if (maker == null) fail(className + "." + name + desc + " not found");
+		return (MethodTranslator) maker;
+	}
+	
+	/**
+	 * Returns the index of the <code>n</code>-th instruction with
+	 * <code>opcode</code> in <code>method</code>, counting from zero.
+	 * 
+	 * @param method the method translator.
+	 * @param opcode the opcode.
+	 * @param n the number of earlier instructions with the opcode.
+	 * @return the instruction index.
+	 */
+	static int find(MethodTranslator method, int opcode, int n) {
+		
+		for (int i = 0; i < method.ainstList.size(); i++) {
+			if (method.ainstList.get(i).getOpcode() == opcode && n-- == 0)
+				return i;
+		}
+		fail("opcode " + opcode + " not found in " + method.getName());
+		return -1;
+	}
+}
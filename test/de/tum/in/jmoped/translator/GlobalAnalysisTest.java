@@ -0,0 +1,64 @@
+package de.tum.in.jmoped.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class GlobalAnalysisTest {
+
+	private static final String FIXTURE =
+			"de/tum/in/jmoped/translator/GlobalAnalysisTest$Fixture";
+	
+	public static class Fixture {
+		static int read;
+		static int written;
+		public static void test() {
+			written = 1;
+			read = 2;
+			if (read > 1) written = read;
+		}
+	}
+	
+	private Translator translator;
+	
+	private Translator create() throws Exception {
+		translator = Fixtures.translator(FIXTURE);
+		return translator;
+	}
+	
+	private FieldTranslator field(String name) {
+		String qualified = FieldTranslator.formatName(FIXTURE, name);
+		for (FieldTranslator field : translator.getClassTranslator(FIXTURE).getStaticFields()) {
+			if (field.getName().equals(qualified))
+				return field;
+		}
+		fail(qualified + " not found");
+		return null;
+	}
+	
+	@Test public void testAnalysis() throws Exception {
+		GlobalAnalysis globals = new GlobalAnalysis(create()).compute();
+		assertTrue(globals.isRead(field("read").getName()));
+		assertFalse(globals.isRead(field("written").getName()));
+		assertEquals(1, globals.size());
+		assertEquals(1, globals.countDeadStores());
+	}
+	
+	@Test public void testSliced() throws Exception {
+		create().translate(4, 10, true, 1, false);
+		
+		// The stores into written are popped instead
+		assertTrue(translator.isGlobal(field("read")));
+		assertFalse(translator.isGlobal(field("written")));
+	}
+	
+	@Test public void testUnsliced() throws Exception {
+		create().setGlobalSlicing(false);
+		translator.translate(4, 10, true, 1, false);
+		assertTrue(translator.isGlobal(field("read")));
+		assertTrue(translator.isGlobal(field("written")));
+	}
+}
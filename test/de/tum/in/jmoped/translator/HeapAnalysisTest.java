@@ -0,0 +1,138 @@
+package de.tum.in.jmoped.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class HeapAnalysisTest {
+
+	private static final String FIXTURE =
+			"de/tum/in/jmoped/translator/HeapAnalysisTest$Fixture";
+	
+	private static final String HOLDER =
+			"de/tum/in/jmoped/translator/HeapAnalysisTest$Holder";
+	
+	private static final String LITERAL =
+			"de/tum/in/jmoped/translator/HeapAnalysisTest$Literal";
+	
+	public static class Node {
+		int value;
+	}
+	
+	public static class Holder {
+		static Node node = new Node();
+		static int get() { return node.value; }
+	}
+	
+	public static class Fixture {
+		public static void test() {
+			once();
+			twice();
+			twice();
+			looped();
+			for (int i = 0; i < 2; i++)
+				called();
+			recursive(2);
+			Holder.get();
+			Holder.get();
+		}
+		static int once() { return new Node().value; }
+		static int twice() { return new Node().value; }
+		static void looped() {
+			for (int i = 0; i < 2; i++)
+				new Node();
+		}
+		static int called() { return new Node().value; }
+		static int recursive(int n) {
+			if (n > 0) return recursive(n - 1);
+			return new Node().value;
+		}
+	}
+	
+	public static class Literal {
+		public static void test() {
+			new Node();
+			label();
+		}
+		static Object label() { return "abc"; }
+	}
+	
+	private Map<String, Long> sites;
+	
+	private HeapAnalysis compute() throws Exception {
+		return compute(FIXTURE);
+	}
+	
+	private HeapAnalysis compute(String className) throws Exception {
+		Translator translator = Fixtures.translator(className);
+		HeapAnalysis heap = new HeapAnalysis(translator, 4).compute();
+		sites = heap.getDominantSites(Integer.MAX_VALUE);
+		return heap;
+	}
+	
+	/**
+	 * Returns the cells allocated by the only site in the method.
+	 */
+	private long cells(String className, String method) {
+		
+		String prefix = className + "." + method + "(";
+		Long cells = null;
+		for (Map.Entry<String, Long> entry : sites.entrySet()) {
+			if (!entry.getKey().startsWith(prefix)) continue;
+			if (cells != null) fail("more than one site in " + method);
+			cells = entry.getValue();
+		}
+		if (cells == null) fail("no site in " + method);
+		return cells;
+	}
+	
+	@Test public void testCallSites() throws Exception {
+		compute();
+		long node = cells(FIXTURE, "once");
+		assertTrue(node > 0 && node != HeapAnalysis.UNBOUNDED);
+		
+		// Two call sites invoke the method twice
+		assertEquals(2 * node, cells(FIXTURE, "twice"));
+	}
+	
+	@Test public void testLoop() throws Exception {
+		compute();
+		assertEquals(HeapAnalysis.UNBOUNDED, cells(FIXTURE, "looped"));
+		assertEquals(HeapAnalysis.UNBOUNDED, cells(FIXTURE, "called"));
+	}
+	
+	@Test public void testRecursion() throws Exception {
+		compute();
+		assertEquals(HeapAnalysis.UNBOUNDED, cells(FIXTURE, "recursive"));
+	}
+	
+	@Test public void testClinit() throws Exception {
+		compute();
+		
+		// The initializer runs once, although the class is used twice
+		assertEquals(cells(FIXTURE, "once"), cells(HOLDER, "<clinit>"));
+	}
+	
+	@Test public void testUnbounded() throws Exception {
+		assertEquals(HeapAnalysis.UNBOUNDED, compute().getCells());
+	}
+	
+	@Test public void testString() throws Exception {
+		HeapAnalysis heap = compute(LITERAL);
+		assertTrue(cells(LITERAL, "test") != HeapAnalysis.UNBOUNDED);
+		
+		// The cells of a string constant are not known
+		assertEquals(HeapAnalysis.UNBOUNDED, cells(LITERAL, "label"));
+		assertEquals(HeapAnalysis.UNBOUNDED, heap.getCells());
+	}
+	
+	@Test public void testDefault() throws Exception {
+		Translator translator = Fixtures.translator(FIXTURE);
+		translator.translate(4, 10, true, 1, false);
+		assertTrue(translator.getAllocationSites().isEmpty());
+	}
+}
@@ -0,0 +1,95 @@
+package de.tum.in.jmoped.translator;
+
+import static de.tum.in.jmoped.translator.Fixtures.find;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.junit.Test;
+
+public class IntervalAnalysisTest {
+	
+	private static final String FIXTURE =
+			"de/tum/in/jmoped/translator/IntervalAnalysisTest$Fixture";
+	
+	public static class Fixture {
+		public static void test() {}
+		static int sum(int[] a) {
+			int s = 0;
+			for (int i = 0; i < a.length; i++) s += a[i];
+			return s;
+		}
+		static int fixed() {
+			int[] a = new int[3];
+			a[2] = 1;
+			return a[0];
+		}
+		static int unrelated(int[] a, int[] b) {
+			int s = 0;
+			for (int i = 0; i < a.length; i++) s += b[i];
+			return s;
+		}
+		static int reassigned(int[] a, int[] b) {
+			int s = 0;
+			for (int i = 0; i < a.length; i++) {
+				a = b;
+				s += a[i];
+			}
+			return s;
+		}
+		static int negative(int[] a) {
+			int s = 0;
+			for (int i = a.length - 1; i >= -1; i--) s += a[i + 1];
+			return s;
+		}
+		static int overflow() {
+			int[] a = new int[4];
+			int i = 3;
+			i = i + 5;
+			return a[i - 5];
+		}
+	}
+	
+	private MethodTranslator method;
+	
+	private BitSet compute(String name, String desc, int bits) throws Exception {
+		Translator translator = Fixtures.translator(FIXTURE);
+		method = Fixtures.method(translator, FIXTURE, name, desc);
+		return new IntervalAnalysis(method, bits).compute();
+	}
+	
+	@Test public void testLoop() throws Exception {
+		BitSet safe = compute("sum", "([I)I", 8);
+		assertTrue(safe.get(find(method, Opcodes.OPCODE_IALOAD, 0)));
+	}
+	
+	@Test public void testAllocation() throws Exception {
+		BitSet safe = compute("fixed", "()I", 8);
+		assertTrue(safe.get(find(method, Opcodes.OPCODE_IASTORE, 0)));
+		assertTrue(safe.get(find(method, Opcodes.OPCODE_IALOAD, 0)));
+	}
+	
+	@Test public void testUnrelated() throws Exception {
+		BitSet safe = compute("unrelated", "([I[I)I", 8);
+		assertFalse(safe.get(find(method, Opcodes.OPCODE_IALOAD, 0)));
+	}
+	
+	@Test public void testReassigned() throws Exception {
+		BitSet safe = compute("reassigned", "([I[I)I", 8);
+		assertFalse(safe.get(find(method, Opcodes.OPCODE_IALOAD, 0)));
+	}
+	
+	@Test public void testNegative() throws Exception {
+		BitSet safe = compute("negative", "([I)I", 8);
+		assertFalse(safe.get(find(method, Opcodes.OPCODE_IALOAD, 0)));
+	}
+	
+	@Test public void testOverflow() throws Exception {
+		
+		// 3 + 5 fits in 8 bits, but wraps around in 4 bits
+		assertTrue(compute("overflow", "()I", 8).get(find(method, Opcodes.OPCODE_IALOAD, 0)));
+		assertFalse(compute("overflow", "()I", 4).get(find(method, Opcodes.OPCODE_IALOAD, 0)));
+	}
+}
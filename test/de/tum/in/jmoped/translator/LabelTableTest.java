@@ -0,0 +1,31 @@
+package de.tum.in.jmoped.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class LabelTableTest {
+
+	@Test public void testIntern() {
+		LabelTable table = new LabelTable();
+		String name = "p/A.m(I)V";
+		int[] ids = table.intern(name, new int[] { 0, 3, 7 });
+		assertEquals(3, table.size());
+		assertEquals(ids[1], table.intern(name, 3));
+		assertSame(table.getLabel(ids[1]), table.getLabel(table.intern(name, 3)));
+		assertEquals("p/A.m(I)V7", table.getLabel(ids[2]));
+		assertEquals(name, table.getModuleName(ids[2]));
+		assertEquals(7, table.getOffset(ids[2]));
+		assertEquals(ids[0], table.lookup("p/A.m(I)V0"));
+		assertEquals(-1, table.lookup("p/A.m(I)V1"));
+	}
+	
+	@Test public void testGrow() {
+		LabelTable table = new LabelTable();
+		for (int i = 0; i < 200; i++)
+			assertEquals(i, table.intern("A.m()V", i));
+		assertEquals(199, table.getOffset(199));
+		assertEquals(200, table.size());
+	}
+}
@@ -0,0 +1,91 @@
+package de.tum.in.jmoped.translator;
+
+import static de.tum.in.jmoped.translator.Fixtures.find;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.junit.Test;
+
+public class LivenessAnalysisTest {
+
+	private static final String FIXTURE =
+			"de/tum/in/jmoped/translator/LivenessAnalysisTest$Fixture";
+	
+	public static class Fixture {
+		public static void test() {}
+		static int id(int x) { return x; }
+		static int reuse(int x) {
+			int a = x + 1;
+			x = a * 2;
+			int b = x + 3;
+			return b;
+		}
+		static int across(int x) {
+			int a = x + 1;
+			int b = id(x);
+			return a + b;
+		}
+		static int handler(int x) {
+			int y = x + 1;
+			try {
+				int z = id(y);
+				x = z + 1;
+			} catch (RuntimeException e) {
+				return y;
+			}
+			return x;
+		}
+	}
+	
+	private MethodTranslator method;
+	
+	private LivenessAnalysis compute(String name) throws Exception {
+		Translator translator = Fixtures.translator(FIXTURE);
+		method = Fixtures.method(translator, FIXTURE, name, "(I)I");
+		LivenessAnalysis liveness = new LivenessAnalysis(method);
+		assertTrue(liveness.compute(1));
+		return liveness;
+	}
+	
+	@Test public void testReuse() throws Exception {
+		LivenessAnalysis liveness = compute("reuse");
+		
+		// a dies when it is read, and x and b take over its slot in turn
+		int load = find(method, Opcodes.OPCODE_ILOAD_1, 0);
+		assertTrue(liveness.getResets(load, load + 1).get(1));
+		assertEquals(1, liveness.compact());
+		assertEquals(0, liveness.getSlot(1));
+		assertEquals(0, liveness.getSlot(2));
+	}
+	
+	@Test public void testAcrossCall() throws Exception {
+		LivenessAnalysis liveness = compute("across");
+		
+		// a is read after the call returns
+		int call = find(method, Opcodes.OPCODE_INVOKESTATIC, 0);
+		assertFalse(liveness.getResets(call, call + 1).get(1));
+		assertEquals(2, liveness.compact());
+		assertTrue(liveness.getSlot(1) != liveness.getSlot(2));
+	}
+	
+	@Test public void testHandler() throws Exception {
+		LivenessAnalysis liveness = compute("handler");
+		
+		// y is read by the handler only, so it stays live throughout the try
+		int call = find(method, Opcodes.OPCODE_INVOKESTATIC, 0);
+		int[] handlers = new ControlFlow(method).getHandlers(call);
+		assertEquals(1, handlers.length);
+		assertFalse(liveness.getResets(call, handlers[0]).get(1));
+		
+		// but dies when the try ends normally
+		int store = find(method, Opcodes.OPCODE_ISTORE_0, 0);
+		assertTrue(liveness.getResets(store, store + 1).get(1));
+		
+		// and neither x nor z, written inside the try, may share its slot
+		liveness.compact();
+		assertTrue(liveness.getSlot(1) != liveness.getSlot(0));
+		assertTrue(liveness.getSlot(1) != liveness.getSlot(2));
+	}
+}
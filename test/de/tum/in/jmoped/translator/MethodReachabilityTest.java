@@ -0,0 +1,38 @@
+package de.tum.in.jmoped.translator;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MethodReachabilityTest {
+
+	public static class Boxed {
+		public static int test(Integer x) { return used(x.intValue()); }
+		static int used(int x) { return x + 1; }
+		static int unused(int x) { return x - 1; }
+	}
+	
+	/**
+	 * Tests whether the integer constructor, which the method wrapper
+	 * invokes for an integer argument, is made when methods are pruned.
+	 * 
+	 * @throws Exception
+	 */
+	@Test public void testIntegerArgument() throws Exception {
+		String className = "de/tum/in/jmoped/translator/MethodReachabilityTest$Boxed";
+		Translator translator = Fixtures.translator(className, "(Ljava/lang/Integer;)I");
+		translator.setMethodPruning(true);
+		translator.translate(4, 10, true, 1, false);
+		
+		ModuleMaker init = translator.getClassTranslator("java/lang/Integer")
+				.getModuleMaker("<init>", "(I)V");
+		assertNotNull(init);
+		assertTrue(translator.isReachable(init));
+		
+		ClassTranslator coll = translator.getClassTranslator(className);
+		assertTrue(translator.isReachable(coll.getModuleMaker("used", "(I)I")));
+		assertFalse(translator.isReachable(coll.getModuleMaker("unused", "(I)I")));
+	}
+}
@@ -0,0 +1,87 @@
+package de.tum.in.jmoped.translator;
+
+import static de.tum.in.jmoped.translator.Fixtures.find;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.junit.Test;
+
+public class NullnessAnalysisTest {
+
+	private static final String FIXTURE =
+			"de/tum/in/jmoped/translator/NullnessAnalysisTest$Fixture";
+	
+	private static final String NODE =
+			"Lde/tum/in/jmoped/translator/NullnessAnalysisTest$Node;";
+	
+	public static class Node {
+		int value;
+		Node next;
+		int get() { return value; }
+	}
+	
+	public static class Fixture {
+		public static void test() {}
+		int f;
+		int self() { return this.f; }
+		static int fresh() { Node n = new Node(); return n.value; }
+		static int param(Node n) { return n.value; }
+		static int twice(Node n) { int a = n.value; return a + n.get(); }
+		static int tested(Node n) { if (n != null) return n.value; return 0; }
+		static int stored(Node n) { int a = n.value; n = n.next; return a + n.value; }
+		static int merged(Node n, boolean b) { if (b) n.get(); return n.value; }
+	}
+	
+	private MethodTranslator method;
+	
+	private BitSet compute(String name, String desc) throws Exception {
+		Translator translator = Fixtures.translator(FIXTURE);
+		method = Fixtures.method(translator, FIXTURE, name, desc);
+		return new NullnessAnalysis(method).compute();
+	}
+	
+	@Test public void testThis() throws Exception {
+		BitSet nonNull = compute("self", "()I");
+		assertTrue(nonNull.get(find(method, Opcodes.OPCODE_GETFIELD, 0)));
+	}
+	
+	@Test public void testNew() throws Exception {
+		BitSet nonNull = compute("fresh", "()I");
+		assertTrue(nonNull.get(find(method, Opcodes.OPCODE_GETFIELD, 0)));
+	}
+	
+	@Test public void testParameter() throws Exception {
+		BitSet nonNull = compute("param", "(" + NODE + ")I");
+		assertFalse(nonNull.get(find(method, Opcodes.OPCODE_GETFIELD, 0)));
+	}
+	
+	@Test public void testDereferenced() throws Exception {
+		BitSet nonNull = compute("twice", "(" + NODE + ")I");
+		assertFalse(nonNull.get(find(method, Opcodes.OPCODE_GETFIELD, 0)));
+		assertTrue(nonNull.get(find(method, Opcodes.OPCODE_INVOKEVIRTUAL, 0)));
+	}
+	
+	@Test public void testTested() throws Exception {
+		BitSet nonNull = compute("tested", "(" + NODE + ")I");
+		assertTrue(nonNull.get(find(method, Opcodes.OPCODE_GETFIELD, 0)));
+	}
+	
+	@Test public void testStored() throws Exception {
+		BitSet nonNull = compute("stored", "(" + NODE + ")I");
+		
+		// n.next is read from a dereferenced n, but n is then overwritten
+		assertFalse(nonNull.get(find(method, Opcodes.OPCODE_GETFIELD, 0)));
+		assertTrue(nonNull.get(find(method, Opcodes.OPCODE_GETFIELD, 1)));
+		assertFalse(nonNull.get(find(method, Opcodes.OPCODE_GETFIELD, 2)));
+	}
+	
+	@Test public void testMerged() throws Exception {
+		BitSet nonNull = compute("merged", "(" + NODE + "Z)I");
+		
+		// Dereferenced on one path only
+		assertFalse(nonNull.get(find(method, Opcodes.OPCODE_GETFIELD, 0)));
+	}
+}
@@ -0,0 +1,64 @@
+package de.tum.in.jmoped.translator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import de.tum.in.jmoped.underbone.Remopla;
+
+public class RemoplaWriterTest {
+
+	public static class Sample {
+		public static int test(int x) { return x + 1; }
+	}
+	
+	private Remopla translate() throws Exception {
+		Translator translator = new Translator(
+				"de/tum/in/jmoped/translator/RemoplaWriterTest$Sample",
+				new String[] { "bin" },
+				"test",
+				"(I)I");
+		return translator.translate(4, 10, true, 1, false);
+	}
+	
+	private String read(InputStream in) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		for (int n; (n = in.read(buf)) > 0; )
+			out.write(buf, 0, n);
+		in.close();
+		return out.toString("UTF-8");
+	}
+	
+	private String write(Remopla remopla, String suffix) throws Exception {
+		File file = File.createTempFile("remopla", suffix);
+		file.deleteOnExit();
+		RemoplaWriter writer = new RemoplaWriter(file);
+		try {
+			writer.write(remopla);
+		} finally {
+			writer.close();
+		}
+		return file.getPath();
+	}
+	
+	@Test public void testPlain() throws Exception {
+		Remopla remopla = translate();
+		String path = write(remopla, ".rem");
+		assertEquals(remopla.toMoped() + System.getProperty("line.separator"),
+				read(new FileInputStream(path)));
+	}
+	
+	@Test public void testGzip() throws Exception {
+		Remopla remopla = translate();
+		String path = write(remopla, ".rem.gz");
+		assertEquals(remopla.toMoped() + System.getProperty("line.separator"),
+				read(new GZIPInputStream(new FileInputStream(path))));
+	}
+}
@@ -0,0 +1,73 @@
+package de.tum.in.jmoped.translator;
+
+import static de.tum.in.jmoped.translator.Fixtures.find;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.gjt.jclasslib.bytecode.Opcodes;
+import org.junit.Test;
+
+public class StackAnalysisTest {
+
+	private static final String FIXTURE =
+			"de/tum/in/jmoped/translator/StackAnalysisTest$Fixture";
+	
+	public static class Fixture {
+		public static void test() {}
+		int get() { return 1; }
+		static long wide() { return 1L; }
+		int call(int x) { return x + get(); }
+		static long widen(int x) { return x + wide(); }
+		static int caught(int x) {
+			try {
+				return 10 / x;
+			} catch (ArithmeticException e) {
+				return 0;
+			}
+		}
+	}
+	
+	private MethodTranslator method;
+	
+	private StackAnalysis compute(String name, String desc) throws Exception {
+		Translator translator = Fixtures.translator(FIXTURE);
+		method = Fixtures.method(translator, FIXTURE, name, desc);
+		StackAnalysis stack = new StackAnalysis(method);
+		assertTrue(stack.compute());
+		return stack;
+	}
+	
+	@Test public void testCall() throws Exception {
+		StackAnalysis stack = compute("call", "(I)I");
+		
+		// x and this are on the stack; the call pops this and pushes
+		// its result on top of x, where the exception status then goes
+		int call = find(method, Opcodes.OPCODE_INVOKEVIRTUAL, 0);
+		assertEquals(2, stack.getHeight(call));
+		assertEquals(1, stack.getBase(call));
+		assertEquals(2, stack.getHeightAfter(call));
+		assertEquals(2, stack.getMaxHeight());
+	}
+	
+	@Test public void testWide() throws Exception {
+		StackAnalysis stack = compute("widen", "(I)J");
+		
+		// The static call tests the status before it pushes the long
+		int call = find(method, Opcodes.OPCODE_INVOKESTATIC, 0);
+		assertEquals(2, stack.getHeight(call));
+		assertEquals(2, stack.getBase(call));
+		assertEquals(4, stack.getHeightAfter(call));
+		assertEquals(4, stack.getMaxHeight());
+	}
+	
+	@Test public void testHandler() throws Exception {
+		StackAnalysis stack = compute("caught", "(I)I");
+		
+		// The handler starts with the exception, not with the operands
+		// of the division that throws it
+		int div = find(method, Opcodes.OPCODE_IDIV, 0);
+		assertEquals(2, stack.getHeight(div));
+		assertEquals(1, stack.getHeight(find(method, Opcodes.OPCODE_ASTORE_1, 0)));
+		assertEquals(2, stack.getMaxHeight());
+	}
+}
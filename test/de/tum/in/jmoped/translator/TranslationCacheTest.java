@@ -0,0 +1,137 @@
+package de.tum.in.jmoped.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+
+import org.gjt.jclasslib.structures.ClassFile;
+import org.junit.Test;
+
+public class TranslationCacheTest {
+
+	private static final String PREFIX = "de/tum/in/jmoped/translator/TranslationCacheTest$";
+	
+	public static class Callee {
+		static int inc(int x) { return x + 1; }
+	}
+	
+	public static class Caller {
+		public static int test(int x) { return Callee.inc(x); }
+	}
+	
+	public static class Worker extends Thread {
+		public void run() {}
+	}
+	
+	public static class Runner {
+		static void run(Runnable r) { r.run(); }
+	}
+	
+	public static class Starter {
+		public static void test() { Runner.run(new Worker()); }
+	}
+	
+	private byte[] readClass(String name) throws Exception {
+		InputStream in = getClass().getClassLoader().getResourceAsStream(name + ".class");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		for (int n; (n = in.read(buf)) > 0; )
+			out.write(buf, 0, n);
+		in.close();
+		return out.toByteArray();
+	}
+	
+	private byte[] readThisClass() throws Exception {
+		return readClass("de/tum/in/jmoped/translator/TranslationCacheTest");
+	}
+	
+	/**
+	 * Copies the nested classes to a fresh directory. The class file of
+	 * <code>changed</code>, if any, gets another minor version, so that
+	 * its digest differs.
+	 */
+	private String copyClasses(String[] names, String changed) throws Exception {
+		File dir = File.createTempFile("cache", "");
+		dir.delete();
+		File pkg = new File(dir, "de/tum/in/jmoped/translator");
+		pkg.mkdirs();
+		for (String name : names) {
+			byte[] bytes = readClass(PREFIX + name);
+			if (name.equals(changed))
+				bytes[5] ^= 1;
+			FileOutputStream out = new FileOutputStream(
+					new File(pkg, "TranslationCacheTest$" + name + ".class"));
+			out.write(bytes);
+			out.close();
+		}
+		return dir.getPath();
+	}
+	
+	private Translator translate(TranslationCache cache, String path, 
+			String className, String desc) throws Exception {
+		Translator translator = new Translator(PREFIX + className, 
+				new String[] { path }, "test", desc, null, 1, cache);
+		translator.translate(4, 10, true, 1, false);
+		return translator;
+	}
+	
+	@Test public void testClassFile() throws Exception {
+		TranslationCache cache = new TranslationCache();
+		ClassFile first = cache.readClassFile(readThisClass());
+		ClassFile second = cache.readClassFile(readThisClass());
+		assertSame(first, second);
+		assertNotNull(cache.getDigest(first));
+		
+		cache.clear();
+		assertNull(cache.getDigest(first));
+	}
+	
+	@Test public void testModuleReuse() throws Exception {
+		TranslationCache cache = new TranslationCache();
+		String[] names = new String[] { "Caller", "Callee" };
+		String path = copyClasses(names, null);
+		translate(cache, path, "Caller", "(I)I");
+		int made = cache.getMisses();
+		assertEquals(0, cache.getHits());
+		
+		// Unchanged classes make no module again
+		translate(cache, path, "Caller", "(I)I");
+		assertEquals(made, cache.getMisses());
+		assertEquals(made, cache.getHits());
+		
+		// A translator without the cache neither reads nor fills it
+		translate(null, path, "Caller", "(I)I");
+		assertEquals(made, cache.getMisses());
+		assertEquals(made, cache.getHits());
+		
+		// A changed callee makes its modules and its callers' again
+		translate(cache, copyClasses(names, "Callee"), "Caller", "(I)I");
+		int remade = cache.getMisses() - made;
+		assertTrue(remade >= 2);
+		assertEquals(2 * made - remade, cache.getHits());
+	}
+	
+	@Test public void testThreadDependency() throws Exception {
+		TranslationCache cache = new TranslationCache();
+		String[] names = new String[] { "Starter", "Runner", "Worker" };
+		Translator first = translate(cache, copyClasses(names, null), "Starter", "()V");
+		Translator second = translate(cache, copyClasses(names, "Worker"), "Starter", "()V");
+		
+		// The runner refers to Runnable only, but runs the worker
+		assertFalse(first.getDependencyKey(first.getClassTranslator(PREFIX + "Runner"))
+				.equals(second.getDependencyKey(second.getClassTranslator(PREFIX + "Runner"))));
+	}
+	
+	@Test public void testDigest() {
+		assertEquals(TranslationCache.digest(java.util.Arrays.asList("a", "b")),
+				TranslationCache.digest(java.util.Arrays.asList("b", "a")));
+	}
+}
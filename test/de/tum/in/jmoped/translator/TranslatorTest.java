@@ -8,7 +8,8 @@ import org.junit.Test;
 public class TranslatorTest {
 
 	@Test public void testAbstractList() throws Exception {
-		ClassFile cf = TranslatorUtils.findClassFile("java/util/AbstractList", null);
+		ClassFile cf = TranslatorUtils.findClassFile(
+				new ClassPathIndex(null, null), "java/util/AbstractList");
 		MethodInfo[] methods = cf.getMethods();
 		for (int i = 0; i < methods.length; i++) {
 			System.out.println(methods[i].getName());
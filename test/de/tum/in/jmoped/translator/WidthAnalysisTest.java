@@ -0,0 +1,68 @@
+package de.tum.in.jmoped.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class WidthAnalysisTest {
+
+	private static final String FIXTURE =
+			"de/tum/in/jmoped/translator/WidthAnalysisTest$Fixture";
+	
+	public static class Fixture {
+		static int small;
+		static int counter;
+		static int wrapped;
+		static int negative;
+		public static void test() {
+			small = 3;
+			for (int i = 0; i < 3; i++)
+				counter = counter + 1;
+			wrapped = small + 5;
+			negative = -1;
+		}
+	}
+	
+	private Map<String, Integer> translate(int bits, boolean infer) throws Exception {
+		Translator translator = Fixtures.translator(FIXTURE);
+		translator.setWidthInference(infer);
+		translator.translate(bits, 10, true, 1, false);
+		return translator.getInferredWidths();
+	}
+	
+	private static String field(String name) {
+		return FieldTranslator.formatName(FIXTURE, name);
+	}
+	
+	@Test public void testDefault() throws Exception {
+		assertTrue(translate(4, false).isEmpty());
+		assertTrue(Fixtures.translator(FIXTURE)
+				.getInferredWidths().isEmpty());
+	}
+	
+	@Test public void testConstant() throws Exception {
+		Map<String, Integer> widths = translate(4, true);
+		assertEquals(Integer.valueOf(3), widths.get(field("small")));
+	}
+	
+	@Test public void testGrowing() throws Exception {
+		
+		// Widened to all integers after growing in each round
+		assertFalse(translate(8, true).containsKey(field("counter")));
+	}
+	
+	@Test public void testOverflow() throws Exception {
+		
+		// 3 + 5 fits in 8 bits, but wraps around to -8 in 4 bits
+		assertEquals(Integer.valueOf(5), translate(8, true).get(field("wrapped")));
+		assertFalse(translate(4, true).containsKey(field("wrapped")));
+	}
+	
+	@Test public void testNegative() throws Exception {
+		assertFalse(translate(8, true).containsKey(field("negative")));
+	}
+}